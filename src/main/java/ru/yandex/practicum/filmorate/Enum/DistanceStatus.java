@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.Enum;
+
+/**
+ * Результат поиска степени разделения двух пользователей
+ */
+public enum DistanceStatus {
+    FOUND,          // путь найден
+    NOT_CONNECTED,  // пользователи в разных компонентах связности
+    TOO_FAR,        // путь длиннее наибольшей глубины поиска
+    TIMED_OUT       // бюджет времени исчерпан до встречи фронтов
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.Enum;
+
+/**
+ * Действие с лайком в пакетном запросе
+ */
+public enum LikeOperation {
+    ADD,    // поставить лайк
+    REMOVE  // снять лайк
+}
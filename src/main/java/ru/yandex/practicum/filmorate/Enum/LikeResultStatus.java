@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.Enum;
+
+/**
+ * Результат одного элемента пакетного запроса лайков
+ */
+public enum LikeResultStatus {
+    APPLIED,         // лайк поставлен или снят
+    UNCHANGED,       // лайк уже был (ADD) или его не было (REMOVE)
+    FILM_NOT_FOUND,  // фильма с таким id нет
+    USER_NOT_FOUND   // пользователя с таким id нет
+}
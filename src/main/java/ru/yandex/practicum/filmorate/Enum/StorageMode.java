@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.Enum;
+
+import java.util.Arrays;
+
+/**
+ * Режим хранения, свойство filmorate.storage.mode
+ */
+public enum StorageMode {
+    H2_FILE("h2-file"), // H2 в файле filmorate.db.path, данные переживают перезапуск
+    H2_MEM("h2-mem"),   // H2 в памяти процесса, база создаётся заново при каждом запуске
+    MEMORY("memory"),   // фильмы и пользователи в коллекциях Java, справочники в H2 в памяти
+    MAPPED("mapped");   // каталог фильмов в файлах, отображённых в память, пользователи как в memory
+
+    public static final String PROPERTY = "filmorate.storage.mode";
+
+    private final String value;
+
+    StorageMode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean usesFileDatabase() {
+        return this == H2_FILE;
+    }
+
+    public static StorageMode of(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equals(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Неизвестный режим хранения " + PROPERTY + "="
+                        + value + ", допустимы: " + Arrays.toString(Arrays.stream(values())
+                        .map(StorageMode::getValue).toArray())));
+    }
+}
@@ -1,17 +1,29 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.Enum.LikeResultStatus;
 import ru.yandex.practicum.filmorate.dto.FilmRequestDto;
 import ru.yandex.practicum.filmorate.dto.FilmResponseDto;
+import ru.yandex.practicum.filmorate.dto.LikeRequestDto;
+import ru.yandex.practicum.filmorate.dto.LikeResultDto;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,7 +34,11 @@ import java.util.stream.Collectors;
 @Validated
 public class FilmController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LIKES_BATCH = 1000;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public FilmResponseDto create(@Valid @RequestBody FilmRequestDto filmRequestDto) {
@@ -38,9 +54,25 @@ public class FilmController {
         return FilmMapper.toResponseDto(updated);
     }
 
+    /**
+     * Без limit — все фильмы потоком (JSON пишется порциями, список целиком не собирается).
+     * after — id, после которого начинать выдачу.
+     */
     @GetMapping
-    public List<FilmResponseDto> findAll() {
-        return filmService.findAll().stream()
+    public ResponseEntity<StreamingResponseBody> findAll(@RequestParam(defaultValue = "0")
+                                                         @PositiveOrZero int after) {
+        return JsonArrayStreaming.stream(objectMapper,
+                sink -> filmService.forEachFilm(after, film -> sink.accept(FilmMapper.toResponseDto(film))));
+    }
+
+    /**
+     * Страница фильмов по ключу: id больше after, по возрастанию id.
+     * Для следующей страницы after = id последнего фильма в ответе.
+     */
+    @GetMapping(params = "limit")
+    public List<FilmResponseDto> findPage(@RequestParam @Positive @Max(MAX_PAGE_SIZE) int limit,
+                                          @RequestParam(defaultValue = "0") @PositiveOrZero int after) {
+        return filmService.findPage(after, limit).stream()
                 .map(FilmMapper::toResponseDto)
                 .collect(Collectors.toList());
     }
@@ -63,6 +95,28 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    /**
+     * Пакет лайков (например, накопленных клиентом офлайн).
+     * Ответ — статус каждого элемента в порядке запроса; ошибка одного элемента не отменяет остальные.
+     */
+    @PostMapping("/likes")
+    public List<LikeResultDto> applyLikes(@RequestBody
+                                          @Size(max = MAX_LIKES_BATCH, message = "Не больше 1000 лайков за запрос")
+                                          List<@Valid @NotNull LikeRequestDto> requests) {
+        List<LikeChange> changes = requests.stream()
+                .map(r -> new LikeChange(r.getFilmId(), r.getUserId(), r.getOp()))
+                .toList();
+        List<LikeResultStatus> statuses = filmService.applyLikes(changes);
+
+        List<LikeResultDto> results = new ArrayList<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            LikeChange change = changes.get(i);
+            results.add(new LikeResultDto(change.getFilmId(), change.getUserId(), change.getOperation(),
+                    statuses.get(i)));
+        }
+        return results;
+    }
+
     @GetMapping("/popular")
     public List<FilmResponseDto> getPopularFilms(@RequestParam(defaultValue = "10")
                                                  @Positive int count) {
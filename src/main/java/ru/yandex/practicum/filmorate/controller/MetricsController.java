@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.storage.WriteBehindFilmStorage;
+
+/**
+ * Служебные метрики для мониторинга (actuator в проекте не подключён).
+ */
+@RestController
+@RequestMapping("/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final WriteBehindFilmStorage writeBehindFilmStorage;
+
+    /**
+     * Глубина буфера отложенной записи лайков, сбросы, ошибки и их время.
+     */
+    @GetMapping("/likes/write-behind")
+    public WriteBehindFilmStorage.Stats getWriteBehindStats() {
+        return writeBehindFilmStorage.getStats();
+    }
+}
@@ -1,17 +1,33 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.Enum.DistanceStatus;
+import ru.yandex.practicum.filmorate.dto.DistanceDto;
+import ru.yandex.practicum.filmorate.dto.FilmResponseDto;
 import ru.yandex.practicum.filmorate.dto.UserDto;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.mapper.UserMapper;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.util.SeparationGraph;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -21,7 +37,11 @@ import java.util.stream.Collectors;
 @Validated
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
+    private final FilmRecommendationService filmRecommendationService;
+    private final ObjectMapper objectMapper;
 
     // Создание пользователя
     @PostMapping
@@ -39,10 +59,22 @@ public class UserController {
         return UserMapper.toDto(updated);
     }
 
-    // Получение всех пользователей
+    // Получение всех пользователей потоком (UserDto не содержит друзей, поэтому они не загружаются)
     @GetMapping
-    public List<UserDto> findAll() {
-        return userService.findAll().stream()
+    public ResponseEntity<StreamingResponseBody> findAll(
+            @RequestParam(defaultValue = "0") @PositiveOrZero int after
+    ) {
+        return JsonArrayStreaming.stream(objectMapper,
+                sink -> userService.forEachUser(after, false, user -> sink.accept(UserMapper.toDto(user))));
+    }
+
+    // Страница пользователей по ключу: id больше after, для следующей страницы after = последний id
+    @GetMapping(params = "limit")
+    public List<UserDto> findPage(
+            @RequestParam @Positive @Max(MAX_PAGE_SIZE) int limit,
+            @RequestParam(defaultValue = "0") @PositiveOrZero int after
+    ) {
+        return userService.findPage(after, limit, false).stream()
                 .map(UserMapper::toDto)
                 .collect(Collectors.toList());
     }
@@ -81,18 +113,63 @@ public class UserController {
     public List<UserDto> getFriends(
             @PathVariable("id") @Positive(message = "Id пользователя должен быть положительным") int id
     ) {
-        return userService.getFriends(id).stream()
+        return userService.getFriends(id, false).stream()
+                .map(UserMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    // Рекомендации фильмов по лайкам пользователей с похожими вкусами
+    @GetMapping("/{id}/recommendations")
+    public List<FilmResponseDto> getRecommendations(
+            @PathVariable("id") @Positive(message = "Id пользователя должен быть положительным") int id,
+            @RequestParam(defaultValue = "10") @Positive @Max(FilmRecommendationService.MAX_RECOMMENDATIONS) int limit
+    ) {
+        return filmRecommendationService.getRecommendations(id, limit).stream()
+                .map(FilmMapper::toResponseDto)
+                .collect(Collectors.toList());
+    }
+
+    // Степень разделения: длина кратчайшей цепочки друзей, с withPath=true — и сама цепочка
+    @GetMapping("/{id}/distance/{otherId}")
+    public DistanceDto getDistance(
+            @PathVariable("id") @Positive(message = "Id пользователя должен быть положительным") int id,
+            @PathVariable("otherId") @Positive(message = "Id второго пользователя должен быть положительным") int otherId,
+            @RequestParam(defaultValue = "false") boolean withPath
+    ) {
+        SeparationGraph.Result result = userService.getDistance(id, otherId, withPath);
+        boolean found = result.status() == DistanceStatus.FOUND;
+        return new DistanceDto(id, otherId, result.status(),
+                found ? result.distance() : null,
+                found && result.path() != null ? Arrays.stream(result.path()).boxed().toList() : null);
+    }
+
+    // Рекомендации друзей: друзья друзей по убыванию числа общих друзей
+    @GetMapping("/{id}/friends/suggestions")
+    public List<UserDto> getFriendSuggestions(
+            @PathVariable("id") @Positive(message = "Id пользователя должен быть положительным") int id,
+            @RequestParam(defaultValue = "10") @Positive @Max(FriendSuggestionService.MAX_SUGGESTIONS) int limit
+    ) {
+        return userService.getFriendSuggestions(id, limit).stream()
                 .map(UserMapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    // Число общих друзей с каждым из пользователей ids: {otherId: count}
+    @GetMapping("/{id}/friends/common/counts")
+    public Map<Integer, Integer> getCommonFriendCounts(
+            @PathVariable("id") @Positive(message = "Id пользователя должен быть положительным") int id,
+            @RequestParam @NotEmpty @Size(max = MAX_PAGE_SIZE) List<@Positive Integer> ids
+    ) {
+        return userService.getCommonFriendCounts(id, ids);
+    }
+
     // Получение общих друзей
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<UserDto> getCommonFriends(
             @PathVariable("id") @Positive(message = "Id пользователя должен быть положительным") int id,
             @PathVariable("otherId") @Positive(message = "Id второго пользователя должен быть положительным") int otherId
     ) {
-        return userService.getCommonFriends(id, otherId).stream()
+        return userService.getCommonFriends(id, otherId, false).stream()
                 .map(UserMapper::toDto)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.Enum.DistanceStatus;
+
+import java.util.List;
+
+/**
+ * Степень разделения: distance и path заполнены только при status = FOUND,
+ * path — если он был запрошен.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DistanceDto {
+    private int userId;
+    private int otherId;
+    private DistanceStatus status;
+    private Integer distance;
+    private List<Integer> path;
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeRequestDto {
+
+    @NotNull(message = "Id фильма обязателен")
+    @Positive(message = "Id фильма должен быть положительным")
+    private Integer filmId;
+
+    @NotNull(message = "Id пользователя обязателен")
+    @Positive(message = "Id пользователя должен быть положительным")
+    private Integer userId;
+
+    @NotNull(message = "Операция обязательна (ADD или REMOVE)")
+    private LikeOperation op;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.Enum.LikeResultStatus;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeResultDto {
+    private int filmId;
+    private int userId;
+    private LikeOperation op;
+    private LikeResultStatus status;
+}
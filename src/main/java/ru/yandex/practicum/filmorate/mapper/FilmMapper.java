@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.mapper;
 
-import ru.yandex.practicum.filmorate.Enum.MpaRating;
 import ru.yandex.practicum.filmorate.dto.FilmRequestDto;
 import ru.yandex.practicum.filmorate.dto.FilmResponseDto;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -23,10 +22,9 @@ public class FilmMapper {
         film.setReleaseDate(requestDto.getReleaseDate());
         film.setDuration(requestDto.getDuration());
 
-        // Конвертация через Enum
+        // Только id: FilmService проверяет его по справочнику и подставляет название
         if (requestDto.getMpa() != null) {
-            MpaRating rating = MpaRating.fromId(requestDto.getMpa().getId());
-            film.setMpa(new Mpa(rating.getId(), rating.getNameWithDash()));
+            film.setMpa(new Mpa(requestDto.getMpa().getId(), null));
         }
 
         // Преобразование жанров через GenreMapper и новый FilmRequestDto
@@ -5,9 +5,9 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -38,8 +38,9 @@ public class Film {
 
     /**
      * Содержит id пользователей, которые лайкнули фильм.
+     * Хранятся как примитивные int (IntHashSet), без упаковки в Integer.
      */
-    private Set<Integer> likes = new HashSet<>();
+    private IntHashSet likes = new IntHashSet();
 
     /**
      * Жанры фильма.
@@ -52,4 +53,21 @@ public class Film {
      */
     @NotNull(message = "Рейтинг MPA обязателен")
     private Mpa mpa;
+
+    /**
+     * Копия со своими множествами лайков и жанров: её изменения не затрагивают оригинал.
+     * MPA и жанры — общие объекты справочника.
+     */
+    public Film copy() {
+        Film copy = new Film();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setDescription(description);
+        copy.setReleaseDate(releaseDate);
+        copy.setDuration(duration);
+        copy.setLikes(likes == null ? null : IntHashSet.of(likes.toIntArray()));
+        copy.setGenres(genres == null ? null : new LinkedHashSet<>(genres));
+        copy.setMpa(mpa);
+        return copy;
+    }
 }
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+
+/**
+ * Одно изменение лайка: пользователь ставит или снимает лайк фильму.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeChange {
+    private int filmId;
+    private int userId;
+    private LikeOperation operation;
+}
@@ -5,10 +5,9 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import lombok.Data;
 import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.util.IntEnumMap;
 
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Модель пользователя.
@@ -43,6 +42,32 @@ public class User {
      * Друзья и их статусы.
      * Ключ — id друга, значение — статус отношений (REQUESTED / CONFIRMED).
      * Таблица user_friends хранит пары (user_id, friend_id, status).
+     * Хранятся как примитивные int-ключи (IntEnumMap), без упаковки в Integer.
      */
-    private Map<Integer, FriendshipStatus> friends = new HashMap<>();
+    private IntEnumMap<FriendshipStatus> friends = new IntEnumMap<>(FriendshipStatus.class);
+
+    /**
+     * Копия со своей картой друзей: её изменения не затрагивают оригинал.
+     */
+    public User copy() {
+        if (friends == null) return copyWithFriends(null);
+
+        IntEnumMap<FriendshipStatus> friendsCopy = new IntEnumMap<>(FriendshipStatus.class);
+        friendsCopy.putAll(friends);
+        return copyWithFriends(friendsCopy);
+    }
+
+    /**
+     * Копия с переданной картой друзей вместо своей; карта оригинала не читается.
+     */
+    public User copyWithFriends(IntEnumMap<FriendshipStatus> friends) {
+        User copy = new User();
+        copy.setId(id);
+        copy.setEmail(email);
+        copy.setLogin(login);
+        copy.setName(name);
+        copy.setBirthday(birthday);
+        copy.setFriends(friends);
+        return copy;
+    }
 }
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.Ranking;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Рекомендации фильмов совместной фильтрацией по лайкам (индекс LikeIndex, без SQL).
+ * <p>
+ * 1. Соседи — пользователи с наибольшим числом общих лайков: по каждому фильму пользователя
+ *    берутся лайкнувшие его, у популярных фильмов — выборка не больше film-sample пользователей.
+ *    Остаются neighbours лучших соседей.
+ * 2. Кандидаты — фильмы соседей, которых пользователь ещё не лайкал; вес фильма — сумма
+ *    числа общих лайков с соседями, лайкнувшими его.
+ * Работа ограничена: фильмов пользователя и каждого соседа берётся не больше max-user-films,
+ * пользователей фильма — не больше film-sample, поэтому время не зависит ни от популярности
+ * фильмов, ни от числа лайков у соседей. Полный список лайков пользователя читается только
+ * для исключения уже просмотренного.
+ */
+@Service
+public class FilmRecommendationService {
+
+    // наибольший limit запроса
+    public static final int MAX_RECOMMENDATIONS = 100;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeIndex likeIndex;
+    private final int maxUserFilms;
+    private final int filmSample;
+    private final int neighbours;
+
+    public FilmRecommendationService(
+            @Qualifier("writeBehindFilmStorage") FilmStorage filmStorage,
+            @Qualifier("cachingUserStorage") UserStorage userStorage,
+            LikeIndex likeIndex,
+            @Value("${filmorate.recommendations.max-user-films:500}") int maxUserFilms,
+            @Value("${filmorate.recommendations.film-sample:1000}") int filmSample,
+            @Value("${filmorate.recommendations.neighbours:50}") int neighbours
+    ) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeIndex = likeIndex;
+        this.maxUserFilms = maxUserFilms;
+        this.filmSample = filmSample;
+        this.neighbours = neighbours;
+    }
+
+    public List<Film> getRecommendations(int userId, int limit) {
+        if (!userStorage.exists(userId)) {
+            throw new NoSuchElementException("Пользователь с таким id не найден");
+        }
+
+        return filmStorage.getByIds(recommend(userId, limit));
+    }
+
+    /**
+     * Id рекомендованных фильмов от большего веса к меньшему, при равенстве — по возрастанию id.
+     */
+    public List<Integer> recommend(int userId, int limit) {
+        int[] liked = likeIndex.films(userId);
+        if (liked.length == 0) return List.of();
+
+        long[] similar = similarUsers(userId, Ranking.sample(liked, maxUserFilms));
+
+        // (фильм, вес) упакованы в long: сортировка соберёт веса одного фильма подряд
+        long[] candidates = new long[64];
+        int size = 0;
+        for (long neighbour : similar) {
+            int overlap = Ranking.score(neighbour);
+            int neighbourId = Ranking.id(neighbour);
+            for (int filmId : likeIndex.films(neighbourId, maxUserFilms)) {
+                if (Arrays.binarySearch(liked, filmId) >= 0) continue;
+                if (size == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, size * 2);
+                }
+                candidates[size++] = ((long) filmId << 32) | overlap;
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+
+        Ranking.Top top = new Ranking.Top(limit);
+        for (int start = 0, end; start < size; start = end) {
+            int filmId = (int) (candidates[start] >>> 32);
+            long weight = 0;
+            for (end = start; end < size && (int) (candidates[end] >>> 32) == filmId; end++) {
+                weight += (int) candidates[end];
+            }
+            top.offer(weight, filmId);
+        }
+        return Arrays.stream(top.drainIds()).boxed().toList();
+    }
+
+    /**
+     * Лучшие соседи: ключи Ranking, счёт — число общих лайков.
+     */
+    private long[] similarUsers(int userId, int[] films) {
+        int[] reached = new int[64];
+        int size = 0;
+        for (int filmId : films) {
+            int[] users = likeIndex.users(filmId, filmSample);
+            if (size + users.length > reached.length) {
+                reached = Arrays.copyOf(reached, Math.max(reached.length * 2, size + users.length));
+            }
+            for (int other : users) {
+                if (other != userId) {
+                    reached[size++] = other;
+                }
+            }
+        }
+        Arrays.sort(reached, 0, size);
+
+        Ranking.Top top = new Ranking.Top(neighbours);
+        top.offerRuns(reached, size);
+        return top.drainKeys();
+    }
+}
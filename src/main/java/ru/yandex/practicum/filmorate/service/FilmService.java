@@ -1,18 +1,24 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.Enum.MpaRating;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.Enum.LikeResultStatus;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -21,17 +27,56 @@ public class FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final GenreService genreService;
+    private final MpaService mpaService;
+    private final PopularityIndex popularityIndex;
+    private final LikeIndex likeIndex;
 
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
+    // Размер порции при потоковой выдаче всех фильмов
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    // Лайк меняется в хранилище и в индексах под блокировкой пользователя: иначе лайк и его снятие,
+    // пришедшие одновременно, могут попасть в индексы в обратном порядке
+    private static final int LIKE_LOCK_STRIPES = 64;
+    private final ReentrantLock[] likeLocks = new ReentrantLock[LIKE_LOCK_STRIPES];
+
     public FilmService(
-            @Qualifier("filmDbStorage") FilmStorage filmStorage,
-            @Qualifier("userDbStorage") UserStorage userStorage,
-            GenreService genreService
+            @Qualifier("writeBehindFilmStorage") FilmStorage filmStorage,
+            @Qualifier("cachingUserStorage") UserStorage userStorage,
+            GenreService genreService,
+            MpaService mpaService,
+            PopularityIndex popularityIndex,
+            LikeIndex likeIndex
     ) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.genreService = genreService;
+        this.mpaService = mpaService;
+        this.popularityIndex = popularityIndex;
+        this.likeIndex = likeIndex;
+        for (int i = 0; i < LIKE_LOCK_STRIPES; i++) {
+            likeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Индексы строятся один раз при старте по лайкам из хранилища
+    @PostConstruct
+    public void initIndexes() {
+        initPopularityIndex();
+        initLikeIndex();
+    }
+
+    public void initPopularityIndex() {
+        popularityIndex.rebuild(filmStorage.getLikeCounts());
+        log.info("Индекс популярности построен");
+    }
+
+    public void initLikeIndex() {
+        Map<Integer, int[]> likes = new HashMap<>();
+        forEachFilm(0, film -> likes.put(film.getId(), film.getLikes().toIntArray()));
+        likeIndex.rebuild(likes);
+        log.info("Индекс лайков построен: {} фильмов", likes.size());
     }
 
     public Film create(Film film) {
@@ -40,6 +85,7 @@ public class FilmService {
         validateMpaAndGenres(film);
 
         Film created = filmStorage.create(film);
+        popularityIndex.addFilm(created.getId());
         log.info("Создан фильм: {} (id={})", created.getName(), created.getId());
         return created;
     }
@@ -49,8 +95,7 @@ public class FilmService {
         initializeDefaults(film);
         validateMpaAndGenres(film);
 
-        filmStorage.getById(film.getId())
-                .orElseThrow(() -> new NoSuchElementException("Фильм с таким id не найден"));
+        requireFilm(film.getId());
 
         Film updated = filmStorage.update(film);
         log.info("Обновлен фильм: {} (id={})", updated.getName(), updated.getId());
@@ -61,30 +106,149 @@ public class FilmService {
         return filmStorage.findAll();
     }
 
+    public List<Film> findPage(int afterId, int limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    /**
+     * Обходит фильмы с id больше afterId порциями по id, в памяти держится не больше одной порции.
+     */
+    public void forEachFilm(int afterId, Consumer<Film> action) {
+        List<Film> chunk;
+        do {
+            chunk = filmStorage.findPage(afterId, STREAM_CHUNK_SIZE);
+            chunk.forEach(action);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
     public Film getById(int id) {
         return filmStorage.getById(id)
                 .orElseThrow(() -> new NoSuchElementException("Фильм с таким id не найден"));
     }
 
     public void addLike(int filmId, int userId) {
-        getById(filmId);
-        userStorage.getById(userId)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь с таким id не найден"));
+        requireFilmAndUser(filmId, userId);
 
-        filmStorage.addLike(filmId, userId);
+        ReentrantLock lock = likeLocks[likeStripe(userId)];
+        lock.lock();
+        try {
+            if (filmStorage.addLike(filmId, userId)) {
+                popularityIndex.changeLikes(filmId, 1);
+                likeIndex.add(filmId, userId);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void removeLike(int filmId, int userId) {
-        getById(filmId);
-        userStorage.getById(userId)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь с таким id не найден"));
+        requireFilmAndUser(filmId, userId);
+
+        ReentrantLock lock = likeLocks[likeStripe(userId)];
+        lock.lock();
+        try {
+            if (filmStorage.removeLike(filmId, userId)) {
+                popularityIndex.changeLikes(filmId, -1);
+                likeIndex.remove(filmId, userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Пакет изменений лайков. Существование всех фильмов и пользователей проверяется
+     * двумя запросами на весь пакет, остальные изменения применяются одной пакетной записью.
+     * @return статус каждого изменения в порядке запроса
+     */
+    public List<LikeResultStatus> applyLikes(List<LikeChange> changes) {
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (LikeChange change : changes) {
+            filmIds.add(change.getFilmId());
+            userIds.add(change.getUserId());
+        }
+        Set<Integer> existingFilms = filmStorage.findExistingIds(filmIds);
+        Set<Integer> existingUsers = userStorage.findExistingIds(userIds);
 
-        filmStorage.removeLike(filmId, userId);
+        LikeResultStatus[] statuses = new LikeResultStatus[changes.size()];
+        List<LikeChange> valid = new ArrayList<>();
+        List<Integer> validPositions = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            LikeChange change = changes.get(i);
+            if (!existingFilms.contains(change.getFilmId())) {
+                statuses[i] = LikeResultStatus.FILM_NOT_FOUND;
+            } else if (!existingUsers.contains(change.getUserId())) {
+                statuses[i] = LikeResultStatus.USER_NOT_FOUND;
+            } else {
+                valid.add(change);
+                validPositions.add(i);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            // блокировки пользователей пакета берутся по возрастанию номера: пакеты не ждут друг друга по кругу
+            int[] stripes = valid.stream()
+                    .mapToInt(change -> likeStripe(change.getUserId()))
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            for (int stripe : stripes) {
+                likeLocks[stripe].lock();
+            }
+            try {
+                boolean[] applied = filmStorage.applyLikes(valid);
+                for (int i = 0; i < valid.size(); i++) {
+                    LikeChange change = valid.get(i);
+                    statuses[validPositions.get(i)] = applied[i]
+                            ? LikeResultStatus.APPLIED
+                            : LikeResultStatus.UNCHANGED;
+                    if (applied[i]) {
+                        boolean add = change.getOperation() == LikeOperation.ADD;
+                        popularityIndex.changeLikes(change.getFilmId(), add ? 1 : -1);
+                        if (add) {
+                            likeIndex.add(change.getFilmId(), change.getUserId());
+                        } else {
+                            likeIndex.remove(change.getFilmId(), change.getUserId());
+                        }
+                    }
+                }
+            } finally {
+                for (int i = stripes.length - 1; i >= 0; i--) {
+                    likeLocks[stripes[i]].unlock();
+                }
+            }
+        }
+
+        log.info("Пакет лайков: {} изменений, применено {}", changes.size(),
+                Arrays.stream(statuses).filter(s -> s == LikeResultStatus.APPLIED).count());
+        return Arrays.asList(statuses);
     }
 
     public List<Film> getPopularFilms(int count) {
         int limit = count > 0 ? count : 10;
-        return filmStorage.getPopularFilms(limit);
+        return filmStorage.getByIds(popularityIndex.top(limit));
+    }
+
+    private static int likeStripe(int userId) {
+        return Math.floorMod(userId, LIKE_LOCK_STRIPES);
+    }
+
+    // Для записей достаточно проверить существование, сущности целиком не загружаются
+    private void requireFilm(int filmId) {
+        if (!filmStorage.exists(filmId)) {
+            throw new NoSuchElementException("Фильм с таким id не найден");
+        }
+    }
+
+    private void requireFilmAndUser(int filmId, int userId) {
+        requireFilm(filmId);
+        if (!userStorage.exists(userId)) {
+            throw new NoSuchElementException("Пользователь с таким id не найден");
+        }
     }
 
     private void initializeDefaults(Film film) {
@@ -93,15 +257,15 @@ public class FilmService {
         }
     }
 
+    // MPA и жанры проверяются по справочникам в памяти, запросов к БД здесь нет
     private void validateMpaAndGenres(Film film) {
         //MPA
         if (film.getMpa() == null) {
             throw new ValidationException("MPA рейтинг обязателен");
         }
         try {
-            MpaRating rating = MpaRating.fromId(film.getMpa().getId());
-            film.setMpa(new Mpa(rating.getId(), rating.getNameWithDash()));
-        } catch (IllegalArgumentException e) {
+            film.setMpa(mpaService.getById(film.getMpa().getId()));
+        } catch (NoSuchElementException e) {
             throw new ValidationException("Неверный id MPA рейтинга: " + film.getMpa().getId());
         }
 
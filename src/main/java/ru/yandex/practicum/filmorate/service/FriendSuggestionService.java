@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.EntityCache;
+import ru.yandex.practicum.filmorate.util.Ranking;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рекомендации друзей: друзья друзей, ещё не добавленные пользователем, по числу общих друзей.
+ * <p>
+ * Обход ограничен в двух шагах. Первый шаг — не больше max-intermediaries друзей пользователя,
+ * второй — не больше fan-out-cap друзей у каждого из них: у «знаменитостей» с огромными списками
+ * берётся равномерная выборка, поэтому их вклад ограничен. Списки друзей загружаются пачками
+ * через UserStorage.getFriendIds; между пачками проверяется бюджет времени budget-ms,
+ * по его исчерпании ранжируется то, что успели обойти.
+ * <p>
+ * Ранжирование (до MAX_SUGGESTIONS id) кэшируется по пользователю. Запись зависит от друзей
+ * пользователя, через которых шёл обход: изменение дружбы пользователя сбрасывает и его запись,
+ * и записи всех, у кого он был промежуточным звеном.
+ */
+@Service
+@Slf4j
+public class FriendSuggestionService {
+
+    // наибольший limit запроса; столько кандидатов хранится в кэше
+    public static final int MAX_SUGGESTIONS = 100;
+
+    private static final int HOP_BATCH = 64;
+    // на одну запись кэша в среднем столько зависимостей, дальше таблица зависимостей сбрасывается
+    private static final int DEPENDENCIES_PER_ENTRY = 50;
+
+    private final UserStorage userStorage;
+    private final long budgetNanos;
+    private final int fanOutCap;
+    private final int maxIntermediaries;
+    private final int maxDependencies;
+
+    private final EntityCache<Integer, int[]> cache;
+    // промежуточный пользователь -> пользователи, чьи рекомендации прошли через него
+    private final Map<Integer, Set<Integer>> dependents = new ConcurrentHashMap<>();
+    private final AtomicInteger dependencies = new AtomicInteger();
+
+    public FriendSuggestionService(
+            @Qualifier("cachingUserStorage") UserStorage userStorage,
+            @Value("${filmorate.friends.suggestions.budget-ms:50}") long budgetMillis,
+            @Value("${filmorate.friends.suggestions.fan-out-cap:500}") int fanOutCap,
+            @Value("${filmorate.friends.suggestions.max-intermediaries:500}") int maxIntermediaries,
+            @Value("${filmorate.friends.suggestions.cache.max-size:10000}") int cacheMaxSize,
+            @Value("${filmorate.friends.suggestions.cache.ttl-ms:300000}") long cacheTtlMillis
+    ) {
+        this.userStorage = userStorage;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.fanOutCap = fanOutCap;
+        this.maxIntermediaries = maxIntermediaries;
+        this.maxDependencies = cacheMaxSize * DEPENDENCIES_PER_ENTRY;
+        this.cache = new EntityCache<>(cacheMaxSize, cacheTtlMillis);
+    }
+
+    /**
+     * Id рекомендованных пользователей, от большего числа общих друзей к меньшему,
+     * при равенстве — по возрастанию id. Существование userId проверяет вызывающий.
+     */
+    public List<Integer> suggest(int userId, int limit) {
+        int[] ranked = cache.get(userId, this::rank);
+        List<Integer> ids = new ArrayList<>(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length && i < limit; i++) {
+            ids.add(ranked[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Вызывается после изменения списка друзей userId.
+     */
+    public void invalidate(int userId) {
+        cache.invalidate(userId);
+        Set<Integer> users = dependents.remove(userId);
+        if (users != null) {
+            dependencies.addAndGet(-users.size());
+            users.forEach(cache::invalidate);
+        }
+    }
+
+    public EntityCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+
+    private int[] rank(int userId) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int[] friends = userStorage.getFriendIds(new int[]{userId})[0];
+        int[] intermediaries = Ranking.sample(friends, maxIntermediaries);
+        // зависимости регистрируются до обхода: изменение после этого момента сбросит запись
+        register(userId, intermediaries);
+
+        int[] reached = new int[Math.min(intermediaries.length, HOP_BATCH) * 16];
+        int size = 0;
+        int visited = 0;
+        while (visited < intermediaries.length) {
+            if (visited > 0 && System.nanoTime() > deadline) {
+                log.debug("Рекомендации друзей для {}: бюджет исчерпан, обойдено {} из {} друзей",
+                        userId, visited, intermediaries.length);
+                break;
+            }
+            int[] batch = Arrays.copyOfRange(intermediaries, visited,
+                    Math.min(visited + HOP_BATCH, intermediaries.length));
+            for (int[] secondHop : userStorage.getFriendIds(batch)) {
+                int[] capped = Ranking.sample(secondHop, fanOutCap);
+                if (size + capped.length > reached.length) {
+                    reached = Arrays.copyOf(reached, Math.max(reached.length * 2, size + capped.length));
+                }
+                for (int candidate : capped) {
+                    if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                        reached[size++] = candidate;
+                    }
+                }
+            }
+            visited += batch.length;
+        }
+        return top(reached, size);
+    }
+
+    /**
+     * Серии одинаковых id в отсортированном массиве — число общих друзей.
+     */
+    private static int[] top(int[] reached, int size) {
+        Arrays.sort(reached, 0, size);
+        Ranking.Top top = new Ranking.Top(MAX_SUGGESTIONS);
+        top.offerRuns(reached, size);
+        return top.drainIds();
+    }
+
+    private void register(int userId, int[] intermediaries) {
+        if (dependencies.get() + intermediaries.length > maxDependencies) {
+            // проще начать заново, чем выбирать, чьи зависимости забыть
+            log.debug("Таблица зависимостей рекомендаций переполнена ({}), кэш сброшен", dependencies.get());
+            dependents.clear();
+            dependencies.set(0);
+            cache.invalidateAll();
+        }
+        for (int intermediary : intermediaries) {
+            if (dependents.computeIfAbsent(intermediary, id -> ConcurrentHashMap.newKeySet()).add(userId)) {
+                dependencies.incrementAndGet();
+            }
+        }
+    }
+}
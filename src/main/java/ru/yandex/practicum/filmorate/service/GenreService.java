@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -12,16 +12,17 @@ import java.util.NoSuchElementException;
 @RequiredArgsConstructor
 public class GenreService {
 
-    private final GenreStorage genreStorage;
+    // жанры читаются из справочника в памяти, без запросов к БД
+    private final ReferenceDataRegistry referenceData;
 
     public List<Genre> findAll() {
-        return genreStorage.findAll();
+        return referenceData.getGenres();
     }
 
     public Genre getById(int id) {
-        return genreStorage.getById(id)
+        return referenceData.getGenre(id)
                 .orElseThrow(() ->
                         new NoSuchElementException("Жанр с id=" + id + " не найден")
                 );
     }
-}
\ No newline at end of file
+}
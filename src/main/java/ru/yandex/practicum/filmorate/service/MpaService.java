@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -12,15 +12,16 @@ import java.util.NoSuchElementException;
 @RequiredArgsConstructor
 public class MpaService {
 
-    private final MpaStorage mpaStorage;
+    // рейтинги читаются из справочника в памяти, без запросов к БД
+    private final ReferenceDataRegistry referenceData;
 
     public List<Mpa> findAll() {
-        return mpaStorage.getAll();
+        return referenceData.getAllMpa();
     }
 
     public Mpa getById(int id) {
         // Если MPA не найден - бросаем NoSuchElementException
-        return mpaStorage.getById(id)
+        return referenceData.getMpa(id)
                 .orElseThrow(() -> new NoSuchElementException("MPA с id=" + id + " не найден"));
     }
 }
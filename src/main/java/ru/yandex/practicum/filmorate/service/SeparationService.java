@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SeparationGraph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Степень разделения пользователей по графу SeparationGraph в памяти.
+ * <p>
+ * Граф — снимок связей: строится при старте и пересобирается по таймеру, если с прошлой
+ * сборки менялась дружба. Поэтому изменения видны в поиске с задержкой до rebuild-interval-ms.
+ * Поиск ограничен длиной пути max-depth и бюджетом времени budget-ms.
+ */
+@Service
+@Slf4j
+public class SeparationService {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final UserStorage userStorage;
+    private final long rebuildIntervalMillis;
+    private final int maxDepth;
+    private final long budgetNanos;
+
+    private volatile SeparationGraph graph = SeparationGraph.build(new int[0], new int[0], 0);
+    private volatile boolean changed;
+    private ScheduledExecutorService rebuilder;
+
+    public SeparationService(
+            @Qualifier("cachingUserStorage") UserStorage userStorage,
+            @Value("${filmorate.friends.distance.rebuild-interval-ms:60000}") long rebuildIntervalMillis,
+            @Value("${filmorate.friends.distance.max-depth:6}") int maxDepth,
+            @Value("${filmorate.friends.distance.budget-ms:100}") long budgetMillis
+    ) {
+        this.userStorage = userStorage;
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.maxDepth = maxDepth;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        rebuilder = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "separation-graph-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildIfChanged, rebuildIntervalMillis, rebuildIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    /**
+     * Вызывается после изменения дружбы; граф пересоберётся при следующем срабатывании таймера.
+     */
+    public void markChanged() {
+        changed = true;
+    }
+
+    /**
+     * Кратчайший путь между пользователями. Существование пользователей проверяет вызывающий.
+     */
+    public SeparationGraph.Result distance(int userId, int otherId, boolean withPath) {
+        return graph.shortestPath(userId, otherId, maxDepth, System.nanoTime() + budgetNanos, withPath);
+    }
+
+    /**
+     * Собирает граф заново по всем пользователям хранилища.
+     */
+    public void rebuild() {
+        // флаг сбрасывается до чтения: изменение во время сборки вызовет следующую
+        changed = false;
+        long startNanos = System.nanoTime();
+        SeparationGraph rebuilt = load();
+        graph = rebuilt;
+        log.info("Граф связей пересобран за {} мс: {} пользователей, {} связей",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), rebuilt.users(), rebuilt.links());
+    }
+
+    private void rebuildIfChanged() {
+        if (!changed) return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            changed = true;
+            log.error("Не удалось пересобрать граф связей", e);
+        }
+    }
+
+    private SeparationGraph load() {
+        int[] userIds = new int[1024];
+        int[] friendIds = new int[1024];
+        int edges = 0;
+
+        int afterId = 0;
+        List<User> page;
+        do {
+            page = userStorage.findPage(afterId, LOAD_PAGE_SIZE, false);
+            if (page.isEmpty()) break;
+
+            int[] ids = page.stream().mapToInt(User::getId).toArray();
+            int[][] friends = userStorage.getFriendIds(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (edges + friends[i].length > userIds.length) {
+                    int capacity = Math.max(userIds.length * 2, edges + friends[i].length);
+                    userIds = Arrays.copyOf(userIds, capacity);
+                    friendIds = Arrays.copyOf(friendIds, capacity);
+                }
+                for (int friendId : friends[i]) {
+                    userIds[edges] = ids[i];
+                    friendIds[edges] = friendId;
+                    edges++;
+                }
+            }
+            afterId = ids[ids.length - 1];
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        return SeparationGraph.build(userIds, friendIds, edges);
+    }
+}
@@ -6,20 +6,32 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SeparationGraph;
+import ru.yandex.practicum.filmorate.util.SortedIntersection;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
 public class UserService {
 
     private final UserStorage userStorage;
+    private final FriendSuggestionService friendSuggestions;
+    private final SeparationService separation;
+
+    // Размер порции при потоковой выдаче всех пользователей
+    private static final int STREAM_CHUNK_SIZE = 500;
 
     // добавлен явный конструктор с @Qualifier
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("cachingUserStorage") UserStorage userStorage,
+                       FriendSuggestionService friendSuggestions,
+                       SeparationService separation) {
         this.userStorage = userStorage;
+        this.friendSuggestions = friendSuggestions;
+        this.separation = separation;
     }
 
     // Создание пользователя
@@ -34,8 +46,9 @@ public class UserService {
         validateBusinessRules(user);
         applyDefaultName(user);
 
-        userStorage.getById(user.getId())
-                .orElseThrow(() -> new NoSuchElementException("Пользователь с таким id не найден"));
+        if (!userStorage.exists(user.getId())) {
+            throw new NoSuchElementException("Пользователь с таким id не найден");
+        }
 
         return userStorage.update(user);
     }
@@ -44,6 +57,29 @@ public class UserService {
         return userStorage.findAll();
     }
 
+    // withFriends = false — без загрузки карты друзей каждого пользователя
+    public List<User> findAll(boolean withFriends) {
+        return userStorage.findAll(withFriends);
+    }
+
+    public List<User> findPage(int afterId, int limit, boolean withFriends) {
+        return userStorage.findPage(afterId, limit, withFriends);
+    }
+
+    /**
+     * Обходит пользователей с id больше afterId порциями по id, в памяти держится не больше одной порции.
+     */
+    public void forEachUser(int afterId, boolean withFriends, Consumer<User> action) {
+        List<User> chunk;
+        do {
+            chunk = userStorage.findPage(afterId, STREAM_CHUNK_SIZE, withFriends);
+            chunk.forEach(action);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
     public User getById(int id) {
         return userStorage.getById(id)
                 .orElseThrow(() -> new NoSuchElementException("Пользователь с таким id не найден"));
@@ -51,41 +87,107 @@ public class UserService {
 
     // Добавление друга (одностороннее)
     public void addFriend(int userId, int friendId) {
-        userStorage.getById(userId)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь не найден"));
-        userStorage.getById(friendId)
-                .orElseThrow(() -> new NoSuchElementException("Друг не найден"));
+        requireUserAndFriend(userId, friendId);
 
         userStorage.addFriend(userId, friendId);
+        friendSuggestions.invalidate(userId);
+        separation.markChanged();
     }
 
     // Удаление друга
     public void removeFriend(int userId, int friendId) {
-        userStorage.getById(userId)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь не найден"));
-        userStorage.getById(friendId)
-                .orElseThrow(() -> new NoSuchElementException("Друг не найден"));
+        requireUserAndFriend(userId, friendId);
 
         userStorage.removeFriend(userId, friendId);
+        friendSuggestions.invalidate(userId);
+        separation.markChanged();
     }
 
     // Список друзей пользователя
     public List<User> getFriends(int userId) {
-        userStorage.getById(userId)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь не найден"));
+        return getFriends(userId, true);
+    }
+
+    public List<User> getFriends(int userId, boolean withFriends) {
+        if (!userStorage.exists(userId)) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
 
-        return userStorage.getFriends(userId);
+        return userStorage.getFriends(userId, withFriends);
     }
 
     // Общие друзья двух пользователей
     public List<User> getCommonFriends(int userId, int otherId) {
+        return getCommonFriends(userId, otherId, true);
+    }
+
+    public List<User> getCommonFriends(int userId, int otherId, boolean withFriends) {
         // Проверка существования обоих пользователей
-        userStorage.getById(userId)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь не найден"));
-        userStorage.getById(otherId)
-                .orElseThrow(() -> new NoSuchElementException("Друг не найден"));
+        requireUserAndFriend(userId, otherId);
+
+        return userStorage.getCommonFriends(userId, otherId, withFriends);
+    }
+
+    /**
+     * Рекомендации друзей по числу общих друзей (см. FriendSuggestionService), не больше limit.
+     */
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        if (!userStorage.exists(userId)) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
 
-        return userStorage.getCommonFriends(userId, otherId);
+        return userStorage.getByIds(friendSuggestions.suggest(userId, limit), false);
+    }
+
+    /**
+     * Степень разделения двух пользователей по связям дружбы (см. SeparationService).
+     */
+    public SeparationGraph.Result getDistance(int userId, int otherId, boolean withPath) {
+        if (!userStorage.existsAll(userId, otherId)) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+
+        return separation.distance(userId, otherId, withPath);
+    }
+
+    /**
+     * Число общих друзей пользователя с каждым из otherIds. Списки друзей всех пользователей
+     * загружаются одним вызовом хранилища, пересечения считает SortedIntersection.countEach.
+     * @return otherId -> число общих друзей, в порядке otherIds без повторов
+     */
+    public Map<Integer, Integer> getCommonFriendCounts(int userId, List<Integer> otherIds) {
+        int[] others = otherIds.stream().mapToInt(Integer::intValue).distinct().toArray();
+        int[] all = IntStream.concat(IntStream.of(userId), IntStream.of(others)).toArray();
+        Set<Integer> existing = userStorage.findExistingIds(Arrays.stream(all).boxed().toList());
+        if (!existing.contains(userId)) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+        List<Integer> missing = Arrays.stream(others).filter(id -> !existing.contains(id)).boxed().toList();
+        if (!missing.isEmpty()) {
+            throw new NoSuchElementException("Пользователи не найдены: " + missing);
+        }
+
+        int[][] friendIds = userStorage.getFriendIds(all);
+        int[] counts = SortedIntersection.countEach(friendIds[0], Arrays.copyOfRange(friendIds, 1, friendIds.length));
+
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < others.length; i++) {
+            result.put(others[i], counts[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Оба пользователя проверяются одним запросом; второй запрос нужен,
+     * только чтобы выбрать сообщение об ошибке.
+     */
+    private void requireUserAndFriend(int userId, int friendId) {
+        if (userStorage.existsAll(userId, friendId)) return;
+
+        if (!userStorage.exists(userId)) {
+            throw new NoSuchElementException("Пользователь не найден");
+        }
+        throw new NoSuchElementException("Друг не найден");
     }
 
     /**
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.util.EntityCache;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш фильмов по id поверх хранилища, выбранного filmorate.storage.mode.
+ * Повторный getById/getByIds не обращается к БД, пока запись не вытеснена или не устарела.
+ * Любая запись по фильму (update, лайк) сбрасывает его из кэша.
+ * Списочные запросы (findAll, популярные) идут напрямую в хранилище.
+ * <p>
+ * Запись кэша — общий объект, поэтому наружу отдаются его копии (Film.copy): вызывающий может
+ * менять полученный фильм, не портя кэш и данные хранилища в памяти.
+ */
+@Component
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final EntityCache<Integer, Film> cache;
+
+    public CachingFilmStorage(
+            @Qualifier("filmStorageBackend") FilmStorage delegate,
+            @Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+            @Value("${filmorate.cache.films.ttl-ms:300000}") long ttlMillis
+    ) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maxSize, ttlMillis);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            cache.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Optional<Film> getById(int id) {
+        return Optional.ofNullable(cache.get(id, key -> delegate.getById(key).orElse(null))).map(Film::copy);
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    /**
+     * Запись в кэше отвечает на вопрос о существовании без БД; иначе — лёгкий запрос хранилища.
+     */
+    @Override
+    public boolean exists(int id) {
+        return cache.contains(id) || delegate.exists(id);
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        int[] unknown = Arrays.stream(ids).filter(id -> !cache.contains(id)).toArray();
+        return unknown.length == 0 || delegate.existsAll(unknown);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        return cache.getAll(ids, missing -> delegate.getByIds(missing).stream()
+                        .collect(Collectors.toMap(Film::getId, Function.identity())))
+                .stream()
+                .map(Film::copy)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        return delegate.hasLike(filmId, userId);
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeChange> changes) {
+        try {
+            return delegate.applyLikes(changes);
+        } finally {
+            changes.forEach(change -> cache.invalidate(change.getFilmId()));
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        return delegate.getLikeCounts();
+    }
+
+    public EntityCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+}
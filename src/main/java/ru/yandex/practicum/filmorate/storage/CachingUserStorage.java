@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.EntityCache;
+
+import java.util.*;
+
+/**
+ * Кэш пользователей по id поверх хранилища, выбранного filmorate.storage.mode
+ * (через граф дружбы FriendGraphUserStorage).
+ * Пользователь хранится вместе с картой друзей, поэтому update и любые
+ * изменения дружбы сбрасывают запись того, чей список друзей изменился.
+ * Наружу отдаются копии записей (User.copy), как в CachingFilmStorage.
+ */
+@Component
+public class CachingUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final EntityCache<Integer, User> cache;
+
+    public CachingUserStorage(
+            @Qualifier("friendGraphUserStorage") UserStorage delegate,
+            @Value("${filmorate.cache.users.max-size:10000}") int maxSize,
+            @Value("${filmorate.cache.users.ttl-ms:300000}") long ttlMillis
+    ) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maxSize, ttlMillis);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public User update(User user) {
+        try {
+            return delegate.update(user);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public Optional<User> getById(int id) {
+        return Optional.ofNullable(cache.get(id, key -> delegate.getById(key).orElse(null))).map(User::copy);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit, boolean withFriends) {
+        return delegate.findPage(afterId, limit, withFriends);
+    }
+
+    @Override
+    public List<User> getByIds(List<Integer> ids, boolean withFriends) {
+        return delegate.getByIds(ids, withFriends);
+    }
+
+    /**
+     * Запись в кэше отвечает на вопрос о существовании без БД; иначе — лёгкий запрос хранилища.
+     */
+    @Override
+    public boolean exists(int id) {
+        return cache.contains(id) || delegate.exists(id);
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        int[] unknown = Arrays.stream(ids).filter(id -> !cache.contains(id)).toArray();
+        return unknown.length == 0 || delegate.existsAll(unknown);
+    }
+
+    @Override
+    public List<User> findAll(boolean withFriends) {
+        return delegate.findAll(withFriends);
+    }
+
+    // Дружба односторонняя: меняется только карта друзей userId
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        try {
+            delegate.addFriend(userId, friendId);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public void confirmFriend(int userId, int friendId) {
+        try {
+            delegate.confirmFriend(userId, friendId);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public void removeFriend(int userId, int friendId) {
+        try {
+            delegate.removeFriend(userId, friendId);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return delegate.getFriends(userId);
+    }
+
+    @Override
+    public List<User> getFriends(int userId, boolean withFriends) {
+        return delegate.getFriends(userId, withFriends);
+    }
+
+    @Override
+    public int[][] getFriendIds(int[] userIds) {
+        return delegate.getFriendIds(userIds);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        return delegate.getCommonFriends(userId, otherId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId, boolean withFriends) {
+        return delegate.getCommonFriends(userId, otherId, withFriends);
+    }
+
+    public EntityCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Размер пула соединений по числу ядер и числу потоков обработки запросов.
+ * Включается свойством filmorate.datasource.pool.auto-size (профиль prod).
+ * <p>
+ * Встроенная H2 выполняет запросы в потоках приложения, поэтому соединений больше, чем
+ * cores * per-core + spare, не прибавляют пропускной способности, а только увеличивают
+ * конкуренцию за блокировки MVStore. Больше потоков Tomcat соединений тоже не нужно.
+ * Пул фиксированный (minimumIdle = maximumPoolSize), чтобы под нагрузкой не открывать соединения.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.datasource.pool.auto-size", havingValue = "true")
+@Slf4j
+public class ConnectionPoolSizer implements BeanPostProcessor {
+
+    private final int perCore;
+    private final int spare;
+    private final int requestThreads;
+
+    public ConnectionPoolSizer(
+            @Value("${filmorate.datasource.pool.per-core:2}") int perCore,
+            @Value("${filmorate.datasource.pool.spare:1}") int spare,
+            @Value("${server.tomcat.threads.max:200}") int requestThreads
+    ) {
+        this.perCore = perCore;
+        this.spare = spare;
+        this.requestThreads = requestThreads;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource) {
+            int size = poolSize(Runtime.getRuntime().availableProcessors());
+            dataSource.setMaximumPoolSize(size);
+            dataSource.setMinimumIdle(size);
+            log.info("Пул соединений {}: {} соединений", dataSource.getPoolName(), size);
+        }
+        return bean;
+    }
+
+    int poolSize(int cores) {
+        return Math.max(1, Math.min(cores * perCore + spare, requestThreads));
+    }
+}
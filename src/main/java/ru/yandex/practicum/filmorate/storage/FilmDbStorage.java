@@ -1,14 +1,22 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.sql.PreparedStatement;
@@ -17,11 +25,16 @@ import java.sql.SQLException;
 import java.util.*;
 
 @Component
+@ConditionalOnExpression("'${filmorate.storage.mode:h2-file}'.startsWith('h2')")
+@Qualifier("filmStorageBackend")
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
+    // MPA и жанры подставляются из справочника в памяти, а не джойнами
+    private final ReferenceDataRegistry referenceData;
+
     // SQL запросы
 
     private static final String INSERT_FILM = """
@@ -35,54 +48,83 @@ public class FilmDbStorage implements FilmStorage {
         WHERE id = ?
         """;
 
-    private static final String SELECT_FILM_BY_ID = """
-        SELECT id, name, description, release_date, duration, mpa_rating_id
-        FROM films
-        WHERE id = ?
-        """;
-
-    private static final String SELECT_ALL_FILMS = """
-        SELECT id, name, description, release_date, duration, mpa_rating_id
-        FROM films
-        """;
-
-    private static final String SELECT_POPULAR_FILMS = """
+    private static final String SELECT_FILMS = """
         SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_rating_id
         FROM films f
-        LEFT JOIN film_likes fl ON f.id = fl.film_id
-        GROUP BY f.id
-        ORDER BY COUNT(fl.user_id) DESC
-        LIMIT ?
         """;
 
+    private static final String SELECT_FILM_BY_ID = SELECT_FILMS + "WHERE f.id = ?";
+
+    private static final String SELECT_ALL_FILMS = SELECT_FILMS;
+
+    // Keyset-пагинация по первичному ключу: без OFFSET, страница читается по индексу
+    private static final String SELECT_FILMS_PAGE =
+            SELECT_FILMS + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
+
+    private static final String SELECT_FILMS_BY_IDS = SELECT_FILMS + "WHERE f.id = ANY(?)";
+
+    private static final String SELECT_FILM_EXISTS =
+            "SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)";
+
+    private static final String COUNT_FILMS_BY_IDS =
+            "SELECT COUNT(*) FROM films WHERE id = ANY(?)";
+
+    private static final String SELECT_EXISTING_FILM_IDS =
+            "SELECT id FROM films WHERE id = ANY(?)";
+
+    private static final String SELECT_LIKE_COUNTS =
+            "SELECT id, likes_count FROM films";
+
+    // Топ читается по индексу films_likes_count_idx (likes_count DESC, id) без агрегации film_likes
+    private static final String SELECT_POPULAR_FILMS =
+            SELECT_FILMS + "ORDER BY f.likes_count DESC, f.id LIMIT ?";
+
     private static final String INSERT_LIKE =
-            "MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)";
+            "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+
+    // Счётчик обновлённых строк (0 или 1) показывает, был ли лайк добавлен
+    private static final String INSERT_LIKE_IF_ABSENT = """
+        INSERT INTO film_likes (film_id, user_id)
+        SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)
+        """;
+
+    static final String SELECT_LIKE_EXISTS =
+            "SELECT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
 
     private static final String DELETE_LIKE =
             "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
 
-    private static final String DELETE_FILM_GENRES =
-            "DELETE FROM film_genres WHERE film_id = ?";
+    private static final String UPDATE_LIKES_COUNT =
+            "UPDATE films SET likes_count = likes_count + ? WHERE id = ?";
+
+    private static final String SELECT_FILM_GENRE_IDS =
+            "SELECT genre_id FROM film_genres WHERE film_id = ?";
+
+    private static final String DELETE_FILM_GENRE =
+            "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
 
     private static final String INSERT_FILM_GENRE =
             "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
 
-    private static final String SELECT_MPA_BY_ID =
-            "SELECT id, name FROM mpa WHERE id = ?";
+    // Связанные данные загружаются одним запросом на весь набор id (film_id = ANY(массив))
 
-    private static final String SELECT_GENRES_BY_FILM_ID = """
-        SELECT g.id, g.name
-        FROM genres g
-        JOIN film_genres fg ON g.id = fg.genre_id
-        WHERE fg.film_id = ?
+    static final String SELECT_GENRES_BY_FILM_IDS = """
+        SELECT film_id, genre_id
+        FROM film_genres
+        WHERE film_id = ANY(?)
+        ORDER BY film_id, genre_id
         """;
 
-    private static final String SELECT_LIKES_BY_FILM_ID =
-            "SELECT user_id FROM film_likes WHERE film_id = ?";
+    static final String SELECT_LIKES_BY_FILM_IDS =
+            "SELECT film_id, user_id FROM film_likes WHERE film_id = ANY(?)";
 
     // CRUD
 
+    /**
+     * Фильм и его жанры записываются в одной транзакции
+     */
     @Override
+    @Transactional
     public Film create(Film film) {
         if (film.getMpa() == null) {
             throw new ValidationException("MPA рейтинг обязателен");
@@ -102,15 +144,16 @@ public class FilmDbStorage implements FilmStorage {
 
         film.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
 
-        updateFilmGenres(film.getId(), film.getGenres());
+        insertFilmGenres(film.getId(), genreIds(film.getGenres()));
 
         return getById(film.getId())
                 .orElseThrow(() -> new NotFoundException("Фильм после создания не найден"));
     }
 
     @Override
+    @Transactional
     public Film update(Film film) {
-        if (getById(film.getId()).isEmpty()) {
+        if (!exists(film.getId())) {
             throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
         }
 
@@ -137,46 +180,261 @@ public class FilmDbStorage implements FilmStorage {
                 (rs, rn) -> mapRowToFilm(rs),
                 id
         );
-        return films.stream().findFirst();
+        return hydrate(films).stream().findFirst();
     }
 
     @Override
     public List<Film> findAll() {
-        return jdbcTemplate.query(
+        return hydrate(jdbcTemplate.query(
                 SELECT_ALL_FILMS,
                 (rs, rn) -> mapRowToFilm(rs)
-        );
+        ));
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return hydrate(jdbcTemplate.query(
+                SELECT_FILMS_PAGE,
+                (rs, rn) -> mapRowToFilm(rs),
+                afterId,
+                limit
+        ));
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        jdbcTemplate.update(INSERT_LIKE, filmId, userId);
+    public boolean exists(int id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_FILM_EXISTS, Boolean.class, id));
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
-        jdbcTemplate.update(DELETE_LIKE, filmId, userId);
+    public boolean existsAll(int... ids) {
+        Integer[] distinct = Arrays.stream(ids).distinct().boxed().toArray(Integer[]::new);
+        if (distinct.length == 0) return true;
+
+        Integer found = jdbcTemplate.queryForObject(COUNT_FILMS_BY_IDS, Integer.class, (Object) distinct);
+        return found != null && found == distinct.length;
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) return Set.of();
+
+        return new HashSet<>(jdbcTemplate.queryForList(
+                SELECT_EXISTING_FILM_IDS,
+                Integer.class,
+                (Object) ids.toArray(new Integer[0])
+        ));
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : hydrate(jdbcTemplate.query(
+                SELECT_FILMS_BY_IDS,
+                (rs, rn) -> mapRowToFilm(rs),
+                (Object) ids.toArray(new Integer[0])
+        ))) {
+            filmsById.put(film.getId(), film);
+        }
+
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Лайк и счетчик likes_count меняются в одной транзакции.
+     * Повторный лайк ничего не меняет.
+     */
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        try {
+            jdbcTemplate.update(INSERT_LIKE, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        jdbcTemplate.update(UPDATE_LIKES_COUNT, 1, filmId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(int filmId, int userId) {
+        if (jdbcTemplate.update(DELETE_LIKE, filmId, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(UPDATE_LIKES_COUNT, -1, filmId);
+        return true;
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_LIKE_EXISTS, Boolean.class, filmId, userId));
+    }
+
+    /**
+     * Подряд идущие изменения с одной операцией отправляются одним JDBC-пакетом
+     * (порядок изменений сохраняется), затем likes_count правится пакетом по фильмам.
+     * Всё выполняется в одной транзакции.
+     */
+    @Override
+    @Transactional
+    public boolean[] applyLikes(List<LikeChange> changes) {
+        boolean[] applied = new boolean[changes.size()];
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+
+        int start = 0;
+        while (start < changes.size()) {
+            LikeOperation operation = changes.get(start).getOperation();
+            int end = start;
+            while (end < changes.size() && changes.get(end).getOperation() == operation) {
+                end++;
+            }
+
+            List<LikeChange> run = changes.subList(start, end);
+            int[] counts = operation == LikeOperation.ADD
+                    ? jdbcTemplate.batchUpdate(INSERT_LIKE_IF_ABSENT, likeSetter(run, true))
+                    : jdbcTemplate.batchUpdate(DELETE_LIKE, likeSetter(run, false));
+
+            for (int i = 0; i < run.size(); i++) {
+                if (counts[i] > 0) {
+                    applied[start + i] = true;
+                    deltas.merge(run.get(i).getFilmId(), operation == LikeOperation.ADD ? 1 : -1, Integer::sum);
+                }
+            }
+            start = end;
+        }
+
+        List<Map.Entry<Integer, Integer>> changed = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .toList();
+        if (!changed.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_LIKES_COUNT, changed, changed.size(), (ps, e) -> {
+                ps.setInt(1, e.getValue());
+                ps.setInt(2, e.getKey());
+            });
+        }
+        return applied;
+    }
+
+    private static BatchPreparedStatementSetter likeSetter(List<LikeChange> run, boolean withExistsCheck) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                LikeChange change = run.get(i);
+                ps.setInt(1, change.getFilmId());
+                ps.setInt(2, change.getUserId());
+                if (withExistsCheck) {
+                    ps.setInt(3, change.getFilmId());
+                    ps.setInt(4, change.getUserId());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return run.size();
+            }
+        };
     }
 
     @Override
     public List<Film> getPopularFilms(int count) {
-        return jdbcTemplate.query(
+        return hydrate(jdbcTemplate.query(
                 SELECT_POPULAR_FILMS,
                 (rs, rn) -> mapRowToFilm(rs),
                 count
+        ));
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(
+                SELECT_LIKE_COUNTS,
+                (RowCallbackHandler) rs -> counts.put(rs.getInt("id"), rs.getInt("likes_count"))
         );
+        return counts;
     }
 
+    /**
+     * Меняет только разницу между текущими и новыми жанрами:
+     * лишние связи удаляются, недостающие добавляются, каждое действие одним пакетом.
+     */
     private void updateFilmGenres(int filmId, Set<Genre> genres) {
-        jdbcTemplate.update(DELETE_FILM_GENRES, filmId);
+        Set<Integer> target = genreIds(genres);
+        Set<Integer> current = new HashSet<>(
+                jdbcTemplate.queryForList(SELECT_FILM_GENRE_IDS, Integer.class, filmId));
+
+        List<Integer> toDelete = current.stream()
+                .filter(id -> !target.contains(id))
+                .toList();
+        Set<Integer> toInsert = new LinkedHashSet<>(target);
+        toInsert.removeAll(current);
+
+        batchFilmGenres(DELETE_FILM_GENRE, filmId, toDelete);
+        insertFilmGenres(filmId, toInsert);
+    }
 
-        if (genres == null || genres.isEmpty()) return;
+    private void insertFilmGenres(int filmId, Collection<Integer> genreIds) {
+        batchFilmGenres(INSERT_FILM_GENRE, filmId, genreIds);
+    }
 
-        for (Genre genre : genres) {
-            jdbcTemplate.update(INSERT_FILM_GENRE, filmId, genre.getId());
+    private void batchFilmGenres(String sql, int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
+    private static Set<Integer> genreIds(Set<Genre> genres) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        if (genres != null) {
+            for (Genre genre : genres) {
+                ids.add(genre.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Догружает жанры и лайки для всего списка фильмов.
+     * Количество запросов не зависит от размера списка: по одному на жанры и на лайки.
+     */
+    private List<Film> hydrate(List<Film> films) {
+        if (films.isEmpty()) return films;
+
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
         }
+        Integer[] ids = filmsById.keySet().toArray(new Integer[0]);
+
+        jdbcTemplate.query(
+                SELECT_GENRES_BY_FILM_IDS,
+                (RowCallbackHandler) rs -> filmsById.get(rs.getInt("film_id")).getGenres()
+                        .add(genreOf(rs.getInt("genre_id"))),
+                (Object) ids
+        );
+
+        jdbcTemplate.query(
+                SELECT_LIKES_BY_FILM_IDS,
+                (RowCallbackHandler) rs -> filmsById.get(rs.getInt("film_id")).getLikes()
+                        .add(rs.getInt("user_id")),
+                (Object) ids
+        );
+
+        return films;
     }
 
+    /**
+     * Маппинг строки films без связанных коллекций; MPA берётся из справочника
+     */
     private Film mapRowToFilm(ResultSet rs) throws SQLException {
         Film film = new Film();
         film.setId(rs.getInt("id"));
@@ -189,28 +447,15 @@ public class FilmDbStorage implements FilmStorage {
 
         film.setDuration(rs.getInt("duration"));
 
-        Integer mpaId = rs.getInt("mpa_rating_id");
-        Mpa mpa = jdbcTemplate.queryForObject(
-                SELECT_MPA_BY_ID,
-                (mRs, rn) -> new Mpa(mRs.getInt("id"), mRs.getString("name")),
-                mpaId
-        );
-        film.setMpa(mpa);
-
-        List<Genre> genreList = jdbcTemplate.query(
-                SELECT_GENRES_BY_FILM_ID,
-                (gRs, rn) -> new Genre(gRs.getInt("id"), gRs.getString("name")),
-                film.getId()
-        );
-        film.setGenres(new LinkedHashSet<>(genreList));
-
-        List<Integer> likes = jdbcTemplate.query(
-                SELECT_LIKES_BY_FILM_ID,
-                (lRs, rn) -> lRs.getInt("user_id"),
-                film.getId()
-        );
-        film.setLikes(new HashSet<>(likes));
+        int mpaId = rs.getInt("mpa_rating_id");
+        if (!rs.wasNull()) {
+            film.setMpa(referenceData.getMpa(mpaId).orElseGet(() -> new Mpa(mpaId, null)));
+        }
 
         return film;
     }
+
+    private Genre genreOf(int genreId) {
+        return referenceData.getGenre(genreId).orElseGet(() -> new Genre(genreId, null));
+    }
 }
@@ -1,8 +1,9 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
-import java.util.List;
-import java.util.Optional;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+
+import java.util.*;
 
 public interface FilmStorage {
 
@@ -14,9 +15,57 @@ public interface FilmStorage {
 
     List<Film> findAll();
 
-    void addLike(int filmId, int userId);
+    /**
+     * Страница фильмов по ключу: id больше afterId, по возрастанию id, не больше limit штук.
+     * Следующая страница запрашивается с afterId = id последнего фильма.
+     */
+    List<Film> findPage(int afterId, int limit);
+
+    /**
+     * Проверка существования без загрузки фильма, жанров и лайков.
+     */
+    boolean exists(int id);
+
+    /**
+     * @return true, если существуют все перечисленные фильмы (повторы id допустимы)
+     */
+    boolean existsAll(int... ids);
+
+    /**
+     * Id из переданных, для которых фильм существует; проверка одним запросом.
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
+    /**
+     * Фильмы по списку id в том же порядке; отсутствующие id пропускаются.
+     */
+    List<Film> getByIds(List<Integer> ids);
 
-    void removeLike(int filmId, int userId);
+    /**
+     * @return true, если лайк добавлен (его ещё не было)
+     */
+    boolean addLike(int filmId, int userId);
+
+    /**
+     * @return true, если лайк был и удалён
+     */
+    boolean removeLike(int filmId, int userId);
+
+    /**
+     * Стоит ли лайк пользователя у фильма; без загрузки фильма.
+     */
+    boolean hasLike(int filmId, int userId);
+
+    /**
+     * Применяет изменения лайков по порядку (фильмы и пользователи должны существовать).
+     * @return для каждого изменения true, если оно что-то поменяло
+     */
+    boolean[] applyLikes(List<LikeChange> changes);
 
     List<Film> getPopularFilms(int count);
+
+    /**
+     * Количество лайков каждого фильма (id фильма -> лайки), в том числе фильмов без лайков.
+     */
+    Map<Integer, Integer> getLikeCounts();
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.FriendGraph;
+import ru.yandex.practicum.filmorate.util.IntEnumMap;
+import ru.yandex.practicum.filmorate.util.SortedIntersection;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Списки друзей и общих друзей из графа дружбы в памяти (FriendGraph) поверх хранилища пользователей.
+ * Включается свойством filmorate.friends.graph.enabled; в выключенном режиме вызовы просто передаются дальше.
+ * <p>
+ * Граф строится при старте по всем пользователям хранилища. Изменения дружбы сначала пишутся
+ * в хранилище, затем в слой изменений графа; изменения одного пользователя упорядочены блокировкой.
+ * Id друзей берутся из графа, данные пользователей — одним запросом getByIds, карты друзей — снова из графа.
+ * Результат собирается в новых экземплярах User: хранилище в памяти отдаёт свои живые объекты,
+ * и запись в них карты из графа затёрла бы дружбу, добавленную параллельно.
+ * Общие друзья — пересечение отсортированных строк графа (SortedIntersection).
+ * Слой изменений переносится в массивы графа по таймеру и при накоплении compact-threshold изменений.
+ * Граф знает только изменения, прошедшие через этот экземпляр приложения.
+ */
+@Component
+@Slf4j
+public class FriendGraphUserStorage implements UserStorage {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserStorage delegate;
+    private final boolean enabled;
+    private final long compactIntervalMillis;
+    private final int compactThreshold;
+
+    private final Object[] userLocks = new Object[LOCK_STRIPES];
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    private volatile FriendGraph graph = new FriendGraph();
+    private ScheduledExecutorService compactor;
+
+    public FriendGraphUserStorage(
+            @Qualifier("userStorageBackend") UserStorage delegate,
+            @Value("${filmorate.friends.graph.enabled:false}") boolean enabled,
+            @Value("${filmorate.friends.graph.compact-interval-ms:60000}") long compactIntervalMillis,
+            @Value("${filmorate.friends.graph.compact-threshold:50000}") int compactThreshold
+    ) {
+        this.delegate = delegate;
+        this.enabled = enabled;
+        this.compactIntervalMillis = compactIntervalMillis;
+        this.compactThreshold = compactThreshold;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+
+        long startNanos = System.nanoTime();
+        graph = load();
+        log.info("Граф дружбы загружен за {} мс: {}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                graph.stats());
+
+        compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "friend-graph-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, compactIntervalMillis, compactIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    /**
+     * Переносит слой изменений в массивы графа.
+     * @return число перенесённых изменений
+     */
+    public int compact() {
+        return graph.compact();
+    }
+
+    public FriendGraph.Stats getGraphStats() {
+        return graph.stats();
+    }
+
+    // ===== Дружба =====
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        if (!enabled) {
+            delegate.addFriend(userId, friendId);
+            return;
+        }
+        synchronized (lockFor(userId)) {
+            delegate.addFriend(userId, friendId);
+            graph.put(userId, friendId, FriendshipStatus.REQUESTED);
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public void confirmFriend(int userId, int friendId) {
+        if (!enabled) {
+            delegate.confirmFriend(userId, friendId);
+            return;
+        }
+        synchronized (lockFor(userId)) {
+            delegate.confirmFriend(userId, friendId);
+            graph.confirm(userId, friendId);
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public void removeFriend(int userId, int friendId) {
+        if (!enabled) {
+            delegate.removeFriend(userId, friendId);
+            return;
+        }
+        synchronized (lockFor(userId)) {
+            delegate.removeFriend(userId, friendId);
+            graph.remove(userId, friendId);
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return getFriends(userId, true);
+    }
+
+    @Override
+    public List<User> getFriends(int userId, boolean withFriends) {
+        if (!enabled) return delegate.getFriends(userId, withFriends);
+
+        return users(graph.friends(userId), withFriends);
+    }
+
+    @Override
+    public int[][] getFriendIds(int[] userIds) {
+        if (!enabled) return delegate.getFriendIds(userIds);
+
+        FriendGraph current = graph;
+        int[][] friendIds = new int[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            friendIds[i] = current.friends(userIds[i]);
+        }
+        return friendIds;
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId) {
+        return getCommonFriends(userId, otherId, true);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId, boolean withFriends) {
+        if (!enabled) return delegate.getCommonFriends(userId, otherId, withFriends);
+
+        FriendGraph current = graph;
+        return users(SortedIntersection.intersect(current.friends(userId), current.friends(otherId)), withFriends);
+    }
+
+    private List<User> users(int[] ids, boolean withFriends) {
+        if (ids.length == 0) return new ArrayList<>();
+
+        List<Integer> boxed = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            boxed.add(id);
+        }
+        FriendGraph current = graph;
+        List<User> users = new ArrayList<>(ids.length);
+        for (User user : delegate.getByIds(boxed, false)) {
+            users.add(user.copyWithFriends(withFriends
+                    ? current.friendMap(user.getId())
+                    : new IntEnumMap<>(FriendshipStatus.class)));
+        }
+        return users;
+    }
+
+    private Object lockFor(int userId) {
+        return userLocks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    private void compactIfNeeded() {
+        if (graph.pendingChanges() < compactThreshold || !compactionScheduled.compareAndSet(false, true)) return;
+
+        compactor.execute(() -> {
+            try {
+                compactQuietly();
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    private void compactQuietly() {
+        try {
+            int folded = graph.compact();
+            if (folded > 0) {
+                log.debug("Граф дружбы сжат: перенесено {} изменений, {}", folded, graph.stats());
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось сжать граф дружбы", e);
+        }
+    }
+
+    private FriendGraph load() {
+        int[] userIds = new int[1024];
+        int[] friendIds = new int[1024];
+        FriendshipStatus[] statuses = new FriendshipStatus[1024];
+        int edges = 0;
+
+        int afterId = 0;
+        List<User> page;
+        do {
+            page = delegate.findPage(afterId, LOAD_PAGE_SIZE, true);
+            for (User user : page) {
+                for (Map.Entry<Integer, FriendshipStatus> friend : user.getFriends().entrySet()) {
+                    if (edges == userIds.length) {
+                        userIds = Arrays.copyOf(userIds, edges * 2);
+                        friendIds = Arrays.copyOf(friendIds, edges * 2);
+                        statuses = Arrays.copyOf(statuses, edges * 2);
+                    }
+                    userIds[edges] = user.getId();
+                    friendIds[edges] = friend.getKey();
+                    statuses[edges] = friend.getValue();
+                    edges++;
+                }
+                afterId = user.getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        return FriendGraph.build(userIds, friendIds, statuses, edges);
+    }
+
+    // ===== Остальное — без изменений =====
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public User update(User user) {
+        return delegate.update(user);
+    }
+
+    @Override
+    public Optional<User> getById(int id) {
+        return delegate.getById(id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit, boolean withFriends) {
+        return delegate.findPage(afterId, limit, withFriends);
+    }
+
+    @Override
+    public List<User> getByIds(List<Integer> ids, boolean withFriends) {
+        return delegate.getByIds(ids, withFriends);
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return delegate.exists(id);
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        return delegate.existsAll(ids);
+    }
+
+    @Override
+    public List<User> findAll(boolean withFriends) {
+        return delegate.findAll(withFriends);
+    }
+}
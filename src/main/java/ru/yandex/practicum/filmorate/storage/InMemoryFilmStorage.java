@@ -1,34 +1,144 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.WriteAheadLog;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * In-memory реализация FilmStorage, безопасная для параллельных запросов.
+ * Фильмы лежат в ConcurrentHashMap, id выдаются атомарно,
+ * лайки каждого фильма хранятся в потокобезопасном IntHashSet.
+ * <p>
+ * Если задан filmorate.storage.memory.data-dir, изменения пишутся в журнал (WriteAheadLog)
+ * в каталоге films, и при старте данные восстанавливаются из снимка и журнала.
+ * Запись в журнал делается под той же блокировкой, что и само изменение, чтобы порядок
+ * записей по одному фильму совпадал с порядком изменений. Ожидание диска — уже после неё.
+ * Создание и обновление пишут запись внутри compute, до публикации фильма, поэтому идут через
+ * WriteAheadLog.publish: снимок не сменит сегмент посреди такого изменения.
+ */
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "memory")
+@Qualifier("filmStorageBackend")
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int idCounter = 1;
+    private final Map<Integer, Film> films = new ConcurrentHashMap<>();
+    // id по возрастанию: findPage читает страницу от afterId, не сортируя всю карту
+    private final NavigableSet<Integer> sortedIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+
+    // Типы записей журнала
+    private static final byte FILM_PUT = 1;
+    private static final byte LIKE_ADD = 2;
+    private static final byte LIKE_REMOVE = 3;
+
+    private final WriteAheadLog wal;
+    private final long snapshotIntervalMillis;
+
+    /**
+     * Хранилище без сохранения на диск.
+     */
+    public InMemoryFilmStorage() {
+        this("", true, 0);
+    }
+
+    /**
+     * @param dataDir                каталог данных; пустой — без сохранения на диск
+     * @param syncOnCommit           ждать FileChannel.force перед ответом на каждое изменение
+     * @param snapshotIntervalMillis период снимков; 0 — без снимков, при старте применяется весь журнал
+     */
+    @Autowired
+    public InMemoryFilmStorage(
+            @Value("${filmorate.storage.memory.data-dir:}") String dataDir,
+            @Value("${filmorate.storage.memory.sync-on-commit:true}") boolean syncOnCommit,
+            @Value("${filmorate.storage.memory.snapshot-interval-ms:300000}") long snapshotIntervalMillis
+    ) {
+        this.wal = dataDir.isBlank() ? null : new WriteAheadLog(Path.of(dataDir, "films"), syncOnCommit);
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Загружает снимок, применяет журнал и запускает периодические снимки.
+     */
+    @PostConstruct
+    public void start() {
+        if (wal == null) return;
+
+        wal.recover(this::readSnapshot, this::replay);
+        wal.startBackground(snapshotIntervalMillis, this::writeSnapshot);
+    }
+
+    /**
+     * Снимок при штатной остановке (если снимки включены): следующий старт не будет повторять журнал.
+     */
+    @PreDestroy
+    public void stop() {
+        if (wal == null) return;
+
+        if (snapshotIntervalMillis > 0) {
+            snapshot();
+        }
+        wal.close();
+    }
+
+    public void snapshot() {
+        if (wal != null) {
+            wal.snapshot(this::writeSnapshot);
+        }
+    }
 
     @Override
     public Film create(Film film) {
-        film.setId(idCounter++);
-        if (film.getLikes() == null) {
-            film.setLikes(new HashSet<>());
-        }
-        films.put(film.getId(), film);
+        film.setId(idCounter.getAndIncrement());
+        film.setLikes(film.getLikes() == null ? new IntHashSet() : IntHashSet.copyOf(film.getLikes()));
+        long[] seq = new long[1];
+        publish(() -> films.compute(film.getId(), (id, existing) -> {
+            seq[0] = log(out -> writeFilm(out, film, true));
+            return film;
+        }));
+        sortedIds.add(film.getId());
+        sync(seq[0]);
         return film;
     }
 
+    /**
+     * Замена фильма атомарна; множество лайков переносится в новый объект,
+     * поэтому лайк, поставленный во время обновления, не теряется.
+     */
     @Override
     public Film update(Film film) {
-        if (!films.containsKey(film.getId())) {
+        long[] seq = new long[1];
+        Film updated = publish(() -> films.computeIfPresent(film.getId(), (id, existing) -> {
+            film.setLikes(existing.getLikes());
+            seq[0] = log(out -> writeFilm(out, film, false));
+            return film;
+        }));
+        if (updated == null) {
             throw new NoSuchElementException("Фильм с таким id не найден");
         }
-        films.put(film.getId(), film);
-        return film;
+        sync(seq[0]);
+        return updated;
     }
 
     @Override
@@ -42,21 +152,101 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
+    public List<Film> findPage(int afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, 1024));
+        for (int id : sortedIds.tailSet(afterId, false)) {
+            if (page.size() >= limit) break;
+            Film film = films.get(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        return Arrays.stream(ids).allMatch(films::containsKey);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(films::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        long seq = changeLike(filmId, userId, LikeOperation.ADD);
+        sync(seq);
+        return seq != 0;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        long seq = changeLike(filmId, userId, LikeOperation.REMOVE);
+        sync(seq);
+        return seq != 0;
+    }
+
+    /**
+     * @return номер записи журнала (без журнала — 1), 0 — если лайк не изменился
+     */
+    private long changeLike(int filmId, int userId, LikeOperation operation) {
         Film film = films.get(filmId);
         if (film == null) {
             throw new NoSuchElementException("Фильм с таким id не найден");
         }
-        film.getLikes().add(userId);
+        IntHashSet likes = film.getLikes();
+        synchronized (likes) {
+            boolean changed = operation == LikeOperation.ADD ? likes.add(userId) : likes.remove(userId);
+            if (!changed) return 0;
+
+            byte type = operation == LikeOperation.ADD ? LIKE_ADD : LIKE_REMOVE;
+            return Math.max(1, log(out -> {
+                out.writeByte(type);
+                out.writeInt(filmId);
+                out.writeInt(userId);
+            }));
+        }
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
+    public boolean hasLike(int filmId, int userId) {
         Film film = films.get(filmId);
-        if (film == null) {
-            throw new NoSuchElementException("Фильм с таким id не найден");
+        return film != null && film.getLikes().contains(userId);
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeChange> changes) {
+        boolean[] applied = new boolean[changes.size()];
+        long lastSeq = 0;
+        try {
+            for (int i = 0; i < changes.size(); i++) {
+                LikeChange change = changes.get(i);
+                long seq = changeLike(change.getFilmId(), change.getUserId(), change.getOperation());
+                applied[i] = seq != 0;
+                lastSeq = Math.max(lastSeq, seq);
+            }
+        } finally {
+            // одна фиксация на весь пакет
+            sync(lastSeq);
         }
-        film.getLikes().remove(userId);
+        return applied;
     }
 
     @Override
@@ -68,4 +258,135 @@ public class InMemoryFilmStorage implements FilmStorage {
                 .limit(limit)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        return films.values().stream()
+                .collect(Collectors.toMap(Film::getId, film -> film.getLikes().size()));
+    }
+
+    // ===== Журнал и снимки =====
+
+    private long log(WriteAheadLog.RecordWriter record) {
+        return wal == null ? 0 : wal.append(record);
+    }
+
+    private <T> T publish(Supplier<T> change) {
+        return wal == null ? change.get() : wal.publish(change);
+    }
+
+    private void sync(long seq) {
+        if (wal != null && seq > 0) {
+            wal.sync(seq);
+        }
+    }
+
+    private void replay(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case FILM_PUT -> {
+                Film film = readFilm(in);
+                // запись create/update после снимка: лайки уже восстановленного фильма сохраняются
+                Film existing = films.get(film.getId());
+                if (existing != null) {
+                    film.setLikes(existing.getLikes());
+                }
+                restore(film);
+            }
+            case LIKE_ADD, LIKE_REMOVE -> {
+                Film film = films.get(in.readInt());
+                int userId = in.readInt();
+                if (film != null) {
+                    if (type == LIKE_ADD) {
+                        film.getLikes().add(userId);
+                    } else {
+                        film.getLikes().remove(userId);
+                    }
+                }
+            }
+            default -> throw new IOException("Неизвестный тип записи журнала фильмов: " + type);
+        }
+    }
+
+    private void restore(Film film) {
+        films.put(film.getId(), film);
+        sortedIds.add(film.getId());
+        idCounter.accumulateAndGet(film.getId() + 1, Math::max);
+    }
+
+    private void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(idCounter.get());
+        for (Film film : films.values()) {
+            out.writeBoolean(true);
+            writeFilm(out, film, true);
+        }
+        out.writeBoolean(false);
+    }
+
+    private void readSnapshot(DataInput in) throws IOException {
+        idCounter.set(in.readInt());
+        while (in.readBoolean()) {
+            in.readByte();
+            restore(readFilm(in));
+        }
+    }
+
+    /**
+     * Запись FILM_PUT журнала и элемент снимка. Лайки пишутся при создании и в снимок;
+     * при обновлении они не меняются и идут отдельными записями.
+     */
+    private static void writeFilm(DataOutput out, Film film, boolean withLikes) throws IOException {
+        out.writeByte(FILM_PUT);
+        out.writeInt(film.getId());
+        WriteAheadLog.writeNullableString(out, film.getName());
+        WriteAheadLog.writeNullableString(out, film.getDescription());
+        WriteAheadLog.writeNullableDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration());
+
+        Mpa mpa = film.getMpa();
+        out.writeBoolean(mpa != null);
+        if (mpa != null) {
+            out.writeInt(mpa.getId());
+            WriteAheadLog.writeNullableString(out, mpa.getName());
+        }
+
+        Set<Genre> genres = film.getGenres() == null ? Set.of() : film.getGenres();
+        out.writeInt(genres.size());
+        for (Genre genre : genres) {
+            out.writeInt(genre.getId());
+            WriteAheadLog.writeNullableString(out, genre.getName());
+        }
+
+        int[] likes = withLikes && film.getLikes() != null ? film.getLikes().toIntArray() : new int[0];
+        out.writeInt(likes.length);
+        for (int userId : likes) {
+            out.writeInt(userId);
+        }
+    }
+
+    private static Film readFilm(DataInput in) throws IOException {
+        Film film = new Film();
+        film.setId(in.readInt());
+        film.setName(WriteAheadLog.readNullableString(in));
+        film.setDescription(WriteAheadLog.readNullableString(in));
+        film.setReleaseDate(WriteAheadLog.readNullableDate(in));
+        film.setDuration(in.readInt());
+
+        if (in.readBoolean()) {
+            film.setMpa(new Mpa(in.readInt(), WriteAheadLog.readNullableString(in)));
+        }
+
+        int genreCount = in.readInt();
+        for (int i = 0; i < genreCount; i++) {
+            film.getGenres().add(new Genre(in.readInt(), WriteAheadLog.readNullableString(in)));
+        }
+
+        int likeCount = in.readInt();
+        IntHashSet likes = new IntHashSet(likeCount);
+        for (int i = 0; i < likeCount; i++) {
+            likes.add(in.readInt());
+        }
+        film.setLikes(likes);
+        return film;
+    }
 }
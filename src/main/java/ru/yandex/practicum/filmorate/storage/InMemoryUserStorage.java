@@ -1,37 +1,147 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntEnumMap;
+import ru.yandex.practicum.filmorate.util.WriteAheadLog;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * In-memory реализация UserStorage.
+ * In-memory реализация UserStorage, безопасная для параллельных запросов.
  * Дружба теперь односторонняя:
  * пользователь добавляет другого в свой список друзей, но сам в его список не попадает.
+ * Друзья каждого пользователя хранятся в потокобезопасном IntEnumMap, id выдаются атомарно.
+ * <p>
+ * С filmorate.storage.memory.data-dir изменения пишутся в журнал в каталоге users
+ * так же, как в InMemoryFilmStorage.
  */
 @Component
+@ConditionalOnExpression("'${filmorate.storage.mode:h2-file}' matches 'memory|mapped'")
+@Qualifier("userStorageBackend")
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Integer, User> users = new HashMap<>();
-    private int idCounter = 1;
+    private final Map<Integer, User> users = new ConcurrentHashMap<>();
+    // id по возрастанию: findPage читает страницу от afterId, не сортируя всю карту
+    private final NavigableSet<Integer> sortedIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+
+    // Типы записей журнала
+    private static final byte USER_PUT = 1;
+    private static final byte FRIEND_PUT = 2;
+    private static final byte FRIEND_REMOVE = 3;
+
+    private final WriteAheadLog wal;
+    private final long snapshotIntervalMillis;
+
+    /**
+     * Хранилище без сохранения на диск.
+     */
+    public InMemoryUserStorage() {
+        this("", true, 0);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(
+            @Value("${filmorate.storage.memory.data-dir:}") String dataDir,
+            @Value("${filmorate.storage.memory.sync-on-commit:true}") boolean syncOnCommit,
+            @Value("${filmorate.storage.memory.snapshot-interval-ms:300000}") long snapshotIntervalMillis
+    ) {
+        this.wal = dataDir.isBlank() ? null : new WriteAheadLog(Path.of(dataDir, "users"), syncOnCommit);
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (wal == null) return;
+
+        wal.recover(this::readSnapshot, this::replay);
+        wal.startBackground(snapshotIntervalMillis, this::writeSnapshot);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (wal == null) return;
+
+        if (snapshotIntervalMillis > 0) {
+            snapshot();
+        }
+        wal.close();
+    }
+
+    public void snapshot() {
+        if (wal != null) {
+            wal.snapshot(this::writeSnapshot);
+        }
+    }
 
     @Override
     public User create(User user) {
-        user.setId(idCounter++);
-        users.put(user.getId(), user);
+        sync(insert(user));
         return user;
     }
 
+    private long insert(User user) {
+        user.setId(idCounter.getAndIncrement());
+        IntEnumMap<FriendshipStatus> friends = new IntEnumMap<>(FriendshipStatus.class);
+        if (user.getFriends() != null) {
+            friends.putAll(user.getFriends());
+        }
+        user.setFriends(friends);
+        long[] seq = new long[1];
+        publish(() -> users.compute(user.getId(), (id, existing) -> {
+            seq[0] = log(out -> writeUser(out, user, true));
+            return user;
+        }));
+        sortedIds.add(user.getId());
+        return seq[0];
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        long lastSeq = 0;
+        try {
+            for (User user : newUsers) {
+                lastSeq = Math.max(lastSeq, insert(user));
+            }
+        } finally {
+            sync(lastSeq);
+        }
+        return newUsers;
+    }
+
+    /**
+     * Замена пользователя атомарна; карта друзей переносится в новый объект.
+     */
     @Override
     public User update(User user) {
-        if (!users.containsKey(user.getId())) {
+        long[] seq = new long[1];
+        User updated = publish(() -> users.computeIfPresent(user.getId(), (id, existing) -> {
+            user.setFriends(existing.getFriends());
+            seq[0] = log(out -> writeUser(out, user, false));
+            return user;
+        }));
+        if (updated == null) {
             throw new NoSuchElementException("Пользователь с таким id не найден");
         }
-        users.put(user.getId(), user);
-        return user;
+        sync(seq[0]);
+        return updated;
     }
 
     @Override
@@ -44,6 +154,50 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(users::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit, boolean withFriends) {
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        for (int id : sortedIds.tailSet(afterId, false)) {
+            if (page.size() >= limit) break;
+            User user = users.get(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<User> getByIds(List<Integer> ids, boolean withFriends) {
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        return Arrays.stream(ids).allMatch(users::containsKey);
+    }
+
+    // Друзья хранятся прямо в объекте User, отдельной загрузки нет
+    @Override
+    public List<User> findAll(boolean withFriends) {
+        return findAll();
+    }
+
     /**
      * Добавление друга односторонне:
      * только в списке пользователя появляется друг
@@ -52,7 +206,13 @@ public class InMemoryUserStorage implements UserStorage {
     public void addFriend(int userId, int friendId) {
         User user = users.get(userId);
         if (user != null && users.containsKey(friendId)) {
-            user.getFriends().put(friendId, FriendshipStatus.REQUESTED);
+            IntEnumMap<FriendshipStatus> friends = user.getFriends();
+            long seq;
+            synchronized (friends) {
+                friends.put(friendId, FriendshipStatus.REQUESTED);
+                seq = logFriend(userId, friendId, FriendshipStatus.REQUESTED);
+            }
+            sync(seq);
         }
     }
 
@@ -63,8 +223,15 @@ public class InMemoryUserStorage implements UserStorage {
     @Override
     public void confirmFriend(int userId, int friendId) {
         User user = users.get(userId);
-        if (user != null && user.getFriends().containsKey(friendId)) {
-            user.getFriends().put(friendId, FriendshipStatus.CONFIRMED);
+        if (user != null) {
+            IntEnumMap<FriendshipStatus> friends = user.getFriends();
+            long seq = 0;
+            synchronized (friends) {
+                if (friends.computeIfPresent(friendId, (id, status) -> FriendshipStatus.CONFIRMED) != null) {
+                    seq = logFriend(userId, friendId, FriendshipStatus.CONFIRMED);
+                }
+            }
+            sync(seq);
         }
     }
 
@@ -72,7 +239,14 @@ public class InMemoryUserStorage implements UserStorage {
     public void removeFriend(int userId, int friendId) {
         User user = users.get(userId);
         if (user != null) {
-            user.getFriends().remove(friendId);
+            IntEnumMap<FriendshipStatus> friends = user.getFriends();
+            long seq = 0;
+            synchronized (friends) {
+                if (friends.remove(friendId) != null) {
+                    seq = logFriend(userId, friendId, null);
+                }
+            }
+            sync(seq);
         }
     }
 
@@ -82,12 +256,28 @@ public class InMemoryUserStorage implements UserStorage {
         if (user == null) {
             return List.of();
         }
-        return user.getFriends().keySet().stream()
-                .map(users::get)
+        return Arrays.stream(user.getFriends().keyArray())
+                .mapToObj(users::get)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<User> getFriends(int userId, boolean withFriends) {
+        return getFriends(userId);
+    }
+
+    @Override
+    public int[][] getFriendIds(int[] userIds) {
+        int[][] friendIds = new int[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            User user = users.get(userIds[i]);
+            friendIds[i] = user == null ? new int[0] : user.getFriends().keyArray();
+            Arrays.sort(friendIds[i]);
+        }
+        return friendIds;
+    }
+
     @Override
     public List<User> getCommonFriends(int userId, int otherId) {
         User first = users.get(userId);
@@ -97,11 +287,155 @@ public class InMemoryUserStorage implements UserStorage {
             return List.of();
         }
 
-        // Считаем только друзей, которых оба пользователя добавили
-        return first.getFriends().keySet().stream()
-                .filter(second.getFriends().keySet()::contains)
-                .map(users::get)
+        // Считаем только друзей, которых оба пользователя добавили: обходим меньший список, проверяем по большему
+        IntEnumMap<FriendshipStatus> firstFriends = first.getFriends();
+        IntEnumMap<FriendshipStatus> otherFriends = second.getFriends();
+        if (firstFriends.size() > otherFriends.size()) {
+            IntEnumMap<FriendshipStatus> swap = firstFriends;
+            firstFriends = otherFriends;
+            otherFriends = swap;
+        }
+        IntEnumMap<FriendshipStatus> probe = otherFriends;
+        return Arrays.stream(firstFriends.keyArray())
+                .filter(probe::containsKey)
+                .mapToObj(users::get)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId, boolean withFriends) {
+        return getCommonFriends(userId, otherId);
+    }
+
+    // ===== Журнал и снимки =====
+
+    private long log(WriteAheadLog.RecordWriter record) {
+        return wal == null ? 0 : wal.append(record);
+    }
+
+    // status == null — удаление из друзей
+    private long logFriend(int userId, int friendId, FriendshipStatus status) {
+        return log(out -> {
+            out.writeByte(status == null ? FRIEND_REMOVE : FRIEND_PUT);
+            out.writeInt(userId);
+            out.writeInt(friendId);
+            if (status != null) {
+                out.writeByte(status.ordinal());
+            }
+        });
+    }
+
+    private <T> T publish(Supplier<T> change) {
+        return wal == null ? change.get() : wal.publish(change);
+    }
+
+    private void sync(long seq) {
+        if (wal != null && seq > 0) {
+            wal.sync(seq);
+        }
+    }
+
+    private void replay(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case USER_PUT -> {
+                User user = readUser(in);
+                // запись create/update после снимка: друзья уже восстановленного пользователя сохраняются
+                User existing = users.get(user.getId());
+                if (existing != null) {
+                    user.setFriends(existing.getFriends());
+                }
+                restore(user);
+            }
+            case FRIEND_PUT -> {
+                User user = users.get(in.readInt());
+                int friendId = in.readInt();
+                FriendshipStatus status = FriendshipStatus.values()[in.readByte()];
+                if (user != null) {
+                    user.getFriends().put(friendId, status);
+                }
+            }
+            case FRIEND_REMOVE -> {
+                User user = users.get(in.readInt());
+                int friendId = in.readInt();
+                if (user != null) {
+                    user.getFriends().remove(friendId);
+                }
+            }
+            default -> throw new IOException("Неизвестный тип записи журнала пользователей: " + type);
+        }
+    }
+
+    private void restore(User user) {
+        users.put(user.getId(), user);
+        sortedIds.add(user.getId());
+        idCounter.accumulateAndGet(user.getId() + 1, Math::max);
+    }
+
+    private void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(idCounter.get());
+        for (User user : users.values()) {
+            out.writeBoolean(true);
+            writeUser(out, user, true);
+        }
+        out.writeBoolean(false);
+    }
+
+    private void readSnapshot(DataInput in) throws IOException {
+        idCounter.set(in.readInt());
+        while (in.readBoolean()) {
+            in.readByte();
+            restore(readUser(in));
+        }
+    }
+
+    /**
+     * Запись USER_PUT журнала и элемент снимка. Друзья пишутся при создании и в снимок.
+     */
+    private static void writeUser(DataOutput out, User user, boolean withFriends) throws IOException {
+        out.writeByte(USER_PUT);
+        out.writeInt(user.getId());
+        WriteAheadLog.writeNullableString(out, user.getEmail());
+        WriteAheadLog.writeNullableString(out, user.getLogin());
+        WriteAheadLog.writeNullableString(out, user.getName());
+        WriteAheadLog.writeNullableDate(out, user.getBirthday());
+
+        IntEnumMap<FriendshipStatus> friends = withFriends ? user.getFriends() : null;
+        if (friends == null) {
+            out.writeInt(0);
+            return;
+        }
+        // копия под блокировкой карты: размер и содержимое должны совпадать
+        int[] ids;
+        FriendshipStatus[] statuses;
+        synchronized (friends) {
+            ids = friends.keyArray();
+            statuses = new FriendshipStatus[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                statuses[i] = friends.get(ids[i]);
+            }
+        }
+        out.writeInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            out.writeInt(ids[i]);
+            out.writeByte(statuses[i].ordinal());
+        }
+    }
+
+    private static User readUser(DataInput in) throws IOException {
+        User user = new User();
+        user.setId(in.readInt());
+        user.setEmail(WriteAheadLog.readNullableString(in));
+        user.setLogin(WriteAheadLog.readNullableString(in));
+        user.setName(WriteAheadLog.readNullableString(in));
+        user.setBirthday(WriteAheadLog.readNullableDate(in));
+
+        int friendCount = in.readInt();
+        FriendshipStatus[] statuses = FriendshipStatus.values();
+        for (int i = 0; i < friendCount; i++) {
+            user.getFriends().put(in.readInt(), statuses[in.readByte()]);
+        }
+        return user;
+    }
+}
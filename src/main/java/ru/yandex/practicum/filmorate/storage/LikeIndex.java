@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.Ranking;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Инвертированный индекс лайков в памяти: пользователь -> фильмы и фильм -> пользователи.
+ * Строится из хранилища при старте и обновляется инкрементально из FilmService,
+ * как PopularityIndex; по нему считаются рекомендации без SQL.
+ * <p>
+ * Каждый список — массив int без повторов в порядке добавления: добавление в конец,
+ * удаление переставляет последний элемент на место удалённого. Индекс доверяет вызывающему:
+ * add/remove вызываются только для изменений, которые хранилище подтвердило, и в том же
+ * порядке (FilmService держит блокировку пользователя на изменение хранилища и индекса),
+ * поэтому повторы при добавлении не проверяются.
+ */
+@Component
+public class LikeIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Integer, Postings> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, Postings> usersByFilm = new ConcurrentHashMap<>();
+
+    /**
+     * Полностью перестраивает индекс. Вызывается до того, как начинаются изменения.
+     */
+    public void rebuild(Map<Integer, int[]> usersByFilmId) {
+        filmsByUser.clear();
+        usersByFilm.clear();
+        usersByFilmId.forEach((filmId, userIds) -> {
+            for (int userId : userIds) {
+                add(filmId, userId);
+            }
+        });
+    }
+
+    public void add(int filmId, int userId) {
+        filmsByUser.computeIfAbsent(userId, id -> new Postings()).add(filmId);
+        usersByFilm.computeIfAbsent(filmId, id -> new Postings()).add(userId);
+    }
+
+    public void remove(int filmId, int userId) {
+        Postings films = filmsByUser.get(userId);
+        if (films != null) {
+            films.remove(filmId);
+        }
+        Postings users = usersByFilm.get(filmId);
+        if (users != null) {
+            users.remove(userId);
+        }
+    }
+
+    /**
+     * Фильмы, которые лайкнул пользователь, по возрастанию id.
+     */
+    public int[] films(int userId) {
+        return films(userId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Фильмы пользователя по возрастанию id; если их больше cap — равномерная выборка не больше cap.
+     */
+    public int[] films(int userId, int cap) {
+        Postings films = filmsByUser.get(userId);
+        if (films == null) return EMPTY;
+
+        int[] ids = films.sample(cap);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Пользователи, лайкнувшие фильм; у популярных фильмов — равномерная выборка не больше cap.
+     */
+    public int[] users(int filmId, int cap) {
+        Postings users = usersByFilm.get(filmId);
+        return users == null ? EMPTY : users.sample(cap);
+    }
+
+    public int likes(int filmId) {
+        Postings users = usersByFilm.get(filmId);
+        return users == null ? 0 : users.size();
+    }
+
+    private static final class Postings {
+
+        private int[] values = new int[4];
+        private int size;
+
+        synchronized void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+
+        synchronized int[] sample(int cap) {
+            return Ranking.sample(values, size, cap);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.MappedColumn;
+import ru.yandex.practicum.filmorate.util.Ranking;
+import ru.yandex.practicum.filmorate.util.WriteAheadLog;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * FilmStorage для каталога, который в основном читают (режим mapped).
+ * <p>
+ * Поля фильмов хранятся по колонкам в файлах, отображённых в память (MappedColumn),
+ * в каталоге filmorate.storage.mapped.data-dir. id, duration и дата релиза (epoch-day) —
+ * колонки int, MPA — байт, жанры — битовая маска long по id жанра, name и description —
+ * смещения в файлы строк UTF-8. В куче остаются только индекс id -> строка и лайки.
+ * Объект Film собирается только при выдаче конкретных фильмов. Проверки существования,
+ * счётчики лайков и выбор популярных фильмов обходятся без него.
+ * <p>
+ * Обновление дописывает новую строку и переключает на неё индекс; старая строка остаётся в файле.
+ * Число строк и концы файлов строк лежат в catalog.meta и пишутся последними, поэтому
+ * строка, оборванная сбоем, после перезапуска просто не видна.
+ * <p>
+ * Лайки меняются часто, поэтому живут в куче (IntHashSet на фильм) и пишутся в журнал likes/,
+ * как в InMemoryFilmStorage.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "mapped")
+@Qualifier("filmStorageBackend")
+@Slf4j
+public class MappedFilmStorage implements FilmStorage {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long NO_STRING = -1;
+    private static final int MAX_GENRE_ID = Long.SIZE - 1;
+    private static final int MAX_MPA_ID = 255;
+    private static final int INITIAL_ROWS = 1024;
+
+    // catalog.meta: число строк, следующий id, концы файлов названий и описаний
+    private static final int META_ROWS = 0;
+    private static final int META_NEXT_ID = 4;
+    private static final int META_NAMES_END = 8;
+    private static final int META_DESCRIPTIONS_END = 16;
+
+    private static final byte LIKE_ADD = 1;
+    private static final byte LIKE_REMOVE = 2;
+
+    private final ReferenceDataRegistry referenceData;
+    private final Path dir;
+    private final boolean syncOnCommit;
+    private final long snapshotIntervalMillis;
+
+    private MappedColumn meta;
+    private MappedColumn ids;
+    private MappedColumn durations;
+    private MappedColumn releaseDates;
+    private MappedColumn mpaIds;
+    private MappedColumn genreMasks;
+    private MappedColumn nameOffsets;
+    private MappedColumn names;
+    private MappedColumn descriptionOffsets;
+    private MappedColumn descriptions;
+    private List<MappedColumn> columns;
+    private WriteAheadLog likesLog;
+
+    // Изменения каталога; чтение без блокировок
+    private final Object writeLock = new Object();
+    private int nextId = 1;
+    private long namesEnd;
+    private long descriptionsEnd;
+
+    // Читатель сначала читает rows: запись rows идёт последней и публикует строку и индекс
+    private volatile int rows;
+    private volatile int[] rowOfId = new int[INITIAL_ROWS]; // строка + 1, 0 — фильма нет
+    private volatile IntHashSet[] likesOf = new IntHashSet[INITIAL_ROWS];
+
+    public MappedFilmStorage(
+            ReferenceDataRegistry referenceData,
+            @Value("${filmorate.storage.mapped.data-dir:./db/mapped}") String dataDir,
+            @Value("${filmorate.storage.mapped.sync-on-commit:true}") boolean syncOnCommit,
+            @Value("${filmorate.storage.mapped.snapshot-interval-ms:300000}") long snapshotIntervalMillis
+    ) {
+        this.referenceData = referenceData;
+        this.dir = Path.of(dataDir);
+        this.syncOnCommit = syncOnCommit;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Открывает колонки, строит индекс id -> строка и восстанавливает лайки из журнала.
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать каталог " + dir, e);
+        }
+        meta = new MappedColumn(dir.resolve("catalog.meta"), 24);
+        ids = new MappedColumn(dir.resolve("id.col"), INITIAL_ROWS * 4);
+        durations = new MappedColumn(dir.resolve("duration.col"), INITIAL_ROWS * 4);
+        releaseDates = new MappedColumn(dir.resolve("release_date.col"), INITIAL_ROWS * 4);
+        mpaIds = new MappedColumn(dir.resolve("mpa.col"), INITIAL_ROWS);
+        genreMasks = new MappedColumn(dir.resolve("genres.col"), INITIAL_ROWS * 8);
+        nameOffsets = new MappedColumn(dir.resolve("name.off"), INITIAL_ROWS * 8);
+        names = new MappedColumn(dir.resolve("name.str"), INITIAL_ROWS * 32);
+        descriptionOffsets = new MappedColumn(dir.resolve("description.off"), INITIAL_ROWS * 8);
+        descriptions = new MappedColumn(dir.resolve("description.str"), INITIAL_ROWS * 64);
+        columns = List.of(ids, durations, releaseDates, mpaIds, genreMasks,
+                nameOffsets, names, descriptionOffsets, descriptions);
+
+        synchronized (writeLock) {
+            int storedRows = meta.getInt(META_ROWS);
+            nextId = Math.max(1, meta.getInt(META_NEXT_ID));
+            namesEnd = meta.getLong(META_NAMES_END);
+            descriptionsEnd = meta.getLong(META_DESCRIPTIONS_END);
+            // более поздняя строка с тем же id — обновление
+            for (int row = 0; row < storedRows; row++) {
+                int id = ids.getInt(row * 4);
+                ensureIndex(id);
+                rowOfId[id] = row + 1;
+                if (likesOf[id] == null) {
+                    likesOf[id] = new IntHashSet();
+                }
+            }
+            rows = storedRows;
+            log.info("Каталог {} открыт: {} строк, {} фильмов", dir, storedRows, nextId - 1);
+        }
+
+        likesLog = new WriteAheadLog(dir.resolve("likes"), syncOnCommit);
+        likesLog.recover(this::readLikesSnapshot, this::replayLike);
+        likesLog.startBackground(snapshotIntervalMillis, this::writeLikesSnapshot);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (likesLog == null) return;
+
+        if (snapshotIntervalMillis > 0) {
+            snapshot();
+        }
+        likesLog.close();
+        columns.forEach(MappedColumn::close);
+        meta.close();
+    }
+
+    /**
+     * Снимок лайков; каталог в снимке не нуждается — он и так в файлах.
+     */
+    public void snapshot() {
+        likesLog.snapshot(this::writeLikesSnapshot);
+    }
+
+    // ===== Каталог =====
+
+    @Override
+    public Film create(Film film) {
+        IntHashSet initialLikes = film.getLikes() == null ? new IntHashSet() : IntHashSet.copyOf(film.getLikes());
+        IntHashSet likes = new IntHashSet();
+        long seq = 0;
+        synchronized (writeLock) {
+            film.setId(nextId++);
+            ensureIndex(film.getId());
+            likesOf[film.getId()] = likes;
+            appendRow(film);
+            synchronized (likes) {
+                for (int userId : initialLikes.toIntArray()) {
+                    likes.add(userId);
+                    seq = logLike(LIKE_ADD, film.getId(), userId);
+                }
+            }
+        }
+        sync(seq);
+        film.setLikes(initialLikes);
+        return film;
+    }
+
+    @Override
+    public Film update(Film film) {
+        synchronized (writeLock) {
+            if (rowOf(film.getId()) < 0) {
+                throw new NoSuchElementException("Фильм с таким id не найден");
+            }
+            appendRow(film);
+        }
+        film.setLikes(copyLikes(film.getId()));
+        return film;
+    }
+
+    @Override
+    public Optional<Film> getById(int id) {
+        int row = rowOf(id);
+        return row < 0 ? Optional.empty() : Optional.of(read(id, row));
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return findPage(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        List<Film> page = new ArrayList<>();
+        int[] index = publishedIndex();
+        for (int id = Math.max(afterId + 1, 1); id < index.length && page.size() < limit; id++) {
+            if (index[id] > 0) {
+                page.add(read(id, index[id] - 1));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return rowOf(id) >= 0;
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        return Arrays.stream(ids).allMatch(this::exists);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (int id : ids) {
+            if (exists(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            int row = rowOf(id);
+            if (row >= 0) {
+                films.add(read(id, row));
+            }
+        }
+        return films;
+    }
+
+    // ===== Лайки =====
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        long seq = changeLike(filmId, userId, LikeOperation.ADD);
+        sync(seq);
+        return seq != 0;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        long seq = changeLike(filmId, userId, LikeOperation.REMOVE);
+        sync(seq);
+        return seq != 0;
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        IntHashSet likes = likes(filmId);
+        return likes != null && likes.contains(userId);
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeChange> changes) {
+        boolean[] applied = new boolean[changes.size()];
+        long lastSeq = 0;
+        try {
+            for (int i = 0; i < changes.size(); i++) {
+                LikeChange change = changes.get(i);
+                long seq = changeLike(change.getFilmId(), change.getUserId(), change.getOperation());
+                applied[i] = seq != 0;
+                lastSeq = Math.max(lastSeq, seq);
+            }
+        } finally {
+            sync(lastSeq);
+        }
+        return applied;
+    }
+
+    /**
+     * Выбор лучших count фильмов идёт по счётчикам лайков в куче; собираются только они.
+     */
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        int limit = count > 0 ? count : 10;
+        int[] index = publishedIndex();
+        IntHashSet[] likes = likesOf;
+
+        Ranking.Top top = new Ranking.Top(limit);
+        for (int id = 1; id < index.length; id++) {
+            if (index[id] == 0) continue;
+            top.offer(likes[id].size(), id);
+        }
+        return getByIds(Arrays.stream(top.drainIds()).boxed().toList());
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        int[] index = publishedIndex();
+        IntHashSet[] likes = likesOf;
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int id = 1; id < index.length; id++) {
+            if (index[id] > 0) {
+                counts.put(id, likes[id].size());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return номер записи журнала, 0 — если лайк не изменился
+     */
+    private long changeLike(int filmId, int userId, LikeOperation operation) {
+        IntHashSet likes = likes(filmId);
+        if (likes == null) {
+            throw new NoSuchElementException("Фильм с таким id не найден");
+        }
+        synchronized (likes) {
+            boolean changed = operation == LikeOperation.ADD ? likes.add(userId) : likes.remove(userId);
+            if (!changed) return 0;
+            return logLike(operation == LikeOperation.ADD ? LIKE_ADD : LIKE_REMOVE, filmId, userId);
+        }
+    }
+
+    private IntHashSet likes(int filmId) {
+        if (rowOf(filmId) < 0) return null;
+        return likesOf[filmId];
+    }
+
+    private IntHashSet copyLikes(int filmId) {
+        IntHashSet likes = likes(filmId);
+        return likes == null ? new IntHashSet() : IntHashSet.of(likes.toIntArray());
+    }
+
+    // ===== Строки каталога =====
+
+    private int rowOf(int id) {
+        int[] index = publishedIndex();
+        return id > 0 && id < index.length ? index[id] - 1 : -1;
+    }
+
+    private int[] publishedIndex() {
+        if (rows == 0) return new int[0];
+        return rowOfId;
+    }
+
+    // Вызывается под writeLock
+    private void ensureIndex(int id) {
+        if (id < rowOfId.length) return;
+        int size = Math.max(id + 1, rowOfId.length * 2);
+        likesOf = Arrays.copyOf(likesOf, size);
+        rowOfId = Arrays.copyOf(rowOfId, size);
+    }
+
+    /**
+     * Дописывает строку фильма и переключает на неё индекс. Вызывается под writeLock.
+     */
+    private void appendRow(Film film) {
+        int row = rows;
+        long genres = genreMask(film.getGenres());
+        int mpaId = film.getMpa() == null ? 0 : film.getMpa().getId();
+        if (mpaId < 0 || mpaId > MAX_MPA_ID) {
+            throw new IllegalArgumentException("id рейтинга MPA " + mpaId + " не помещается в колонку");
+        }
+
+        ids.ensureCapacity((row + 1L) * 4);
+        durations.ensureCapacity((row + 1L) * 4);
+        releaseDates.ensureCapacity((row + 1L) * 4);
+        mpaIds.ensureCapacity(row + 1L);
+        genreMasks.ensureCapacity((row + 1L) * 8);
+
+        ids.putInt(row * 4, film.getId());
+        durations.putInt(row * 4, film.getDuration());
+        releaseDates.putInt(row * 4, film.getReleaseDate() == null
+                ? NO_DATE : (int) film.getReleaseDate().toEpochDay());
+        mpaIds.putByte(row, (byte) mpaId);
+        genreMasks.putLong(row * 8, genres);
+        namesEnd = putString(nameOffsets, names, namesEnd, row, film.getName());
+        descriptionsEnd = putString(descriptionOffsets, descriptions, descriptionsEnd, row, film.getDescription());
+        if (syncOnCommit) {
+            columns.forEach(MappedColumn::force);
+        }
+
+        // метаданные — последними: до их записи строка после сбоя не видна
+        meta.putInt(META_ROWS, row + 1);
+        meta.putInt(META_NEXT_ID, nextId);
+        meta.putLong(META_NAMES_END, namesEnd);
+        meta.putLong(META_DESCRIPTIONS_END, descriptionsEnd);
+        if (syncOnCommit) {
+            meta.force();
+        }
+
+        rowOfId[film.getId()] = row + 1;
+        rows = row + 1;
+    }
+
+    private Film read(int id, int row) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(getString(nameOffsets, names, row));
+        film.setDescription(getString(descriptionOffsets, descriptions, row));
+        film.setDuration(durations.getInt(row * 4));
+        int releaseDate = releaseDates.getInt(row * 4);
+        film.setReleaseDate(releaseDate == NO_DATE ? null : LocalDate.ofEpochDay(releaseDate));
+
+        int mpaId = mpaIds.getByte(row) & 0xFF;
+        if (mpaId != 0) {
+            film.setMpa(referenceData.getMpa(mpaId).orElseGet(() -> new Mpa(mpaId, null)));
+        }
+        // жанры по возрастанию id, как их отдаёт FilmDbStorage
+        long genres = genreMasks.getLong(row * 8);
+        while (genres != 0) {
+            int genreId = Long.numberOfTrailingZeros(genres);
+            film.getGenres().add(referenceData.getGenre(genreId).orElseGet(() -> new Genre(genreId, null)));
+            genres &= genres - 1;
+        }
+        film.setLikes(copyLikes(id));
+        return film;
+    }
+
+    private static long genreMask(Set<Genre> genres) {
+        long mask = 0;
+        if (genres != null) {
+            for (Genre genre : genres) {
+                if (genre.getId() < 1 || genre.getId() > MAX_GENRE_ID) {
+                    throw new IllegalArgumentException("id жанра " + genre.getId() + " не помещается в битовую маску");
+                }
+                mask |= 1L << genre.getId();
+            }
+        }
+        return mask;
+    }
+
+    // Строка пишется как [длина][UTF-8]; возвращает новый конец файла строк
+    private static long putString(MappedColumn offsets, MappedColumn heap, long end, int row, String value) {
+        offsets.ensureCapacity((row + 1L) * 8);
+        if (value == null) {
+            offsets.putLong(row * 8, NO_STRING);
+            return end;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        heap.ensureCapacity(end + 4 + bytes.length);
+        heap.putInt((int) end, bytes.length);
+        heap.putBytes((int) end + 4, bytes);
+        offsets.putLong(row * 8, end);
+        return end + 4 + bytes.length;
+    }
+
+    private static String getString(MappedColumn offsets, MappedColumn heap, int row) {
+        long position = offsets.getLong(row * 8);
+        if (position == NO_STRING) return null;
+        byte[] bytes = new byte[heap.getInt((int) position)];
+        heap.getBytes((int) position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ===== Журнал лайков =====
+
+    private long logLike(byte type, int filmId, int userId) {
+        return likesLog.append(out -> {
+            out.writeByte(type);
+            out.writeInt(filmId);
+            out.writeInt(userId);
+        });
+    }
+
+    private void sync(long seq) {
+        if (seq > 0) {
+            likesLog.sync(seq);
+        }
+    }
+
+    private void replayLike(DataInput in) throws IOException {
+        byte type = in.readByte();
+        IntHashSet likes = likes(in.readInt());
+        int userId = in.readInt();
+        // фильм мог не попасть в каталог, если сбой случился до записи метаданных
+        if (likes == null) return;
+        if (type == LIKE_ADD) {
+            likes.add(userId);
+        } else {
+            likes.remove(userId);
+        }
+    }
+
+    private void writeLikesSnapshot(DataOutput out) throws IOException {
+        int[] index = publishedIndex();
+        IntHashSet[] likes = likesOf;
+        for (int id = 1; id < index.length; id++) {
+            if (index[id] == 0) continue;
+            int[] userIds = likes[id].toIntArray();
+            if (userIds.length == 0) continue;
+            out.writeInt(id);
+            out.writeInt(userIds.length);
+            for (int userId : userIds) {
+                out.writeInt(userId);
+            }
+        }
+        out.writeInt(0);
+    }
+
+    private void readLikesSnapshot(DataInput in) throws IOException {
+        for (int id = in.readInt(); id != 0; id = in.readInt()) {
+            IntHashSet likes = likes(id);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int userId = in.readInt();
+                if (likes != null) {
+                    likes.add(userId);
+                }
+            }
+        }
+    }
+}
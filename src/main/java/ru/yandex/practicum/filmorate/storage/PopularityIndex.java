@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс популярности фильмов в памяти.
+ * Фильмы упорядочены по (количество лайков DESC, id ASC), поэтому топ-N читается за O(N).
+ * Строится из хранилища при старте и обновляется инкрементально из FilmService.
+ */
+@Component
+public class PopularityIndex {
+
+    private static final Comparator<Entry> BY_POPULARITY =
+            Comparator.comparingInt(Entry::likes).reversed().thenComparingInt(Entry::filmId);
+
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private final Map<Integer, Integer> likesByFilm = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_POPULARITY);
+
+    // Изменения идут параллельно под общей (read) блокировкой, читатель берёт эксклюзивную
+    // только если не удалось прочитать топ без пересечения с изменениями
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong changesStarted = new AtomicLong();
+    private final AtomicLong changesFinished = new AtomicLong();
+
+    /**
+     * Полностью перестраивает индекс по количеству лайков (id фильма -> лайки)
+     */
+    public void rebuild(Map<Integer, Integer> likeCounts) {
+        lock.writeLock().lock();
+        try {
+            likesByFilm.clear();
+            ranking.clear();
+            likeCounts.forEach((filmId, likes) -> {
+                likesByFilm.put(filmId, likes);
+                ranking.add(new Entry(likes, filmId));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Регистрирует новый фильм с нулём лайков
+     */
+    public void addFilm(int filmId) {
+        changeLikes(filmId, 0);
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        lock.readLock().lock();
+        changesStarted.incrementAndGet();
+        try {
+            // compute блокирует только запись этого фильма: изменения одного фильма идут строго по очереди
+            likesByFilm.compute(filmId, (id, current) -> {
+                int old = current == null ? 0 : current;
+                int updated = Math.max(0, old + delta);
+                if (current == null || updated != old) {
+                    ranking.remove(new Entry(old, id));
+                    ranking.add(new Entry(updated, id));
+                }
+                return updated;
+            });
+        } finally {
+            changesFinished.incrementAndGet();
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id самых популярных фильмов, не больше count
+     */
+    public List<Integer> top(int count) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long finished = changesFinished.get();
+            long started = changesStarted.get();
+            if (started == finished) {
+                List<Integer> ids = collectTop(count);
+                if (changesStarted.get() == started) {
+                    return ids;
+                }
+            }
+            Thread.onSpinWait();
+        }
+
+        lock.writeLock().lock();
+        try {
+            return collectTop(count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getLikes(int filmId) {
+        return likesByFilm.getOrDefault(filmId, 0);
+    }
+
+    private List<Integer> collectTop(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (Entry entry : ranking) {
+            if (ids.size() == count) break;
+            ids.add(entry.filmId());
+        }
+        return ids;
+    }
+
+    private record Entry(int likes, int filmId) {
+    }
+}
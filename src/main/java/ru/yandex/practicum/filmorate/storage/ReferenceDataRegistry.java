@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.*;
+
+/**
+ * Справочники жанров и рейтингов MPA в памяти.
+ * Таблицы genres и mpa статичны (заполняются миграцией V3__seed_data.sql), поэтому читаются один раз при старте;
+ * после изменения справочников в БД нужно вызвать refresh().
+ * Снимок неизменяемый и заменяется целиком, читатели работают без блокировок.
+ */
+@Component
+@Slf4j
+public class ReferenceDataRegistry {
+
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataRegistry(GenreStorage genreStorage, MpaStorage mpaStorage) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+    }
+
+    @PostConstruct
+    public void refresh() {
+        Map<Integer, Genre> genres = new LinkedHashMap<>();
+        for (Genre genre : genreStorage.findAll()) {
+            genres.put(genre.getId(), genre);
+        }
+
+        Map<Integer, Mpa> mpa = new LinkedHashMap<>();
+        for (Mpa rating : mpaStorage.getAll()) {
+            mpa.put(rating.getId(), rating);
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableMap(genres), Collections.unmodifiableMap(mpa));
+        log.info("Справочники загружены: жанров {}, рейтингов MPA {}", genres.size(), mpa.size());
+    }
+
+    public List<Genre> getGenres() {
+        return List.copyOf(current().genres().values());
+    }
+
+    public Optional<Genre> getGenre(int id) {
+        return Optional.ofNullable(current().genres().get(id));
+    }
+
+    public List<Mpa> getAllMpa() {
+        return List.copyOf(current().mpa().values());
+    }
+
+    public Optional<Mpa> getMpa(int id) {
+        return Optional.ofNullable(current().mpa().get(id));
+    }
+
+    // При создании вне Spring (тесты) справочники загружаются при первом обращении
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(Map<Integer, Genre> genres, Map<Integer, Mpa> mpa) {
+    }
+}
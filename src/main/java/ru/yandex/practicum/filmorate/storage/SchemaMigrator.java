@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Версионные миграции схемы вместо выполнения schema.sql и data.sql при каждом старте.
+ * <p>
+ * Скрипты лежат в classpath:db/migration и называются V{версия}__{описание}.sql.
+ * Применённые версии записываются в таблицу schema_version вместе с контрольной суммой,
+ * при старте выполняются только новые скрипты, так что время запуска не зависит от объёма данных.
+ * Изменять уже применённый скрипт нельзя: несовпадение контрольной суммы останавливает запуск,
+ * правки оформляются новой версией.
+ * <p>
+ * Бины с JdbcTemplate создаются после миграций (см. SchemaMigratorDetector).
+ */
+@Component
+@Slf4j
+public class SchemaMigrator {
+
+    private static final String LOCATION = "classpath:db/migration/V*__*.sql";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String CREATE_VERSION_TABLE = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INT PRIMARY KEY,
+                description VARCHAR(255) NOT NULL,
+                checksum BIGINT NOT NULL,
+                installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+                execution_ms BIGINT NOT NULL
+            )
+            """;
+
+    private static final String SELECT_APPLIED =
+            "SELECT version, checksum FROM schema_version";
+
+    private static final String INSERT_APPLIED =
+            "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    // собственный JdbcTemplate: общий бин создаётся только после миграций
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void init() {
+        migrate();
+    }
+
+    /**
+     * Применяет ещё не выполненные миграции по возрастанию версии.
+     * @return число применённых миграций
+     */
+    public synchronized int migrate() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute(CREATE_VERSION_TABLE);
+
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query(SELECT_APPLIED, rs -> {
+            applied.put(rs.getInt("version"), rs.getLong("checksum"));
+        });
+
+        int count = 0;
+        int current = 0;
+        for (Migration migration : findMigrations()) {
+            Long checksum = applied.get(migration.version());
+            if (checksum == null) {
+                apply(migration);
+                count++;
+            } else if (checksum != migration.checksum()) {
+                throw new IllegalStateException("Миграция V" + migration.version()
+                        + " изменена после применения, оформите изменения новой версией");
+            }
+            current = migration.version();
+        }
+
+        log.info("Схема БД актуальна: версия {}, применено миграций {} за {} мс",
+                current, count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    private void apply(Migration migration) {
+        long start = System.currentTimeMillis();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.script(), StandardCharsets.UTF_8));
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        jdbcTemplate.update(INSERT_APPLIED, migration.version(), migration.description(),
+                migration.checksum(), elapsed);
+        log.info("Применена миграция V{}: {} ({} мс)", migration.version(), migration.description(), elapsed);
+    }
+
+    private List<Migration> findMigrations() {
+        Resource[] scripts;
+        try {
+            scripts = new PathMatchingResourcePatternResolver().getResources(LOCATION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать скрипты миграций", e);
+        }
+
+        Map<Integer, Migration> byVersion = new TreeMap<>();
+        for (Resource script : scripts) {
+            Matcher name = SCRIPT_NAME.matcher(Objects.requireNonNull(script.getFilename()));
+            if (!name.matches()) continue;
+
+            Migration migration = new Migration(Integer.parseInt(name.group(1)),
+                    name.group(2).replace('_', ' '), checksum(script), script);
+            Migration duplicate = byVersion.put(migration.version(), migration);
+            if (duplicate != null) {
+                throw new IllegalStateException("Две миграции с версией " + migration.version());
+            }
+        }
+        return List.copyOf(byVersion.values());
+    }
+
+    private static long checksum(Resource script) {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(StreamUtils.copyToByteArray(script.getInputStream()));
+            return crc.getValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать миграцию " + script.getFilename(), e);
+        }
+    }
+
+    private record Migration(int version, String description, long checksum, Resource script) {
+    }
+}
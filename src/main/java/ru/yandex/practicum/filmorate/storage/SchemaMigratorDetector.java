@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Set;
+
+/**
+ * Сообщает Spring Boot, что SchemaMigrator инициализирует БД:
+ * бины, работающие с JdbcTemplate, создаются только после применения миграций.
+ * Зарегистрирован в META-INF/spring.factories.
+ */
+public class SchemaMigratorDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(SchemaMigrator.class);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import ru.yandex.practicum.filmorate.Enum.StorageMode;
+
+import java.util.Map;
+
+/**
+ * Проверяет filmorate.storage.mode при старте и для режимов без файла
+ * переключает источник данных на H2 в памяти (имя базы — filmorate.storage.mem-db-name).
+ * Какие реализации FilmStorage/UserStorage создаются, решают условия на самих классах.
+ * Зарегистрирован в META-INF/spring.factories.
+ */
+public class StorageModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String MEM_URL = "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        StorageMode mode = StorageMode.of(environment.getProperty(StorageMode.PROPERTY,
+                StorageMode.H2_FILE.getValue()));
+        if (mode.usesFileDatabase()) return;
+
+        String name = environment.getProperty("filmorate.storage.mem-db-name", "filmorate");
+        environment.getPropertySources().addFirst(new MapPropertySource("filmorateStorageMode",
+                Map.of("spring.datasource.url", MEM_URL.formatted(name))));
+    }
+}
@@ -1,11 +1,20 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -18,6 +27,8 @@ import java.util.*;
  * односторонняя дружба (заявка -> CONFIRMED после подтверждения)
  */
 @Component
+@ConditionalOnExpression("'${filmorate.storage.mode:h2-file}'.startsWith('h2')")
+@Qualifier("userStorageBackend")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
 
@@ -28,18 +39,31 @@ public class UserDbStorage implements UserStorage {
     private static final String INSERT_USER =
             "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
 
-    private static final String SELECT_LAST_USER_ID =
-            "SELECT MAX(id) FROM users";
-
     private static final String UPDATE_USER =
             "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
 
     private static final String SELECT_USER_BY_ID =
             "SELECT id, email, login, name, birthday FROM users WHERE id = ?";
 
+    private static final String SELECT_USER_EXISTS =
+            "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)";
+
+    private static final String COUNT_USERS_BY_IDS =
+            "SELECT COUNT(*) FROM users WHERE id = ANY(?)";
+
+    private static final String SELECT_EXISTING_USER_IDS =
+            "SELECT id FROM users WHERE id = ANY(?)";
+
+    private static final String SELECT_USERS_BY_IDS =
+            "SELECT id, email, login, name, birthday FROM users WHERE id = ANY(?)";
+
     private static final String SELECT_ALL_USERS =
             "SELECT id, email, login, name, birthday FROM users";
 
+    // Keyset-пагинация по первичному ключу
+    private static final String SELECT_USERS_PAGE =
+            "SELECT id, email, login, name, birthday FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
     private static final String ADD_FRIEND =
             "MERGE INTO user_friends (user_id, friend_id, status) KEY (user_id, friend_id) VALUES (?, ?, ?)";
 
@@ -49,45 +73,77 @@ public class UserDbStorage implements UserStorage {
     private static final String REMOVE_FRIEND =
             "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
 
-    private static final String SELECT_FRIENDS =
+    static final String SELECT_FRIENDS =
             "SELECT u.id, u.email, u.login, u.name, u.birthday, uf.status " +
                     "FROM users u " +
                     "JOIN user_friends uf ON u.id = uf.friend_id " +
                     "WHERE uf.user_id = ?";
 
-    private static final String SELECT_COMMON_FRIENDS =
+    static final String SELECT_COMMON_FRIENDS =
             "SELECT u.id, u.email, u.login, u.name, u.birthday " +
                     "FROM users u " +
                     "JOIN user_friends uf1 ON u.id = uf1.friend_id " +
                     "JOIN user_friends uf2 ON u.id = uf2.friend_id " +
                     "WHERE uf1.user_id = ? AND uf2.user_id = ?";
 
-    private static final String SELECT_USER_FRIENDS_WITH_STATUS =
-            "SELECT friend_id, status FROM user_friends WHERE user_id = ?";
+    // Id друзей набора пользователей: порядок первичного ключа (user_id, friend_id)
+    static final String SELECT_FRIEND_IDS_BY_USER_IDS =
+            "SELECT user_id, friend_id FROM user_friends WHERE user_id = ANY(?) ORDER BY user_id, friend_id";
+
+    // Друзья загружаются одним запросом на весь набор пользователей
+    private static final String SELECT_FRIENDS_BY_USER_IDS =
+            "SELECT user_id, friend_id, status FROM user_friends WHERE user_id = ANY(?)";
 
     // СRUD
 
+    // id берётся из сгенерированных ключей своего INSERT, а не MAX(id), который видит чужие вставки
     @Override
     public User create(User user) {
-        jdbcTemplate.update(
-                INSERT_USER,
-                user.getEmail(),
-                user.getLogin(),
-                user.getName(),
-                user.getBirthday()
-        );
+        KeyHolder keyHolder = new GeneratedKeyHolder();
 
-        Integer id = jdbcTemplate.queryForObject(SELECT_LAST_USER_ID, Integer.class);
-        user.setId(Objects.requireNonNull(id));
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_USER, new String[]{"id"});
+            setUserParameters(ps, user);
+            return ps;
+        }, keyHolder);
 
+        user.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
         return user;
     }
 
     @Override
-    public User update(User user) {
-        getById(user.getId());
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        if (users.isEmpty()) return users;
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_USER, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setUserParameters(ps, users.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                },
+                keyHolder
+        );
 
-        jdbcTemplate.update(
+        // ключи возвращаются в порядке строк пакета
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+        return users;
+    }
+
+    @Override
+    public User update(User user) {
+        int updated = jdbcTemplate.update(
                 UPDATE_USER,
                 user.getEmail(),
                 user.getLogin(),
@@ -95,6 +151,9 @@ public class UserDbStorage implements UserStorage {
                 user.getBirthday(),
                 user.getId()
         );
+        if (updated == 0) {
+            throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
+        }
 
         return user;
     }
@@ -106,15 +165,81 @@ public class UserDbStorage implements UserStorage {
                 (rs, rowNum) -> mapRowToUser(rs),
                 id
         );
-        return users.stream().findFirst();
+        return loadFriends(users).stream().findFirst();
     }
 
     @Override
     public List<User> findAll() {
-        return jdbcTemplate.query(
+        return findAll(true);
+    }
+
+    @Override
+    public List<User> findAll(boolean withFriends) {
+        List<User> users = jdbcTemplate.query(
                 SELECT_ALL_USERS,
                 (rs, rowNum) -> mapRowToUser(rs)
         );
+        return withFriends ? loadFriends(users) : users;
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit, boolean withFriends) {
+        List<User> users = jdbcTemplate.query(
+                SELECT_USERS_PAGE,
+                (rs, rowNum) -> mapRowToUser(rs),
+                afterId,
+                limit
+        );
+        return withFriends ? loadFriends(users) : users;
+    }
+
+    @Override
+    public List<User> getByIds(List<Integer> ids, boolean withFriends) {
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        Map<Integer, User> found = new HashMap<>();
+        jdbcTemplate.query(
+                SELECT_USERS_BY_IDS,
+                (RowCallbackHandler) rs -> {
+                    User user = mapRowToUser(rs);
+                    found.put(user.getId(), user);
+                },
+                (Object) ids.toArray(new Integer[0])
+        );
+
+        List<User> users = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return withFriends ? loadFriends(users) : users;
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_USER_EXISTS, Boolean.class, id));
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        Integer[] distinct = Arrays.stream(ids).distinct().boxed().toArray(Integer[]::new);
+        if (distinct.length == 0) return true;
+
+        Integer found = jdbcTemplate.queryForObject(COUNT_USERS_BY_IDS, Integer.class, (Object) distinct);
+        return found != null && found == distinct.length;
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) return Set.of();
+
+        return new HashSet<>(jdbcTemplate.queryForList(
+                SELECT_EXISTING_USER_IDS,
+                Integer.class,
+                (Object) ids.toArray(new Integer[0])
+        ));
     }
 
     // ===== Friends =====
@@ -150,7 +275,12 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public List<User> getFriends(int userId) {
-        return jdbcTemplate.query(
+        return getFriends(userId, true);
+    }
+
+    @Override
+    public List<User> getFriends(int userId, boolean withFriends) {
+        List<User> friends = jdbcTemplate.query(
                 SELECT_FRIENDS,
                 (rs, rowNum) -> {
                     User user = mapRowToUser(rs);
@@ -160,20 +290,77 @@ public class UserDbStorage implements UserStorage {
                 },
                 userId
         );
+        return withFriends ? loadFriends(friends) : friends;
+    }
+
+    @Override
+    public int[][] getFriendIds(int[] userIds) {
+        Map<Integer, List<Integer>> found = new HashMap<>();
+        if (userIds.length > 0) {
+            jdbcTemplate.query(
+                    SELECT_FRIEND_IDS_BY_USER_IDS,
+                    (RowCallbackHandler) rs -> found
+                            .computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>())
+                            .add(rs.getInt("friend_id")),
+                    (Object) Arrays.stream(userIds).distinct().boxed().toArray(Integer[]::new)
+            );
+        }
+
+        int[][] friendIds = new int[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            friendIds[i] = found.getOrDefault(userIds[i], List.of()).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return friendIds;
     }
 
     @Override
     public List<User> getCommonFriends(int userId, int otherId) {
-        return jdbcTemplate.query(
+        return getCommonFriends(userId, otherId, true);
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int otherId, boolean withFriends) {
+        List<User> common = jdbcTemplate.query(
                 SELECT_COMMON_FRIENDS,
                 (rs, rowNum) -> mapRowToUser(rs),
                 userId,
                 otherId
         );
+        return withFriends ? loadFriends(common) : common;
     }
 
     /**
-     * Маппинг ResultSet → User + загрузка друзей
+     * Заполняет карту друзей сразу для всего списка пользователей одним запросом
+     */
+    private List<User> loadFriends(List<User> users) {
+        if (users.isEmpty()) return users;
+
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+        }
+
+        jdbcTemplate.query(
+                SELECT_FRIENDS_BY_USER_IDS,
+                (RowCallbackHandler) rs -> usersById.get(rs.getInt("user_id")).getFriends().put(
+                        rs.getInt("friend_id"),
+                        FriendshipStatus.valueOf(rs.getString("status"))
+                ),
+                (Object) usersById.keySet().toArray(new Integer[0])
+        );
+
+        return users;
+    }
+
+    private static void setUserParameters(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getEmail());
+        ps.setString(2, user.getLogin());
+        ps.setString(3, user.getName());
+        ps.setObject(4, user.getBirthday());
+    }
+
+    /**
+     * Маппинг ResultSet → User (без друзей, они догружаются в loadFriends)
      */
     private User mapRowToUser(ResultSet rs) throws SQLException {
         User user = new User();
@@ -186,15 +373,6 @@ public class UserDbStorage implements UserStorage {
             user.setBirthday(rs.getDate("birthday").toLocalDate());
         }
 
-        List<Map<String, Object>> friendList =
-                jdbcTemplate.queryForList(SELECT_USER_FRIENDS_WITH_STATUS, user.getId());
-
-        for (Map<String, Object> f : friendList) {
-            int friendId = (Integer) f.get("friend_id");
-            FriendshipStatus status = FriendshipStatus.valueOf((String) f.get("status"));
-            user.getFriends().put(friendId, status);
-        }
-
         return user;
     }
 }
\ No newline at end of file
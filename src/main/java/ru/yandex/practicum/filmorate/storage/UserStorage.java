@@ -1,19 +1,57 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserStorage {
 
     User create(User user);
 
+    /**
+     * Пакетное создание: пользователи вставляются одной транзакцией, каждому присваивается id.
+     * @return те же объекты в исходном порядке
+     */
+    List<User> createAll(List<User> users);
+
     User update(User user);
 
     Optional<User> getById(int id);
 
     List<User> findAll();
 
+    /**
+     * Id из переданных, для которых пользователь существует; проверка одним запросом.
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
+    /**
+     * Страница пользователей по ключу: id больше afterId, по возрастанию id, не больше limit штук.
+     */
+    List<User> findPage(int afterId, int limit, boolean withFriends);
+
+    /**
+     * Пользователи по списку id в том же порядке; отсутствующие id пропускаются.
+     */
+    List<User> getByIds(List<Integer> ids, boolean withFriends);
+
+    /**
+     * Проверка существования без загрузки пользователя и его друзей.
+     */
+    boolean exists(int id);
+
+    /**
+     * @return true, если существуют все перечисленные пользователи (повторы id допустимы)
+     */
+    boolean existsAll(int... ids);
+
+    /**
+     * Вариант без загрузки карты друзей — для ответов, где друзья не отдаются (UserDto).
+     */
+    List<User> findAll(boolean withFriends);
+
     void addFriend(int userId, int friendId);
 
     void confirmFriend(int userId, int friendId);
@@ -22,5 +60,15 @@ public interface UserStorage {
 
     List<User> getFriends(int userId);
 
+    List<User> getFriends(int userId, boolean withFriends);
+
+    /**
+     * Отсортированные id друзей каждого из пользователей, в порядке userIds;
+     * у несуществующего пользователя — пустой массив.
+     */
+    int[][] getFriendIds(int[] userIds);
+
     List<User> getCommonFriends(int userId, int otherId);
+
+    List<User> getCommonFriends(int userId, int otherId, boolean withFriends);
 }
\ No newline at end of file
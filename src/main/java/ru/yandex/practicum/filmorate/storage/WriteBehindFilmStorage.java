@@ -0,0 +1,468 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Отложенная запись лайков (write-behind) поверх кэширующего хранилища фильмов.
+ * Включается свойством filmorate.likes.write-behind.enabled; в выключенном режиме вызовы просто передаются дальше.
+ * <p>
+ * addLike/removeLike меняют только буфер в памяти: для пары фильм-пользователь хранится итоговое состояние,
+ * поэтому лайк и его снятие схлопываются. Буфер пишется в БД пакетом applyLikes по таймеру
+ * или при заполнении. Чтения накладывают отложенные изменения на данные хранилища,
+ * так что лайк виден сразу. При остановке приложения буфер сбрасывается.
+ * <p>
+ * Размер буфера ограничен: при max-pending * HARD_LIMIT_FACTOR изменений вызывающий поток сам пишет
+ * буфер в хранилище до того, как добавить своё изменение. Если запись не удалась (БД недоступна),
+ * изменение отклоняется исключением и в буфер не попадает. Изменение, принятое в буфер, ошибкой
+ * не завершается: сбросы после него идут в фоне и при неудаче повторяются.
+ * Метрики — getStats() и GET /metrics/likes/write-behind.
+ */
+@Component
+@Slf4j
+public class WriteBehindFilmStorage implements FilmStorage {
+
+    // во столько раз выше порога сброса буфер не растёт: новые изменения ждут записи или отклоняются
+    public static final int HARD_LIMIT_FACTOR = 4;
+
+    private final FilmStorage delegate;
+    private final boolean enabled;
+    private final int maxPending;
+    private final long flushIntervalMillis;
+
+    // Изменения буфера идут параллельно под read lock, подмена буфера перед сбросом — под write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object flushMonitor = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private volatile Buffer pending = new Buffer();
+    // буфер, который сейчас пишется в БД; пока запись не завершена, он участвует в чтениях
+    private volatile Buffer inflight = Buffer.EMPTY;
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedChanges = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong rejectedChanges = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+
+    public WriteBehindFilmStorage(
+            @Qualifier("cachingFilmStorage") FilmStorage delegate,
+            @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+            @Value("${filmorate.likes.write-behind.max-pending:1000}") int maxPending,
+            @Value("${filmorate.likes.write-behind.flush-interval-ms:200}") long flushIntervalMillis
+    ) {
+        this.delegate = delegate;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "likes-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("Отложенная запись лайков включена: сброс каждые {} мс или при {} изменениях",
+                flushIntervalMillis, maxPending);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        flush();
+        log.info("Буфер лайков сброшен при остановке: {}", getStats());
+    }
+
+    // ===== Лайки =====
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        return enabled ? buffer(filmId, userId, true) : delegate.addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        return enabled ? buffer(filmId, userId, false) : delegate.removeLike(filmId, userId);
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
+        Boolean buffered = pending.target(filmId, userId);
+        if (buffered != null) return buffered;
+        Boolean flushing = inflight.target(filmId, userId);
+        return flushing != null ? flushing : delegate.hasLike(filmId, userId);
+    }
+
+    /**
+     * Пакет идёт напрямую в хранилище; буфер перед этим сбрасывается, чтобы сохранить порядок изменений.
+     */
+    @Override
+    public boolean[] applyLikes(List<LikeChange> changes) {
+        flush();
+        return delegate.applyLikes(changes);
+    }
+
+    /**
+     * Записывает накопленные изменения в хранилище одним пакетом.
+     * При ошибке изменения возвращаются в буфер и уйдут со следующим сбросом.
+     */
+    public void flush() {
+        synchronized (flushMonitor) {
+            Buffer batch;
+            swapLock.writeLock().lock();
+            try {
+                batch = pending;
+                if (batch.isEmpty()) return;
+                pending = new Buffer();
+                inflight = batch;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            List<LikeChange> changes = batch.toChanges();
+            long start = System.nanoTime();
+            try {
+                delegate.applyLikes(changes);
+            } catch (RuntimeException e) {
+                failedFlushes.incrementAndGet();
+                requeue(batch);
+                throw e;
+            }
+            inflight = Buffer.EMPTY;
+
+            long elapsed = System.nanoTime() - start;
+            flushes.incrementAndGet();
+            flushedChanges.addAndGet(changes.size());
+            totalFlushNanos.addAndGet(elapsed);
+            lastFlushNanos = elapsed;
+            maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+            log.debug("Сброшено изменений лайков: {} за {} мкс", changes.size(), elapsed / 1000);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(
+                pending.size() + inflight.size(),
+                flushes.get(),
+                flushedChanges.get(),
+                failedFlushes.get(),
+                rejectedChanges.get(),
+                lastFlushNanos / 1000,
+                maxFlushNanos / 1000,
+                totalFlushNanos.get() / 1000
+        );
+    }
+
+    private boolean buffer(int filmId, int userId, boolean liked) {
+        reserveCapacity();
+        boolean changed;
+        swapLock.readLock().lock();
+        try {
+            changed = pending.apply(filmId, userId, liked, () -> baseline(filmId, userId));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        afterWrite();
+        return changed;
+    }
+
+    // Состояние лайка без учёта текущего буфера: записываемый пакет или хранилище
+    private boolean baseline(int filmId, int userId) {
+        Boolean flushing = inflight.target(filmId, userId);
+        return flushing != null ? flushing : delegate.hasLike(filmId, userId);
+    }
+
+    // Буфер у жёсткого предела: сначала запись в хранилище; ошибка отклоняет изменение до буферизации
+    private void reserveCapacity() {
+        if (pending.size() < maxPending * HARD_LIMIT_FACTOR) return;
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            rejectedChanges.incrementAndGet();
+            throw e;
+        }
+    }
+
+    // Изменение уже в буфере, поэтому сброс здесь не бросает исключений
+    private void afterWrite() {
+        if (pending.size() < maxPending) return;
+
+        if (flusher == null) {
+            flushQuietly();
+        } else if (flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать лайки, повтор при следующем сбросе", e);
+        }
+    }
+
+    // Новые изменения сделаны поверх неудавшегося пакета, поэтому их исходное состояние берётся из пакета
+    private void requeue(Buffer batch) {
+        swapLock.writeLock().lock();
+        try {
+            pending.forEach((filmId, userId, change) -> batch.compose(filmId, userId, change));
+            pending = batch;
+            inflight = Buffer.EMPTY;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    // ===== Чтения с наложением буфера =====
+
+    @Override
+    public Optional<Film> getById(int id) {
+        Buffer buffered = pending;
+        Buffer flushing = inflight;
+        return delegate.getById(id).map(film -> overlay(film, flushing, buffered));
+    }
+
+    @Override
+    public List<Film> findAll() {
+        Buffer buffered = pending;
+        Buffer flushing = inflight;
+        return overlay(delegate.findAll(), flushing, buffered);
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        Buffer buffered = pending;
+        Buffer flushing = inflight;
+        return overlay(delegate.findPage(afterId, limit), flushing, buffered);
+    }
+
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        Buffer buffered = pending;
+        Buffer flushing = inflight;
+        return overlay(delegate.getByIds(ids), flushing, buffered);
+    }
+
+    /**
+     * Порядок строится по likes_count в хранилище, поэтому буфер сначала сбрасывается.
+     */
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        flush();
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        flush();
+        return delegate.getLikeCounts();
+    }
+
+    private List<Film> overlay(List<Film> films, Buffer flushing, Buffer buffered) {
+        if (flushing.isEmpty() && buffered.isEmpty()) return films;
+        return films.stream()
+                .map(film -> overlay(film, flushing, buffered))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Сначала записываемый пакет, затем более новый буфер. Ссылки на буферы берутся до чтения хранилища:
+     * если пакет успел записаться, повторное наложение ничего не меняет.
+     */
+    private Film overlay(Film film, Buffer flushing, Buffer buffered) {
+        Map<Integer, Pending> older = flushing.changesOf(film.getId());
+        Map<Integer, Pending> newer = buffered.changesOf(film.getId());
+        if (older.isEmpty() && newer.isEmpty()) return film;
+
+        IntHashSet likes = IntHashSet.copyOf(film.getLikes());
+        older.forEach((userId, change) -> applyTo(likes, userId, change.target()));
+        newer.forEach((userId, change) -> applyTo(likes, userId, change.target()));
+        return withLikes(film, likes);
+    }
+
+    private static void applyTo(IntHashSet likes, int userId, boolean liked) {
+        if (liked) {
+            likes.add(userId);
+        } else {
+            likes.remove(userId);
+        }
+    }
+
+    // Копия, чтобы не менять объект, который может лежать в кэше
+    private static Film withLikes(Film film, IntHashSet likes) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setMpa(film.getMpa());
+        copy.setGenres(new LinkedHashSet<>(film.getGenres()));
+        copy.setLikes(likes);
+        return copy;
+    }
+
+    // ===== Остальное без изменений =====
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public Film update(Film film) {
+        Buffer buffered = pending;
+        Buffer flushing = inflight;
+        return overlay(delegate.update(film), flushing, buffered);
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return delegate.exists(id);
+    }
+
+    @Override
+    public boolean existsAll(int... ids) {
+        return delegate.existsAll(ids);
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    /**
+     * Отложенное изменение: состояние лайка в хранилище (baseline) и требуемое (target).
+     * Если они совпадают, изменения нет и запись из буфера удаляется.
+     */
+    private record Pending(boolean baseline, boolean target) {
+    }
+
+    private interface PendingConsumer {
+        void accept(int filmId, int userId, Pending change);
+    }
+
+    /**
+     * Буфер изменений: фильм -> (пользователь -> изменение).
+     */
+    private static final class Buffer {
+
+        static final Buffer EMPTY = new Buffer();
+
+        private final Map<Integer, Map<Integer, Pending>> byFilm = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * @return true, если итоговое состояние лайка изменилось
+         */
+        boolean apply(int filmId, int userId, boolean liked, BooleanSupplier baseline) {
+            Map<Integer, Pending> changes = byFilm.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>());
+            // исходное состояние читается вне compute, чтобы не держать блокировку корзины во время запроса
+            Pending known = changes.get(userId);
+            boolean base = known != null ? known.baseline() : baseline.getAsBoolean();
+
+            boolean[] changed = new boolean[1];
+            changes.compute(userId, (id, current) -> {
+                Pending before = current != null ? current : new Pending(base, base);
+                changed[0] = before.target() != liked;
+                Pending after = liked == before.baseline() ? null : new Pending(before.baseline(), liked);
+                if (current == null && after != null) size.incrementAndGet();
+                if (current != null && after == null) size.decrementAndGet();
+                return after;
+            });
+            return changed[0];
+        }
+
+        // Вызывается под write lock, когда конкурентных изменений нет
+        void compose(int filmId, int userId, Pending newer) {
+            Map<Integer, Pending> changes = byFilm.computeIfAbsent(filmId, id -> new ConcurrentHashMap<>());
+            Pending older = changes.get(userId);
+            boolean base = older != null ? older.baseline() : newer.baseline();
+            if (older != null) size.decrementAndGet();
+            if (base == newer.target()) {
+                changes.remove(userId);
+            } else {
+                changes.put(userId, new Pending(base, newer.target()));
+                size.incrementAndGet();
+            }
+        }
+
+        Boolean target(int filmId, int userId) {
+            Pending change = changesOf(filmId).get(userId);
+            return change == null ? null : change.target();
+        }
+
+        Map<Integer, Pending> changesOf(int filmId) {
+            return byFilm.getOrDefault(filmId, Map.of());
+        }
+
+        void forEach(PendingConsumer consumer) {
+            byFilm.forEach((filmId, changes) ->
+                    changes.forEach((userId, change) -> consumer.accept(filmId, userId, change)));
+        }
+
+        // Сначала все добавления, затем удаления: applyLikes отправит их двумя пакетами
+        List<LikeChange> toChanges() {
+            List<LikeChange> changes = new ArrayList<>(size());
+            forEach((filmId, userId, change) -> changes.add(new LikeChange(filmId, userId,
+                    change.target() ? LikeOperation.ADD : LikeOperation.REMOVE)));
+            changes.sort(Comparator.comparing(LikeChange::getOperation)
+                    .thenComparingInt(LikeChange::getFilmId));
+            return changes;
+        }
+
+        int size() {
+            return size.get();
+        }
+
+        boolean isEmpty() {
+            return size.get() == 0;
+        }
+    }
+
+    /**
+     * Метрики буфера: глубина (ещё не записанные изменения), число сбросов и записанных изменений,
+     * неудачные сбросы, отклонённые у жёсткого предела изменения, время последнего, самого долгого
+     * и всех сбросов в микросекундах.
+     */
+    public record Stats(int pendingChanges, long flushes, long flushedChanges, long failedFlushes,
+                        long rejectedChanges, long lastFlushMicros, long maxFlushMicros, long totalFlushMicros) {
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченный кэш сущностей: вытеснение по LRU и время жизни записи (TTL).
+ * Все операции синхронизированы; загрузка при промахе идёт вне блокировки.
+ * <p>
+ * Чтобы загрузка, начатая до invalidate(), не положила в кэш устаревшее значение,
+ * кэш ведёт счётчик инвалидаций: результат загрузки сохраняется, только если
+ * за время загрузки инвалидаций не было.
+ */
+public class EntityCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long invalidations;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public EntityCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::nanoTime);
+    }
+
+    /**
+     * @param clock источник времени в наносекундах (в тестах — управляемый)
+     */
+    public EntityCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.clock = clock;
+        // accessOrder = true: порядок обхода от давно использованных к недавним
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Значение из кэша или результат loader; null от loader не кэшируется.
+     */
+    public V get(K key, Function<K, V> loader) {
+        long stamp;
+        synchronized (this) {
+            V cached = lookup(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            stamp = invalidations;
+        }
+
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            putIfNotInvalidated(key, loaded, stamp);
+        }
+        return loaded;
+    }
+
+    /**
+     * Пакетный вариант: недостающие ключи загружаются одним вызовом loader.
+     * Результат в порядке keys, ключи без значения пропускаются.
+     */
+    public List<V> getAll(List<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, V> found = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        long stamp;
+        synchronized (this) {
+            for (K key : keys) {
+                V cached = lookup(key);
+                if (cached != null) {
+                    hits++;
+                    found.put(key, cached);
+                } else {
+                    misses++;
+                    missing.add(key);
+                }
+            }
+            stamp = invalidations;
+        }
+
+        if (!missing.isEmpty()) {
+            Map<K, V> loaded = loader.apply(missing);
+            synchronized (this) {
+                loaded.forEach((key, value) -> putIfNotInvalidated(key, value, stamp));
+            }
+            found.putAll(loaded);
+        }
+
+        List<V> result = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Есть ли живая запись для ключа; загрузку не запускает, промахом не считается.
+     */
+    public synchronized boolean contains(K key) {
+        if (lookup(key) == null) return false;
+        hits++;
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, expirations, entries.size());
+    }
+
+    private V lookup(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) return null;
+        if (clock.getAsLong() - entry.loadedAt() >= ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            return null;
+        }
+        return entry.value();
+    }
+
+    private synchronized void putIfNotInvalidated(K key, V value, long stamp) {
+        if (stamp != invalidations) return;
+
+        entries.put(key, new Entry<>(value, clock.getAsLong()));
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+
+    /**
+     * Счётчики кэша с момента создания.
+     * evictions — вытеснения по размеру, expirations — записи, устаревшие по TTL.
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int size) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package ru.yandex.practicum.filmorate.util;
+
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Граф дружбы в памяти: сжатые строки (CSR) плюс слой последних изменений.
+ * <p>
+ * Основа — три массива: offsets[userId]..offsets[userId + 1] задают в targets отсортированные
+ * id друзей пользователя, в statuses — их статусы. Массивы не меняются после построения.
+ * addFriend/confirmFriend/removeFriend пишутся в delta (userId -> friendId -> статус или REMOVED).
+ * Чтение накладывает delta на строку основы.
+ * <p>
+ * compact() переносит изменения в новые массивы, не останавливая чтение и запись.
+ * Текущая delta замораживается (frozen), новые изменения идут в свежую delta.
+ * Новая основа строится из старой и frozen без блокировки, затем подменяется.
+ */
+public class FriendGraph {
+
+    private static final byte REMOVED = -1;
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+
+    private Csr base = Csr.EMPTY;
+    private Map<Integer, Map<Integer, Byte>> frozen = Map.of();
+    private Map<Integer, Map<Integer, Byte>> delta = new HashMap<>();
+    private int deltaSize;
+
+    /**
+     * Строит основу по списку рёбер в любом порядке; пары (userId, friendId) не повторяются,
+     * как в первичном ключе user_friends.
+     */
+    public static FriendGraph build(int[] userIds, int[] friendIds, FriendshipStatus[] statuses, int edges) {
+        int maxUser = 0;
+        for (int i = 0; i < edges; i++) {
+            maxUser = Math.max(maxUser, userIds[i]);
+        }
+        int[] offsets = new int[maxUser + 2];
+        for (int i = 0; i < edges; i++) {
+            offsets[userIds[i] + 1]++;
+        }
+        for (int u = 0; u <= maxUser; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        // id друга в старших битах, статус в младших: сортировка строки упорядочит друзей
+        int[] cursor = Arrays.copyOf(offsets, offsets.length);
+        long[] packed = new long[edges];
+        for (int i = 0; i < edges; i++) {
+            packed[cursor[userIds[i]]++] = ((long) friendIds[i] << 8) | statuses[i].ordinal();
+        }
+        int[] targets = new int[edges];
+        byte[] statusBytes = new byte[edges];
+        for (int u = 0; u <= maxUser; u++) {
+            Arrays.sort(packed, offsets[u], offsets[u + 1]);
+        }
+        for (int i = 0; i < edges; i++) {
+            targets[i] = (int) (packed[i] >> 8);
+            statusBytes[i] = (byte) (packed[i] & 0xFF);
+        }
+
+        FriendGraph graph = new FriendGraph();
+        graph.base = new Csr(offsets, targets, statusBytes);
+        return graph;
+    }
+
+    // ===== Чтение =====
+
+    /**
+     * Отсортированные id друзей пользователя.
+     */
+    public int[] friends(int userId) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Byte> recent = delta.get(userId);
+            Map<Integer, Byte> older = frozen.get(userId);
+            if (recent == null && older == null) {
+                return base.row(userId);
+            }
+            TreeMap<Integer, Byte> merged = base.rowWithStatuses(userId);
+            apply(merged, older);
+            apply(merged, recent);
+            return merged.keySet().stream().mapToInt(Integer::intValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Статус дружбы userId -> friendId; null — если userId не добавлял friendId.
+     */
+    public FriendshipStatus status(int userId, int friendId) {
+        lock.readLock().lock();
+        try {
+            Byte status = override(delta, userId, friendId);
+            if (status == null) {
+                status = override(frozen, userId, friendId);
+            }
+            if (status == null) {
+                return base.status(userId, friendId);
+            }
+            return status == REMOVED ? null : FriendshipStatus.values()[status];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Карта друзей пользователя в формате User.getFriends().
+     */
+    public IntEnumMap<FriendshipStatus> friendMap(int userId) {
+        FriendshipStatus[] values = FriendshipStatus.values();
+        IntEnumMap<FriendshipStatus> map = new IntEnumMap<>(FriendshipStatus.class);
+        lock.readLock().lock();
+        try {
+            Map<Integer, Byte> recent = delta.get(userId);
+            Map<Integer, Byte> older = frozen.get(userId);
+            if (recent == null && older == null) {
+                base.forEach(userId, (friendId, status) -> map.put(friendId, values[status]));
+                return map;
+            }
+            TreeMap<Integer, Byte> merged = base.rowWithStatuses(userId);
+            apply(merged, older);
+            apply(merged, recent);
+            merged.forEach((friendId, status) -> map.put(friendId.intValue(), values[status]));
+            return map;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== Изменения =====
+
+    public void put(int userId, int friendId, FriendshipStatus status) {
+        write(userId, friendId, (byte) status.ordinal());
+    }
+
+    /**
+     * Меняет статус, только если дружба уже есть (как UPDATE в user_friends).
+     */
+    public void confirm(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            if (status(userId, friendId) != null) {
+                write(userId, friendId, (byte) FriendshipStatus.CONFIRMED.ordinal());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int userId, int friendId) {
+        write(userId, friendId, REMOVED);
+    }
+
+    private void write(int userId, int friendId, byte status) {
+        lock.writeLock().lock();
+        try {
+            if (delta.computeIfAbsent(userId, id -> new HashMap<>()).put(friendId, status) == null) {
+                deltaSize++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===== Сжатие =====
+
+    /**
+     * Число изменений, ещё не перенесённых в основу.
+     */
+    public int pendingChanges() {
+        lock.readLock().lock();
+        try {
+            return deltaSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Переносит накопленные изменения в массивы основы.
+     * @return число перенесённых изменений
+     */
+    public int compact() {
+        synchronized (compactionLock) {
+            Csr source;
+            Map<Integer, Map<Integer, Byte>> folding;
+            int folded;
+            lock.writeLock().lock();
+            try {
+                if (deltaSize == 0) return 0;
+                source = base;
+                folding = delta;
+                folded = deltaSize;
+                frozen = folding;
+                delta = new HashMap<>();
+                deltaSize = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Csr compacted = source.merge(folding);
+
+            lock.writeLock().lock();
+            try {
+                base = compacted;
+                frozen = Map.of();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return folded;
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(base.offsets.length - 1, base.targets.length, deltaSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Byte override(Map<Integer, Map<Integer, Byte>> layer, int userId, int friendId) {
+        Map<Integer, Byte> row = layer.get(userId);
+        return row == null ? null : row.get(friendId);
+    }
+
+    private static void apply(TreeMap<Integer, Byte> row, Map<Integer, Byte> changes) {
+        if (changes == null) return;
+        changes.forEach((friendId, status) -> {
+            if (status == REMOVED) {
+                row.remove(friendId);
+            } else {
+                row.put(friendId, status);
+            }
+        });
+    }
+
+    /**
+     * Неизменяемая основа графа.
+     */
+    private record Csr(int[] offsets, int[] targets, byte[] statuses) {
+
+        static final Csr EMPTY = new Csr(new int[1], NO_FRIENDS, new byte[0]);
+
+        int[] row(int userId) {
+            if (userId < 0 || userId + 1 >= offsets.length) return NO_FRIENDS;
+            return Arrays.copyOfRange(targets, offsets[userId], offsets[userId + 1]);
+        }
+
+        TreeMap<Integer, Byte> rowWithStatuses(int userId) {
+            TreeMap<Integer, Byte> row = new TreeMap<>();
+            forEach(userId, row::put);
+            return row;
+        }
+
+        void forEach(int userId, EdgeConsumer consumer) {
+            if (userId < 0 || userId + 1 >= offsets.length) return;
+            for (int i = offsets[userId]; i < offsets[userId + 1]; i++) {
+                consumer.accept(targets[i], statuses[i]);
+            }
+        }
+
+        FriendshipStatus status(int userId, int friendId) {
+            if (userId < 0 || userId + 1 >= offsets.length) return null;
+            int index = Arrays.binarySearch(targets, offsets[userId], offsets[userId + 1], friendId);
+            return index < 0 ? null : FriendshipStatus.values()[statuses[index]];
+        }
+
+        /**
+         * Новая основа: строки без изменений копируются целиком, изменённые сливаются.
+         */
+        Csr merge(Map<Integer, Map<Integer, Byte>> changes) {
+            int users = offsets.length - 1;
+            for (int userId : changes.keySet()) {
+                users = Math.max(users, userId + 1);
+            }
+
+            int[] newOffsets = new int[users + 1];
+            int[] newTargets = new int[targets.length + countAdditions(changes)];
+            byte[] newStatuses = new byte[newTargets.length];
+            int size = 0;
+            for (int u = 0; u < users; u++) {
+                newOffsets[u] = size;
+                Map<Integer, Byte> rowChanges = changes.get(u);
+                if (rowChanges == null) {
+                    if (u + 1 < offsets.length) {
+                        int length = offsets[u + 1] - offsets[u];
+                        System.arraycopy(targets, offsets[u], newTargets, size, length);
+                        System.arraycopy(statuses, offsets[u], newStatuses, size, length);
+                        size += length;
+                    }
+                    continue;
+                }
+                TreeMap<Integer, Byte> row = rowWithStatuses(u);
+                apply(row, rowChanges);
+                for (Map.Entry<Integer, Byte> entry : row.entrySet()) {
+                    newTargets[size] = entry.getKey();
+                    newStatuses[size] = entry.getValue();
+                    size++;
+                }
+            }
+            newOffsets[users] = size;
+            return new Csr(newOffsets, Arrays.copyOf(newTargets, size), Arrays.copyOf(newStatuses, size));
+        }
+
+        // верхняя граница числа новых рёбер
+        private static int countAdditions(Map<Integer, Map<Integer, Byte>> changes) {
+            int additions = 0;
+            for (Map<Integer, Byte> row : changes.values()) {
+                for (byte status : row.values()) {
+                    if (status != REMOVED) additions++;
+                }
+            }
+            return additions;
+        }
+    }
+
+    private interface EdgeConsumer {
+        void accept(int friendId, byte status);
+    }
+
+    /**
+     * @param users   размер индекса строк (максимальный id + 1)
+     * @param edges   рёбер в основе
+     * @param pending изменений в слое delta
+     */
+    public record Stats(int users, int edges, int pending) {
+    }
+}
@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Отображение int -> enum без упаковки: ключи в int[], значения — номера констант в byte[].
+ * Используется для друзей пользователя (id друга -> статус дружбы).
+ * <p>
+ * Как и IntHashSet, методы синхронизированы, а обход идёт по снимку.
+ */
+public class IntEnumMap<E extends Enum<E>> extends AbstractMap<Integer, E> {
+
+    private static final int[] EMPTY_KEYS = new int[0];
+    private static final byte[] EMPTY_VALUES = new byte[0];
+    private static final int FREE = 0;
+
+    private final E[] constants;
+
+    private int[] keys = EMPTY_KEYS;
+    private byte[] values = EMPTY_VALUES;
+    private E freeKeyValue; // значение для ключа 0; null — ключа нет
+    private int size;
+
+    public IntEnumMap(Class<E> type) {
+        this.constants = type.getEnumConstants();
+    }
+
+    public synchronized E put(int key, E value) {
+        Objects.requireNonNull(value);
+        if (key == FREE) {
+            E old = freeKeyValue;
+            freeKeyValue = value;
+            if (old == null) size++;
+            return old;
+        }
+        if (keys.length == 0 || (size + 1) * 4L > keys.length * 3L) {
+            resize(IntHashSet.capacityFor(size + 1));
+        }
+        int mask = keys.length - 1;
+        for (int i = IntHashSet.mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                E old = constants[values[i]];
+                values[i] = (byte) value.ordinal();
+                return old;
+            }
+            if (keys[i] == FREE) {
+                keys[i] = key;
+                values[i] = (byte) value.ordinal();
+                size++;
+                return null;
+            }
+        }
+    }
+
+    public synchronized E get(int key) {
+        if (key == FREE) return freeKeyValue;
+        int index = indexOf(key);
+        return index < 0 ? null : constants[values[index]];
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public synchronized E remove(int key) {
+        if (key == FREE) {
+            E old = freeKeyValue;
+            if (old != null) {
+                freeKeyValue = null;
+                size--;
+            }
+            return old;
+        }
+        int index = indexOf(key);
+        if (index < 0) return null;
+        E old = constants[values[index]];
+
+        int mask = keys.length - 1;
+        int hole = index;
+        for (int i = (hole + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+            int home = IntHashSet.mix(keys[i]) & mask;
+            boolean homeInRange = hole <= i
+                    ? hole < home && home <= i
+                    : hole < home || home <= i;
+            if (!homeInRange) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+        return old;
+    }
+
+    /**
+     * Снимок ключей в произвольном порядке
+     */
+    public synchronized int[] keyArray() {
+        int[] result = new int[size];
+        int n = 0;
+        if (freeKeyValue != null) {
+            result[n++] = FREE;
+        }
+        for (int key : keys) {
+            if (key != FREE) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized E computeIfPresent(Integer key,
+                                           BiFunction<? super Integer, ? super E, ? extends E> remapping) {
+        E old = get(key.intValue());
+        if (old == null) return null;
+        E updated = remapping.apply(key, old);
+        if (updated == null) {
+            remove(key.intValue());
+        } else {
+            put(key.intValue(), updated);
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        keys = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+        freeKeyValue = null;
+        size = 0;
+    }
+
+    @Override
+    public E put(Integer key, E value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public E get(Object key) {
+        return key instanceof Integer k ? get(k.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public E remove(Object key) {
+        return key instanceof Integer k ? remove(k.intValue()) : null;
+    }
+
+    @Override
+    public Set<Entry<Integer, E>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, E>> iterator() {
+                List<Entry<Integer, E>> snapshot = snapshot();
+                Iterator<Entry<Integer, E>> delegate = snapshot.iterator();
+                return new Iterator<>() {
+                    private Entry<Integer, E> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return delegate.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, E> next() {
+                        last = delegate.next();
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        IntEnumMap.this.remove(last.getKey().intValue());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntEnumMap.this.size();
+            }
+        };
+    }
+
+    private synchronized List<Entry<Integer, E>> snapshot() {
+        List<Entry<Integer, E>> entries = new ArrayList<>(size);
+        if (freeKeyValue != null) {
+            entries.add(new SimpleImmutableEntry<>(FREE, freeKeyValue));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                entries.add(new SimpleImmutableEntry<>(keys[i], constants[values[i]]));
+            }
+        }
+        return entries;
+    }
+
+    private int indexOf(int key) {
+        if (keys.length == 0) return -1;
+        int mask = keys.length - 1;
+        for (int i = IntHashSet.mix(key) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        byte[] oldValues = values;
+        keys = new int[capacity];
+        values = new byte[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == FREE) continue;
+            int i = IntHashSet.mix(oldKeys[j]) & mask;
+            while (keys[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+
+/**
+ * Множество int без упаковки в Integer: открытая адресация с линейным пробированием.
+ * Один элемент занимает 4-8 байт таблицы против ~50 байт у HashSet&lt;Integer&gt;.
+ * <p>
+ * Методы синхронизированы, а итератор обходит снимок значений, поэтому одно множество
+ * можно менять и читать из разных потоков (лайки фильма в in-memory хранилище).
+ */
+public class IntHashSet extends AbstractSet<Integer> {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int FREE = 0;
+
+    private int[] table = EMPTY;
+    private boolean containsFree; // значение 0 хранится отдельно, в таблице 0 — пустая ячейка
+    private int size;
+
+    public IntHashSet() {
+    }
+
+    public IntHashSet(int expectedSize) {
+        if (expectedSize > 0) {
+            table = new int[capacityFor(expectedSize)];
+        }
+    }
+
+    public static IntHashSet copyOf(Collection<Integer> values) {
+        if (values instanceof IntHashSet other) {
+            return of(other.toIntArray());
+        }
+        IntHashSet set = new IntHashSet(values.size());
+        for (Integer value : values) {
+            set.add(value.intValue());
+        }
+        return set;
+    }
+
+    public static IntHashSet of(int... values) {
+        IntHashSet set = new IntHashSet(values.length);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public synchronized boolean add(int value) {
+        if (value == FREE) {
+            if (containsFree) return false;
+            containsFree = true;
+            size++;
+            return true;
+        }
+        if (table.length == 0 || (size + 1) * 4L > table.length * 3L) {
+            resize(capacityFor(size + 1));
+        }
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            if (table[i] == value) return false;
+            if (table[i] == FREE) {
+                table[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public synchronized boolean contains(int value) {
+        if (value == FREE) return containsFree;
+        return indexOf(value) >= 0;
+    }
+
+    public synchronized boolean remove(int value) {
+        if (value == FREE) {
+            if (!containsFree) return false;
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int index = indexOf(value);
+        if (index < 0) return false;
+
+        // обратный сдвиг: цепочка пробирования остаётся непрерывной без "надгробий"
+        int mask = table.length - 1;
+        int hole = index;
+        for (int i = (hole + 1) & mask; table[i] != FREE; i = (i + 1) & mask) {
+            int home = mix(table[i]) & mask;
+            boolean homeInRange = hole <= i
+                    ? hole < home && home <= i
+                    : hole < home || home <= i;
+            if (!homeInRange) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Снимок значений в произвольном порядке
+     */
+    public synchronized int[] toIntArray() {
+        int[] result = new int[size];
+        int n = 0;
+        if (containsFree) {
+            result[n++] = FREE;
+        }
+        for (int value : table) {
+            if (value != FREE) {
+                result[n++] = value;
+            }
+        }
+        return result;
+    }
+
+    public int[] toSortedArray() {
+        int[] result = toIntArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = EMPTY;
+        containsFree = false;
+        size = 0;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer value && contains(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer value && remove(value.intValue());
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) throw new IllegalStateException();
+                IntHashSet.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // ёмкость — степень двойки с заполнением не больше 3/4
+    static int capacityFor(int expectedSize) {
+        int capacity = 4;
+        while (capacity * 3L < expectedSize * 4L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private int indexOf(int value) {
+        if (table.length == 0) return -1;
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; table[i] != FREE; i = (i + 1) & mask) {
+            if (table[i] == value) return i;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] old = table;
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : old) {
+            if (value == FREE) continue;
+            int i = mix(value) & mask;
+            while (table[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            table[i] = value;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Файл, отображённый в память целиком (MappedByteBuffer), который растёт удвоением.
+ * <p>
+ * Данные живут в page cache, а не в куче: объём ограничен диском и адресным пространством,
+ * сборщик мусора их не обходит. Чтение идёт абсолютными get без блокировок через текущий буфер.
+ * Старый буфер после роста остаётся рабочим, потому что отображает те же страницы файла.
+ * Запись и рост должны выполняться под блокировкой владельца.
+ * Индекс MappedByteBuffer — int, поэтому один файл не больше 2 ГБ.
+ */
+public class MappedColumn implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+
+    public MappedColumn(Path file, int initialCapacity) {
+        this.file = file;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            buffer = map(Math.max(channel.size(), initialCapacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть колонку " + file, e);
+        }
+    }
+
+    /**
+     * Увеличивает файл так, чтобы в нём поместилось bytes байт.
+     */
+    public void ensureCapacity(long bytes) {
+        MappedByteBuffer current = buffer;
+        if (bytes <= current.capacity()) return;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Колонка " + file + " превысила 2 ГБ");
+        }
+        try {
+            buffer = map(Math.min(Integer.MAX_VALUE, Math.max(bytes, current.capacity() * 2L)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось увеличить колонку " + file, e);
+        }
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public byte getByte(int position) {
+        return buffer.get(position);
+    }
+
+    public void putByte(int position, byte value) {
+        buffer.put(position, value);
+    }
+
+    public int getInt(int position) {
+        return buffer.getInt(position);
+    }
+
+    public void putInt(int position, int value) {
+        buffer.putInt(position, value);
+    }
+
+    public long getLong(int position) {
+        return buffer.getLong(position);
+    }
+
+    public void putLong(int position, long value) {
+        buffer.putLong(position, value);
+    }
+
+    public void getBytes(int position, byte[] target) {
+        buffer.get(position, target);
+    }
+
+    public void putBytes(int position, byte[] source) {
+        buffer.put(position, source);
+    }
+
+    /**
+     * Сбрасывает изменённые страницы на диск.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть колонку " + file, e);
+        }
+    }
+
+    private MappedByteBuffer map(long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
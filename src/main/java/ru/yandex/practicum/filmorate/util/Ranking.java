@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Отбор лучших id по счёту и равномерные выборки из длинных списков id.
+ * <p>
+ * Ключ ранжирования — long: счёт в старших 32 битах, Integer.MAX_VALUE - id в младших.
+ * Больший ключ — больший счёт, при равенстве — меньший id, поэтому сравнение ключей
+ * заменяет компаратор, а куча хранит примитивы без отдельных объектов-пар.
+ */
+public final class Ranking {
+
+    private Ranking() {
+    }
+
+    /**
+     * Ключ ранжирования; счёт больше Integer.MAX_VALUE ограничивается им.
+     */
+    public static long key(long score, int id) {
+        return (Math.min(score, Integer.MAX_VALUE) << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    public static int score(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int id(long key) {
+        return Integer.MAX_VALUE - (int) (key & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Равномерная выборка из списка: не больше cap элементов с постоянным шагом, порядок сохраняется.
+     * Короткий список возвращается как есть, без копии.
+     */
+    public static int[] sample(int[] ids, int cap) {
+        return ids.length <= cap ? ids : sample(ids, ids.length, cap);
+    }
+
+    /**
+     * Равномерная выборка из первых size элементов values; результат — всегда новый массив.
+     */
+    public static int[] sample(int[] values, int size, int cap) {
+        if (size <= cap) return Arrays.copyOf(values, size);
+
+        int[] sampled = new int[cap];
+        for (int i = 0; i < cap; i++) {
+            sampled[i] = values[(int) ((long) i * size / cap)];
+        }
+        return sampled;
+    }
+
+    /**
+     * Лучшие limit ключей. Куча ограничена: в её вершине — худший из лучших,
+     * новый ключ вытесняет его, только если он больше.
+     */
+    public static final class Top {
+
+        private final int limit;
+        private final PriorityQueue<Long> heap;
+
+        public Top(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1);
+        }
+
+        public void offer(long score, int id) {
+            long key = key(score, id);
+            if (heap.size() < limit) {
+                heap.add(key);
+            } else if (limit > 0 && key > heap.peek()) {
+                heap.poll();
+                heap.add(key);
+            }
+        }
+
+        /**
+         * Серии одинаковых id в отсортированном массиве: счёт id — длина его серии.
+         */
+        public void offerRuns(int[] sorted, int size) {
+            for (int start = 0, end; start < size; start = end) {
+                end = start + 1;
+                while (end < size && sorted[end] == sorted[start]) {
+                    end++;
+                }
+                offer(end - start, sorted[start]);
+            }
+        }
+
+        /**
+         * Ключи от лучшего к худшему; куча после этого пуста.
+         */
+        public long[] drainKeys() {
+            long[] keys = new long[heap.size()];
+            for (int i = keys.length - 1; i >= 0; i--) {
+                keys[i] = heap.poll();
+            }
+            return keys;
+        }
+
+        /**
+         * Id от лучшего к худшему; куча после этого пуста.
+         */
+        public int[] drainIds() {
+            long[] keys = drainKeys();
+            int[] ids = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                ids[i] = id(keys[i]);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.util;
+
+import ru.yandex.practicum.filmorate.Enum.DistanceStatus;
+
+import java.util.Arrays;
+
+/**
+ * Неориентированный граф связей пользователей для поиска степени разделения.
+ * Связь есть, если хотя бы один из двух пользователей добавил другого в друзья.
+ * <p>
+ * Хранение — сжатые строки (CSR): соседи пользователя u — neighbours[offsets[u]..offsets[u + 1]).
+ * Граф неизменяем, поиск не берёт блокировок; актуальность обеспечивает пересборка снаружи.
+ * <p>
+ * Поиск — двунаправленный BFS: фронты от обоих концов расширяются по уровням, каждый раз
+ * меньший по числу вершин. Очереди — массивы int, посещённые — битовые карты.
+ * Первая встреча фронтов даёт кратчайший путь: узел, общий для внутренних уровней обеих сторон,
+ * был бы найден раньше.
+ */
+public final class SeparationGraph {
+
+    /**
+     * @param distance число связей в пути, -1 — если путь не найден
+     * @param path     пользователи пути от начала к концу; null, если путь не запрошен или не найден
+     * @param visited  посещено вершин обеими сторонами
+     */
+    public record Result(DistanceStatus status, int distance, int[] path, int visited) {
+    }
+
+    // проверка бюджета времени внутри уровня — раз в столько вершин
+    private static final int DEADLINE_CHECK_MASK = 1023;
+
+    private final int[] offsets;
+    private final int[] neighbours;
+
+    private SeparationGraph(int[] offsets, int[] neighbours) {
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Строит граф по списку односторонних рёбер в любом порядке; встречные и повторные рёбра
+     * схлопываются в одну связь, петли отбрасываются.
+     */
+    public static SeparationGraph build(int[] userIds, int[] friendIds, int edges) {
+        int maxUser = 0;
+        for (int i = 0; i < edges; i++) {
+            maxUser = Math.max(maxUser, Math.max(userIds[i], friendIds[i]));
+        }
+        int[] offsets = new int[maxUser + 2];
+        for (int i = 0; i < edges; i++) {
+            if (userIds[i] == friendIds[i]) continue;
+            offsets[userIds[i] + 1]++;
+            offsets[friendIds[i] + 1]++;
+        }
+        for (int u = 0; u <= maxUser; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int[] cursor = Arrays.copyOf(offsets, offsets.length);
+        int[] neighbours = new int[offsets[maxUser + 1]];
+        for (int i = 0; i < edges; i++) {
+            if (userIds[i] == friendIds[i]) continue;
+            neighbours[cursor[userIds[i]]++] = friendIds[i];
+            neighbours[cursor[friendIds[i]]++] = userIds[i];
+        }
+
+        // сортировка строк и удаление повторов со сдвигом строк к началу массива
+        int size = 0;
+        for (int u = 0; u <= maxUser; u++) {
+            int from = offsets[u];
+            int to = offsets[u + 1];
+            offsets[u] = size;
+            Arrays.sort(neighbours, from, to);
+            for (int i = from; i < to; i++) {
+                if (i == from || neighbours[i] != neighbours[i - 1]) {
+                    neighbours[size++] = neighbours[i];
+                }
+            }
+        }
+        offsets[maxUser + 1] = size;
+        return new SeparationGraph(offsets, Arrays.copyOf(neighbours, size));
+    }
+
+    /**
+     * Размер индекса вершин (максимальный id + 1).
+     */
+    public int users() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Число связей (каждая считается один раз).
+     */
+    public int links() {
+        return neighbours.length / 2;
+    }
+
+    /**
+     * Связи пользователя по возрастанию id.
+     */
+    public int[] neighbours(int user) {
+        if (degree(user) == 0) return new int[0];
+        return Arrays.copyOfRange(neighbours, offsets[user], offsets[user + 1]);
+    }
+
+    /**
+     * Кратчайший путь между from и to.
+     * @param maxDepth      наибольшая длина пути, которую имеет смысл искать
+     * @param deadlineNanos момент по System.nanoTime(), после которого поиск прекращается
+     * @param withPath      восстанавливать ли сам путь
+     */
+    public Result shortestPath(int from, int to, int maxDepth, long deadlineNanos, boolean withPath) {
+        if (from == to) {
+            return new Result(DistanceStatus.FOUND, 0, withPath ? new int[]{from} : null, 1);
+        }
+        if (degree(from) == 0 || degree(to) == 0) {
+            return new Result(DistanceStatus.NOT_CONNECTED, -1, null, 0);
+        }
+
+        Side forward = new Side(from, users());
+        Side backward = new Side(to, users());
+        int expanded = 0;
+        while (true) {
+            if (forward.frontierEmpty() || backward.frontierEmpty()) {
+                return notFound(DistanceStatus.NOT_CONNECTED, forward, backward);
+            }
+            if (forward.depth + backward.depth >= maxDepth) {
+                return notFound(DistanceStatus.TOO_FAR, forward, backward);
+            }
+
+            Side side = forward.frontierSize() <= backward.frontierSize() ? forward : backward;
+            Side other = side == forward ? backward : forward;
+            int levelEnd = side.tail;
+            for (int index = side.head; index < levelEnd; index++) {
+                if ((++expanded & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() > deadlineNanos) {
+                    return notFound(DistanceStatus.TIMED_OUT, forward, backward);
+                }
+                int user = side.queue[index];
+                for (int i = offsets[user]; i < offsets[user + 1]; i++) {
+                    int next = neighbours[i];
+                    if (side.isVisited(next)) continue;
+                    side.add(next, index);
+                    if (other.isVisited(next)) {
+                        int distance = side.depth + 1 + other.depth;
+                        int[] path = withPath ? path(forward, backward, next) : null;
+                        return new Result(DistanceStatus.FOUND, distance, path, forward.tail + backward.tail);
+                    }
+                }
+            }
+            side.head = levelEnd;
+            side.depth++;
+            if (System.nanoTime() > deadlineNanos) {
+                return notFound(DistanceStatus.TIMED_OUT, forward, backward);
+            }
+        }
+    }
+
+    private int degree(int user) {
+        return user <= 0 || user >= users() ? 0 : offsets[user + 1] - offsets[user];
+    }
+
+    private static Result notFound(DistanceStatus status, Side forward, Side backward) {
+        return new Result(status, -1, null, forward.tail + backward.tail);
+    }
+
+    // путь from -> meeting по родителям прямой стороны, затем meeting -> to по обратной
+    private static int[] path(Side forward, Side backward, int meeting) {
+        int[] head = forward.chain(forward.indexOf(meeting));
+        int[] tail = backward.chain(backward.indexOf(meeting));
+        int[] path = new int[head.length + tail.length - 1];
+        for (int i = 0; i < head.length; i++) {
+            path[i] = head[head.length - 1 - i];
+        }
+        System.arraycopy(tail, 1, path, head.length, tail.length - 1);
+        return path;
+    }
+
+    /**
+     * Одна сторона поиска: очередь посещённых в порядке обхода, индекс родителя каждой вершины
+     * в той же очереди и битовая карта посещённых. Текущий фронт — queue[head..tail).
+     */
+    private static final class Side {
+
+        int[] queue = new int[64];
+        int[] parents = new int[64];
+        final long[] visited;
+        int head;
+        int tail;
+        int depth;
+
+        Side(int root, int users) {
+            visited = new long[(users + 63) >>> 6];
+            add(root, -1);
+        }
+
+        boolean isVisited(int user) {
+            return (visited[user >>> 6] & (1L << user)) != 0;
+        }
+
+        void add(int user, int parent) {
+            if (tail == queue.length) {
+                queue = Arrays.copyOf(queue, tail * 2);
+                parents = Arrays.copyOf(parents, tail * 2);
+            }
+            visited[user >>> 6] |= 1L << user;
+            queue[tail] = user;
+            parents[tail] = parent;
+            tail++;
+        }
+
+        boolean frontierEmpty() {
+            return head == tail;
+        }
+
+        int frontierSize() {
+            return tail - head;
+        }
+
+        int indexOf(int user) {
+            for (int i = tail - 1; i >= 0; i--) {
+                if (queue[i] == user) return i;
+            }
+            throw new IllegalStateException("Вершина " + user + " не посещена");
+        }
+
+        // вершины от index до корня стороны
+        int[] chain(int index) {
+            int length = 0;
+            for (int i = index; i >= 0; i = parents[i]) {
+                length++;
+            }
+            int[] chain = new int[length];
+            int n = 0;
+            for (int i = index; i >= 0; i = parents[i]) {
+                chain[n++] = queue[i];
+            }
+            return chain;
+        }
+    }
+}
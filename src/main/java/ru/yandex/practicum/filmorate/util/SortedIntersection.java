@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Пересечение отсортированных по возрастанию массивов id без повторов (списки друзей).
+ * <p>
+ * Стратегия выбирается по размерам списков:
+ * - близкие размеры — линейное слияние, O(n + m);
+ * - один список короче другого в GALLOP_RATIO раз и больше — галопирующий поиск: каждый элемент
+ *   короткого ищется в длинном экспоненциальным шагом от предыдущей позиции, O(n log(m / n));
+ * - один список против многих (countEach) — по общему списку один раз строится битовая карта
+ *   на диапазоне его id, остальные проверяются по ней за O(длина списка). Карта строится, только если
+ *   проверок достаточно много, а диапазон не слишком разрежен; иначе — попарно, как выше.
+ */
+public final class SortedIntersection {
+
+    static final int GALLOP_RATIO = 32;
+    // битовая карта окупается, если по ней проверяется не меньше элементов
+    static final int BITMAP_MIN_PROBES = 4_096;
+    // и если на один id общего списка приходится не больше стольких бит диапазона
+    static final int BITMAP_MAX_SPREAD = 512;
+
+    private static final int[] EMPTY = new int[0];
+
+    private SortedIntersection() {
+    }
+
+    /**
+     * Общие элементы двух списков, по возрастанию.
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] small = first.length <= second.length ? first : second;
+        int[] large = small == first ? second : first;
+        if (small.length == 0 || small[small.length - 1] < large[0] || large[large.length - 1] < small[0]) {
+            return EMPTY;
+        }
+
+        int[] common = new int[small.length];
+        int size = galloping(small, large) ? gallop(small, large, common) : merge(small, large, common);
+        return size == common.length ? common : Arrays.copyOf(common, size);
+    }
+
+    /**
+     * Размер пересечения без выделения памяти под результат.
+     */
+    public static int count(int[] first, int[] second) {
+        int[] small = first.length <= second.length ? first : second;
+        int[] large = small == first ? second : first;
+        if (small.length == 0 || small[small.length - 1] < large[0] || large[large.length - 1] < small[0]) {
+            return 0;
+        }
+        return galloping(small, large) ? gallop(small, large, null) : merge(small, large, null);
+    }
+
+    /**
+     * Размер пересечения base с каждым из others.
+     * @return counts[i] = |base ∩ others[i]|
+     */
+    public static int[] countEach(int[] base, int[][] others) {
+        int[] counts = new int[others.length];
+        if (base.length == 0) return counts;
+
+        long probes = 0;
+        for (int[] other : others) {
+            probes += other.length;
+        }
+        int min = base[0];
+        long span = (long) base[base.length - 1] - min + 1;
+        if (probes < BITMAP_MIN_PROBES || span > (long) base.length * BITMAP_MAX_SPREAD) {
+            for (int i = 0; i < others.length; i++) {
+                counts[i] = count(base, others[i]);
+            }
+            return counts;
+        }
+
+        long[] words = new long[(int) ((span + 63) >>> 6)];
+        for (int value : base) {
+            int bit = value - min;
+            words[bit >>> 6] |= 1L << bit;
+        }
+        for (int i = 0; i < others.length; i++) {
+            int count = 0;
+            for (int value : others[i]) {
+                long bit = (long) value - min;
+                if (bit < 0) continue;
+                if (bit >= span) break;
+                count += (int) (words[(int) (bit >>> 6)] >>> bit) & 1;
+            }
+            counts[i] = count;
+        }
+        return counts;
+    }
+
+    private static boolean galloping(int[] small, int[] large) {
+        return (long) small.length * GALLOP_RATIO <= large.length;
+    }
+
+    // out == null — только подсчёт
+    private static int merge(int[] small, int[] large, int[] out) {
+        int size = 0;
+        for (int i = 0, j = 0; i < small.length && j < large.length; ) {
+            int a = small[i];
+            int b = large[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                if (out != null) out[size] = a;
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static int gallop(int[] small, int[] large, int[] out) {
+        int size = 0;
+        int from = 0;
+        for (int value : small) {
+            from = advance(large, from, value);
+            if (from == large.length) break;
+            if (large[from] == value) {
+                if (out != null) out[size] = value;
+                size++;
+                from++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Первая позиция не раньше from, где array[i] >= value (array.length, если такой нет):
+     * шаг удваивается, пока элемент меньше value, затем двоичный поиск в последнем шаге.
+     */
+    private static int advance(int[] array, int from, int value) {
+        if (from >= array.length || array[from] >= value) return from;
+
+        int bound = 1;
+        while (from + bound < array.length && array[from + bound] < value) {
+            bound <<= 1;
+        }
+        int low = from + (bound >>> 1) + 1;
+        int high = Math.min(from + bound, array.length);
+        int index = Arrays.binarySearch(array, low, high, value);
+        return index >= 0 ? index : -index - 1;
+    }
+}
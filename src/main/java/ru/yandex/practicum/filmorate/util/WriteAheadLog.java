@@ -0,0 +1,495 @@
+package ru.yandex.practicum.filmorate.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Журнал изменений (write-ahead log) со снимками состояния для хранилищ в памяти.
+ * <p>
+ * Журнал — последовательность файлов-сегментов wal-N.log в каталоге. Запись сегмента:
+ * длина, CRC32 и тело. append() только кладёт запись в буфер. sync() записывает буфер
+ * и вызывает FileChannel.force. Потоки, пришедшие в sync() во время записи на диск,
+ * ждут на мониторе, и следующий из них одним force сбрасывает всё накопленное
+ * (групповая фиксация). В режиме без sync-on-commit sync() ничего не ждёт:
+ * буфер уходит на диск при заполнении и по таймеру.
+ * <p>
+ * snapshot() начинает новый сегмент и пишет состояние в snapshot.bin через временный файл.
+ * В снимке запоминается номер этого сегмента, после чего старые сегменты удаляются.
+ * Снимок «размытый»: его пишут параллельно с изменениями, поэтому записи журнала
+ * обязаны быть идемпотентными. Повтор записи, уже вошедшей в снимок, не должен
+ * менять результат. Запись, попавшая в старый сегмент, должна быть видна в состоянии к началу
+ * снимка: если хранилище пишет её до публикации значения (внутри ConcurrentHashMap.compute),
+ * изменение целиком выполняется через publish(), и смена сегмента его дожидается.
+ * <p>
+ * recover() читает снимок и применяет записи последующих сегментов.
+ * Оборванная запись в конце последнего сегмента (падение во время записи) отбрасывается.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final int SNAPSHOT_MAGIC = 0x464D534E;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int RECORD_HEADER = 8;
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private final Path dir;
+    private final boolean syncOnCommit;
+
+    // порядок захвата: syncLock -> appendLock
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object snapshotLock = new Object();
+    // publish() держит на чтение, смена сегмента в snapshot() — на запись; захватывается до syncLock
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_THRESHOLD);
+    private long appendedSeq;
+    private volatile long durableSeq;
+
+    private FileChannel channel;
+    private long segment;
+    private boolean recovered;
+
+    private ScheduledExecutorService scheduler;
+
+    private long syncs;
+    private long syncedRecords;
+
+    /**
+     * @param syncOnCommit true — sync() возвращается только после force (данные переживают сбой ОС);
+     *                     false — данные на диске с задержкой до интервала фонового сброса
+     */
+    public WriteAheadLog(Path dir, boolean syncOnCommit) {
+        this.dir = dir;
+        this.syncOnCommit = syncOnCommit;
+    }
+
+    public interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    public interface SnapshotWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    public interface SnapshotReader {
+        void read(DataInput in) throws IOException;
+    }
+
+    public interface RecordHandler {
+        void apply(DataInput record) throws IOException;
+    }
+
+    // ===== Восстановление =====
+
+    /**
+     * Загружает снимок и применяет журнал после него. Вызывается один раз до первых append().
+     */
+    public synchronized void recover(SnapshotReader snapshotReader, RecordHandler handler) {
+        if (recovered) {
+            throw new IllegalStateException("Журнал уже восстановлен");
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(dir);
+            long firstSegment = readSnapshot(snapshotReader);
+
+            List<Long> segments = segments();
+            long records = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                long number = segments.get(i);
+                if (number < firstSegment) continue;
+                records += replay(segmentPath(number), handler, i == segments.size() - 1);
+            }
+
+            segment = segments.isEmpty() ? firstSegment : Math.max(firstSegment, segments.getLast() + 1);
+            channel = openSegment(segment);
+            recovered = true;
+            log.info("Журнал {} восстановлен: {} записей за {} мс", dir, records,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить данные из " + dir, e);
+        }
+    }
+
+    private long readSnapshot(SnapshotReader reader) throws IOException {
+        Path path = dir.resolve(SNAPSHOT);
+        if (!Files.exists(path)) return 0;
+
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Неизвестный формат снимка " + path);
+            }
+            long firstSegment = in.readLong();
+            reader.read(in);
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Контрольная сумма снимка " + path + " не совпадает");
+            }
+            return firstSegment;
+        }
+    }
+
+    private long replay(Path path, RecordHandler handler, boolean last) throws IOException {
+        long records = 0;
+        long validEnd = 0;
+        long size = Files.size(path);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            DataInputStream stream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in), 1 << 16));
+            CRC32 crc = new CRC32();
+            byte[] body = new byte[256];
+            while (true) {
+                int length;
+                long checksum;
+                try {
+                    length = stream.readInt();
+                    checksum = stream.readInt() & 0xFFFFFFFFL;
+                    // длина из оборванного заголовка может быть любой
+                    if (length < 0 || length > size - validEnd - RECORD_HEADER) break;
+                    if (body.length < length) {
+                        body = new byte[Math.max(length, body.length * 2)];
+                    }
+                    stream.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if (crc.getValue() != checksum) break;
+
+                handler.apply(new DataInputStream(new ByteArrayInputStream(body, 0, length)));
+                validEnd += RECORD_HEADER + length;
+                records++;
+            }
+        }
+
+        if (validEnd < size) {
+            if (!last) {
+                throw new IOException("Повреждён сегмент журнала " + path + " на позиции " + validEnd);
+            }
+            log.warn("Отброшен оборванный конец журнала {}: {} байт", path, size - validEnd);
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                out.truncate(validEnd);
+            }
+        }
+        return records;
+    }
+
+    // ===== Запись =====
+
+    /**
+     * Добавляет запись в буфер журнала.
+     * @return номер записи для sync()
+     */
+    public long append(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        boolean flush;
+        long seq;
+        synchronized (appendLock) {
+            requireRecovered();
+            writeInt(buffer, record.length);
+            writeInt(buffer, (int) crc.getValue());
+            buffer.write(record, 0, record.length);
+            seq = ++appendedSeq;
+            flush = !syncOnCommit && buffer.size() >= FLUSH_THRESHOLD;
+        }
+        if (flush) {
+            flush(false);
+        }
+        return seq;
+    }
+
+    /**
+     * Кодирует запись и добавляет её в буфер журнала.
+     */
+    public long append(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закодировать запись журнала", e);
+        }
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * Выполняет изменение, которое добавляет запись в журнал раньше, чем новое значение
+     * становится видно другим потокам. Снимок не начнёт новый сегмент, пока такое изменение
+     * не завершится, поэтому запись из старого сегмента не потеряется вместе с ним.
+     * sync() вызывается уже после publish().
+     */
+    public <T> T publish(Supplier<T> change) {
+        rotationLock.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Дожидается, пока запись seq (и все до неё) будет на диске.
+     * В режиме без sync-on-commit возвращается сразу.
+     */
+    public void sync(long seq) {
+        if (!syncOnCommit || seq <= durableSeq) return;
+        synchronized (syncLock) {
+            // пока ждали монитор, нашу запись мог сбросить другой поток
+            if (seq <= durableSeq) return;
+            writeBuffer(true);
+        }
+    }
+
+    /**
+     * Записывает буфер в сегмент; с force — ещё и на диск.
+     */
+    public void flush(boolean force) {
+        synchronized (syncLock) {
+            writeBuffer(force);
+        }
+    }
+
+    // Вызывается под syncLock
+    private void writeBuffer(boolean force) {
+        ByteArrayOutputStream pending;
+        long upTo;
+        synchronized (appendLock) {
+            if (buffer.size() == 0 && !force) return;
+            pending = buffer;
+            upTo = appendedSeq;
+            buffer = new ByteArrayOutputStream(FLUSH_THRESHOLD);
+        }
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(pending.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (force) {
+                channel.force(false);
+                syncs++;
+                syncedRecords += upTo - durableSeq;
+                durableSeq = upTo;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать журнал " + dir, e);
+        }
+    }
+
+    // ===== Снимки =====
+
+    /**
+     * Пишет снимок и удаляет сегменты, которые в него вошли.
+     * Изменения во время записи снимка продолжают идти в новый сегмент.
+     */
+    public void snapshot(SnapshotWriter writer) {
+        synchronized (snapshotLock) {
+            long start = System.nanoTime();
+            long firstSegment;
+            rotationLock.writeLock().lock();
+            try {
+                firstSegment = rotate();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+            try {
+                try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    CheckedOutputStream checked = new CheckedOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16), new CRC32());
+                    DataOutputStream data = new DataOutputStream(checked);
+                    data.writeInt(SNAPSHOT_MAGIC);
+                    data.writeInt(SNAPSHOT_VERSION);
+                    data.writeLong(firstSegment);
+                    writer.write(data);
+                    data.writeLong(checked.getChecksum().getValue());
+                    data.flush();
+                    out.force(true);
+                }
+                Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+
+                for (long number : segments()) {
+                    if (number < firstSegment) {
+                        Files.deleteIfExists(segmentPath(number));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать снимок " + dir, e);
+            }
+            log.info("Снимок {} записан за {} мс", dir, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Снимки по расписанию (если snapshotIntervalMillis > 0) и сброс буфера раз в секунду
+     * в режиме без sync-on-commit.
+     */
+    public synchronized void startBackground(long snapshotIntervalMillis, SnapshotWriter writer) {
+        requireRecovered();
+        if (snapshotIntervalMillis <= 0 && syncOnCommit) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "wal-" + dir.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (snapshotIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(() -> runQuietly(() -> snapshot(writer)),
+                    snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (!syncOnCommit) {
+            scheduler.scheduleWithFixedDelay(() -> runQuietly(() -> flush(true)), 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private void runQuietly(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Фоновая операция журнала {} не удалась", dir, e);
+        }
+    }
+
+    // Текущий сегмент сбрасывается на диск и закрывается, новые записи идут в следующий
+    private long rotate() {
+        synchronized (syncLock) {
+            requireRecovered();
+            writeBuffer(true);
+            try {
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось начать новый сегмент журнала " + dir, e);
+            }
+            return segment;
+        }
+    }
+
+    public Stats stats() {
+        synchronized (syncLock) {
+            return new Stats(segment, durableSeq, syncs, syncedRecords);
+        }
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService background;
+        synchronized (this) {
+            background = scheduler;
+        }
+        if (background != null) {
+            background.shutdownNow();
+        }
+        synchronized (syncLock) {
+            if (channel == null || !channel.isOpen()) return;
+            writeBuffer(true);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось закрыть журнал " + dir, e);
+            }
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("wal-%020d.log", number));
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher name = SEGMENT.matcher(file.getFileName().toString());
+                if (name.matches()) {
+                    numbers.add(Long.parseLong(name.group(1)));
+                }
+            });
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private void requireRecovered() {
+        if (!recovered) {
+            throw new IllegalStateException("Перед записью журнал нужно восстановить (recover)");
+        }
+    }
+
+    // ===== Кодирование полей =====
+
+    public static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static String readNullableString(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeNullableDate(DataOutput out, LocalDate value) throws IOException {
+        out.writeLong(value == null ? Long.MIN_VALUE : value.toEpochDay());
+    }
+
+    public static LocalDate readNullableDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Метрики журнала: текущий сегмент, последняя записанная на диск запись,
+     * число вызовов force и записей, которые они зафиксировали (отношение — средний размер группы).
+     */
+    public record Stats(long segment, long durableSeq, long syncs, long syncedRecords) {
+
+        public double recordsPerSync() {
+            return syncs == 0 ? 0 : (double) syncedRecords / syncs;
+        }
+    }
+}
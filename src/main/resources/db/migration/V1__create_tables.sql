@@ -26,9 +26,14 @@ CREATE TABLE IF NOT EXISTS films (
     description VARCHAR(1024),                           -- описание фильма
     release_date DATE CHECK (release_date >= '1895-12-28'), -- дата релиза
     duration INT NOT NULL,                               -- продолжительность в минутах
-    mpa_rating_id INT REFERENCES mpa(id)                -- рейтинг MPA (внешний ключ)
+    mpa_rating_id INT REFERENCES mpa(id),               -- рейтинг MPA (внешний ключ)
+    likes_count INT NOT NULL DEFAULT 0                   -- количество лайков (денормализовано из film_likes)
 );
 
+-- Для баз, созданных до появления счетчика: колонка счетчика лайков и индекс для топа популярных
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
+
 -- Таблица связи фильмов и жанров (M:N)
 CREATE TABLE IF NOT EXISTS film_genres (
     film_id INT REFERENCES films(id) ON DELETE CASCADE, -- ID фильма
@@ -49,4 +54,4 @@ CREATE TABLE IF NOT EXISTS user_friends (
     friend_id INT REFERENCES users(id) ON DELETE CASCADE, -- получатель заявки
     status VARCHAR(20) NOT NULL CHECK (status IN ('REQUESTED','CONFIRMED')), -- статус дружбы
     PRIMARY KEY (user_id, friend_id)                     -- составной первичный ключ
-);
\ No newline at end of file
+);
@@ -0,0 +1,7 @@
+-- Обратные индексы для связующих таблиц.
+-- Первичные ключи начинаются с film_id/user_id, поэтому поиск по второй колонке
+-- ("что лайкнул пользователь", "кто добавил пользователя в друзья", "фильмы жанра") идёт по этим индексам.
+-- Вторая колонка входит в индекс, и ответ читается из индекса без обращения к строкам таблицы.
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS user_friends_friend_idx ON user_friends (friend_id, user_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
@@ -0,0 +1,81 @@
+-- Начальные данные. Скрипт идемпотентен: справочники пишутся через MERGE по id,
+-- пользователи и фильмы добавляются только если их ещё нет (по логину и названию),
+-- связи ищут строки по этим же ключам. Поэтому он безопасен и для баз,
+-- в которые прежний data.sql уже вставлял данные при каждом запуске.
+
+-- Инициализация рейтингов MPA
+MERGE INTO mpa (id, name) KEY (id) VALUES
+    (1, 'G'),
+    (2, 'PG'),
+    (3, 'PG-13'),
+    (4, 'R'),
+    (5, 'NC-17');
+
+-- Инициализация жанров
+MERGE INTO genres (id, name) KEY (id) VALUES
+    (1, 'Комедия'),
+    (2, 'Драма'),
+    (3, 'Мультфильм'),
+    (4, 'Триллер'),
+    (5, 'Документальный'),
+    (6, 'Боевик');
+
+-- Инициализация пользователей
+INSERT INTO users (email, login, name, birthday)
+SELECT s.email, s.login, s.name, s.birthday
+FROM (VALUES
+    ('user1@example.com', 'user1', 'Алена', DATE '1990-05-12'),
+    ('user2@example.com', 'user2', 'Иван', DATE '1985-03-23'),
+    ('user3@example.com', 'user3', 'Мария', DATE '2000-11-01')
+) AS s(email, login, name, birthday)
+WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.login = s.login);
+
+-- Инициализация фильмов
+INSERT INTO films (name, description, release_date, duration, mpa_rating_id)
+SELECT s.name, s.description, s.release_date, s.duration, s.mpa_rating_id
+FROM (VALUES
+    ('Интерстеллар', 'Фантастический эпик о космических путешествиях.', DATE '2014-11-07', 169, 3), -- PG-13
+    ('Джентльмены', 'Боевик с юмором о криминальных разборках.', DATE '2019-01-24', 113, 3),         -- PG-13
+    ('Зеленая книга', 'Драма о дружбе и путешествии через США 60-х.', DATE '2018-11-16', 130, 2)     -- PG
+) AS s(name, description, release_date, duration, mpa_rating_id)
+WHERE NOT EXISTS (SELECT 1 FROM films f WHERE f.name = s.name);
+
+-- Присвоение жанров фильмам
+MERGE INTO film_genres (film_id, genre_id) KEY (film_id, genre_id)
+SELECT MIN(f.id), s.genre_id
+FROM (VALUES
+    ('Интерстеллар', 4),  -- Триллер
+    ('Джентльмены', 6),   -- Боевик
+    ('Джентльмены', 1),   -- Комедия
+    ('Зеленая книга', 2)  -- Драма
+) AS s(film, genre_id)
+JOIN films f ON f.name = s.film
+GROUP BY s.film, s.genre_id;
+
+-- Лайки фильмов пользователями
+MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id)
+SELECT MIN(f.id), MIN(u.id)
+FROM (VALUES
+    ('Интерстеллар', 'user1'),
+    ('Интерстеллар', 'user2'),
+    ('Джентльмены', 'user3'),
+    ('Зеленая книга', 'user1')
+) AS s(film, login)
+JOIN films f ON f.name = s.film
+JOIN users u ON u.login = s.login
+GROUP BY s.film, s.login;
+
+-- Дружба пользователей (односторонняя)
+MERGE INTO user_friends (user_id, friend_id, status) KEY (user_id, friend_id)
+SELECT MIN(u.id), MIN(fr.id), s.status
+FROM (VALUES
+    ('user1', 'user2', 'CONFIRMED'),  -- Алена добавила Ивана
+    ('user2', 'user3', 'REQUESTED')   -- Иван отправил запрос Марии
+) AS s(login, friend_login, status)
+JOIN users u ON u.login = s.login
+JOIN users fr ON fr.login = s.friend_login
+GROUP BY s.login, s.friend_login, s.status;
+
+-- Пересчет счетчика лайков по film_likes (заполнение likes_count для существующих данных)
+UPDATE films f
+SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id);
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.util.FriendGraph;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Задержка чтения FriendGraph (список друзей, статус дружбы) до и после накопления изменений,
+ * и время сжатия: 200 тыс. пользователей по 50 друзей.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=FriendGraphBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FriendGraphBenchmark {
+
+    private static final int USERS = 200_000;
+    private static final int FRIENDS_PER_USER = 50;
+    private static final int CHANGES = 50_000;
+    private static final int READS = 2_000_000;
+
+    @Test
+    void readLatency_baseDeltaAndCompaction() {
+        SplittableRandom random = new SplittableRandom(5);
+        int edges = USERS * FRIENDS_PER_USER;
+        int[] userIds = new int[edges];
+        int[] friendIds = new int[edges];
+        FriendshipStatus[] statuses = new FriendshipStatus[edges];
+        for (int i = 0; i < edges; i++) {
+            userIds[i] = 1 + i / FRIENDS_PER_USER;
+            // пары не повторяются: друзья пользователя — подряд идущие id со случайным началом
+            friendIds[i] = 1 + (userIds[i] * 7919 + i % FRIENDS_PER_USER) % USERS;
+            statuses[i] = random.nextBoolean() ? FriendshipStatus.CONFIRMED : FriendshipStatus.REQUESTED;
+        }
+
+        long start = System.nanoTime();
+        FriendGraph graph = FriendGraph.build(userIds, friendIds, statuses, edges);
+        System.out.printf("построение: %d мс, %s%n", (System.nanoTime() - start) / 1_000_000, graph.stats());
+
+        measure("основа", graph, random);
+
+        for (int i = 0; i < CHANGES; i++) {
+            int user = 1 + random.nextInt(USERS);
+            int friend = 1 + random.nextInt(USERS);
+            if (random.nextBoolean()) {
+                graph.put(user, friend, FriendshipStatus.REQUESTED);
+            } else {
+                graph.remove(user, friend);
+            }
+        }
+        measure("основа + " + CHANGES + " изменений", graph, random);
+
+        start = System.nanoTime();
+        int folded = graph.compact();
+        System.out.printf("сжатие: %d изменений за %d мс%n", folded, (System.nanoTime() - start) / 1_000_000);
+        measure("после сжатия", graph, random);
+        assertThat(graph.pendingChanges()).isZero();
+    }
+
+    private static void measure(String phase, FriendGraph graph, SplittableRandom random) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            checksum += graph.friends(1 + random.nextInt(USERS)).length;
+        }
+        double friendsNanos = (System.nanoTime() - start) / (double) READS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            if (graph.status(1 + random.nextInt(USERS), 1 + random.nextInt(USERS)) != null) {
+                checksum++;
+            }
+        }
+        double statusNanos = (System.nanoTime() - start) / (double) READS;
+
+        System.out.printf("%-28s friends: %6.0f нс, status: %5.0f нс%n", phase, friendsNanos, statusNanos);
+        assertThat(checksum).isPositive();
+    }
+}
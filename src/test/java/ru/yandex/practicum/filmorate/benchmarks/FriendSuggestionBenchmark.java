@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.storage.FriendGraphUserStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Задержка рекомендаций друзей без кэша: 200 тыс. пользователей по 50 друзей,
+ * у каждого ещё 5 «знаменитостей» из 100, каждая из которых дружит с 20 тыс. пользователей.
+ * Отдельно — сами знаменитости как пользователи с огромным первым шагом.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=FriendSuggestionBenchmark -DargLine=-Xmx3g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FriendSuggestionBenchmark {
+
+    private static final int USERS = 200_000;
+    private static final int FRIENDS_PER_USER = 50;
+    private static final int CELEBRITIES = 100;
+    private static final int CELEBRITY_FRIENDS = 20_000;
+    private static final int CELEBRITIES_PER_USER = 5;
+    private static final int QUERIES = 2_000;
+
+    @Test
+    void uncachedLatency_regularAndCelebrityUsers() {
+        SplittableRandom random = new SplittableRandom(41);
+        InMemoryUserStorage backend = new InMemoryUserStorage();
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setLogin("u" + i);
+            users.add(user);
+        }
+        backend.createAll(users);
+        for (int user = CELEBRITIES + 1; user <= USERS; user++) {
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                backend.addFriend(user, 1 + random.nextInt(USERS));
+            }
+            for (int i = 0; i < CELEBRITIES_PER_USER; i++) {
+                backend.addFriend(user, 1 + random.nextInt(CELEBRITIES));
+            }
+        }
+        for (int celebrity = 1; celebrity <= CELEBRITIES; celebrity++) {
+            for (int i = 0; i < CELEBRITY_FRIENDS; i++) {
+                backend.addFriend(celebrity, 1 + random.nextInt(USERS));
+            }
+        }
+
+        FriendGraphUserStorage graph = new FriendGraphUserStorage(backend, true, 60_000, 50_000);
+        graph.start();
+        try {
+            // кэш на одну запись: каждый запрос считается заново
+            FriendSuggestionService service = new FriendSuggestionService(graph, 50, 500, 500, 1, 1);
+            for (int i = 0; i < QUERIES; i++) {
+                service.suggest(CELEBRITIES + 1 + random.nextInt(USERS - CELEBRITIES), 10);
+            }
+
+            long[] regular = measure(service, random, CELEBRITIES + 1, USERS - CELEBRITIES);
+            long[] celebrities = measure(service, random, 1, CELEBRITIES);
+            report("обычные", regular);
+            report("знаменитости", celebrities);
+            // бюджет 50 мс проверяется между пачками, поэтому запас на одну пачку и сортировку
+            assertThat(celebrities[celebrities.length * 99 / 100]).isLessThan(100_000_000L);
+        } finally {
+            graph.stop();
+        }
+    }
+
+    private static long[] measure(FriendSuggestionService service, SplittableRandom random, int firstId, int range) {
+        long[] nanos = new long[QUERIES];
+        long checksum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            checksum += service.suggest(firstId + random.nextInt(range), 10).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        assertThat(checksum).isPositive();
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void report(String group, long[] sorted) {
+        System.out.printf("%-13s p50: %6.2f мс, p99: %6.2f мс, max: %6.2f мс%n", group,
+                sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Время восстановления InMemoryFilmStorage из журнала и снимка: 1М фильмов и 10М лайков.
+ * Журнал пишется в режиме sync-on-commit=false (force раз в секунду и при закрытии).
+ * Запуск: mvn test -Dbenchmark=true -Dtest=InMemoryRecoveryBenchmark -DargLine=-Xmx3g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InMemoryRecoveryBenchmark {
+
+    private static final int FILMS = 1_000_000;
+    private static final int LIKES = 10_000_000;
+    private static final int TAIL_LIKES = 1_000_000;
+    private static final int USERS = 1_000_000;
+    private static final int BATCH = 10_000;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void recovery_logOnlyVsSnapshotAndTail() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+
+        long start = System.nanoTime();
+        InMemoryFilmStorage storage = open();
+        Mpa mpa = new Mpa(1, null);
+        LocalDate releaseDate = LocalDate.of(2000, 1, 1);
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Описание");
+            film.setReleaseDate(releaseDate);
+            film.setDuration(100);
+            film.setMpa(mpa);
+            storage.create(film);
+        }
+        like(storage, random, LIKES);
+        storage.stop();
+        report("загрузка (журнал)", start, LIKES + FILMS);
+        long logBytes = size("wal-");
+
+        // Старт без снимка: применяется весь журнал
+        start = System.nanoTime();
+        storage = open();
+        report("восстановление из журнала", start, LIKES + FILMS);
+        assertThat(storage.getLikeCounts().values().stream().mapToInt(Integer::intValue).sum()).isPositive();
+
+        start = System.nanoTime();
+        storage.snapshot();
+        report("запись снимка", start, FILMS);
+        long snapshotBytes = size("snapshot");
+
+        like(storage, random, TAIL_LIKES);
+        int expectedLikes = storage.getLikeCounts().values().stream().mapToInt(Integer::intValue).sum();
+        storage.stop();
+        storage = null;
+
+        // Старт со снимком и хвостом журнала
+        start = System.nanoTime();
+        InMemoryFilmStorage restored = open();
+        report("снимок + хвост журнала", start, FILMS + TAIL_LIKES);
+        assertThat(restored.getLikeCounts().values().stream().mapToInt(Integer::intValue).sum())
+                .isEqualTo(expectedLikes);
+        restored.stop();
+
+        System.out.printf("журнал: %d МБ, снимок: %d МБ%n", logBytes >> 20, snapshotBytes >> 20);
+    }
+
+    // Снимки только вручную: stop() закрывает журнал без снимка
+    private InMemoryFilmStorage open() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(dataDir.toString(), false, 0);
+        storage.start();
+        return storage;
+    }
+
+    private static void like(InMemoryFilmStorage storage, SplittableRandom random, int count) {
+        List<LikeChange> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < count; i++) {
+            batch.add(new LikeChange(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS), LikeOperation.ADD));
+            if (batch.size() == BATCH) {
+                storage.applyLikes(batch);
+                batch.clear();
+            }
+        }
+        storage.applyLikes(batch);
+    }
+
+    private long size(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dataDir.resolve("films"))) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+
+    private static void report(String phase, long startNanos, long records) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-26s %7.2f с, %,12.0f записей/с%n", phase, seconds, records / seconds);
+    }
+}
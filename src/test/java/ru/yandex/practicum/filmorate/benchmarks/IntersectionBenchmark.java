@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.util.SortedIntersection;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Пересечение списков друзей при разной асимметрии размеров: линейное слияние против
+ * SortedIntersection.count (слияние или галоп по размерам), и пакетный подсчёт
+ * countEach (битовая карта) против попарного. Id друзей — из 1М пользователей.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=IntersectionBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IntersectionBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int PAIRS = 64;
+    private static final long OPERATIONS_BUDGET = 200_000_000L;
+
+    @Test
+    void pairwise_mergeVsAdaptive() {
+        SplittableRandom random = new SplittableRandom(31);
+        int[][] sizes = {{50, 50}, {500, 500}, {50, 5_000}, {50, 50_000}, {10, 200_000}, {50_000, 50_000}};
+        for (int[] size : sizes) {
+            int[][] first = new int[PAIRS][];
+            int[][] second = new int[PAIRS][];
+            for (int i = 0; i < PAIRS; i++) {
+                first[i] = randomSorted(random, size[0]);
+                second[i] = randomSorted(random, size[1]);
+            }
+            int rounds = (int) Math.max(1, OPERATIONS_BUDGET / PAIRS / (size[0] + size[1]));
+
+            // прогрев обоих вариантов
+            run(first, second, rounds, false);
+            run(first, second, rounds, true);
+            double mergeNanos = run(first, second, rounds, false);
+            double adaptiveNanos = run(first, second, rounds, true);
+
+            System.out.printf("%6d x %-7d слияние: %9.0f нс, адаптивно: %9.0f нс (x%.1f)%n",
+                    size[0], size[1], mergeNanos, adaptiveNanos, mergeNanos / adaptiveNanos);
+        }
+    }
+
+    @Test
+    void batch_bitmapVsPairwise() {
+        SplittableRandom random = new SplittableRandom(37);
+        int[][] shapes = {{200, 1_000, 50}, {2_000, 1_000, 50}, {20_000, 1_000, 200}};
+        for (int[] shape : shapes) {
+            // друзья пользователя сосредоточены в «его» части id, как в реальных сообществах
+            int[] base = randomSorted(random, shape[0], shape[0] * 20);
+            int[][] others = new int[shape[1]][];
+            for (int i = 0; i < others.length; i++) {
+                others[i] = randomSorted(random, shape[2], shape[0] * 40);
+            }
+            int rounds = (int) Math.max(1, OPERATIONS_BUDGET / 4 / ((long) shape[1] * shape[2]));
+
+            long checksum = 0;
+            for (int warmup = 0; warmup < 2; warmup++) {
+                checksum += batch(base, others, rounds) + pairwise(base, others, rounds);
+            }
+            long start = System.nanoTime();
+            checksum += batch(base, others, rounds);
+            double batchMicros = (System.nanoTime() - start) / 1_000.0 / rounds;
+            start = System.nanoTime();
+            checksum += pairwise(base, others, rounds);
+            double pairwiseMicros = (System.nanoTime() - start) / 1_000.0 / rounds;
+
+            System.out.printf("база %6d, %d списков по %d: countEach %8.1f мкс, попарно %8.1f мкс (x%.1f)%n",
+                    shape[0], shape[1], shape[2], batchMicros, pairwiseMicros, pairwiseMicros / batchMicros);
+            assertThat(checksum).isPositive();
+        }
+    }
+
+    private static double run(int[][] first, int[][] second, int rounds, boolean adaptive) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < PAIRS; i++) {
+                checksum += adaptive ? SortedIntersection.count(first[i], second[i]) : mergeCount(first[i], second[i]);
+            }
+        }
+        double nanos = (System.nanoTime() - start) / (double) rounds / PAIRS;
+        assertThat(checksum).isNotNegative();
+        return nanos;
+    }
+
+    private static long batch(int[] base, int[][] others, int rounds) {
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int count : SortedIntersection.countEach(base, others)) {
+                checksum += count;
+            }
+        }
+        return checksum;
+    }
+
+    private static long pairwise(int[] base, int[][] others, int rounds) {
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int[] other : others) {
+                checksum += SortedIntersection.count(base, other);
+            }
+        }
+        return checksum;
+    }
+
+    // прежний вариант FriendGraphUserStorage.intersect без выделения памяти
+    private static int mergeCount(int[] first, int[] second) {
+        int size = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static int[] randomSorted(SplittableRandom random, int size) {
+        return randomSorted(random, size, USERS);
+    }
+
+    private static int[] randomSorted(SplittableRandom random, int size, int bound) {
+        return random.ints(size * 3L, 1, bound).distinct().limit(size).sorted().toArray();
+    }
+}
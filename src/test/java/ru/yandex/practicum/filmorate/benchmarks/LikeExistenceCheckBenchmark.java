@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import java.time.LocalDate;
+
+/**
+ * Время лайка: прежняя проверка через загрузку фильма и пользователя целиком
+ * против двух SELECT EXISTS в FilmService.addLike. У фильма 300 лайков, у пользователя — друзья из БД.
+ * Число запросов проверяет FilmServiceIntegrationTest.addLike_shouldCheckExistenceWithoutHydration.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=LikeExistenceCheckBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@JdbcTest
+@Import(SchemaMigrator.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class LikeExistenceCheckBenchmark {
+
+    private static final int FANS = 300;
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 2_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void addLike_hydrationVsExists() {
+        ReferenceDataRegistry referenceData =
+                new ReferenceDataRegistry(new GenreDbStorage(jdbcTemplate), new MpaDbStorage(jdbcTemplate));
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, referenceData);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FilmService service = new FilmService(filmStorage, userStorage,
+                new GenreService(referenceData), new MpaService(referenceData), new PopularityIndex(),
+                new LikeIndex());
+
+        Film film = new Film();
+        film.setName("Популярный");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        int filmId = service.create(film).getId();
+        for (int i = 0; i < FANS; i++) {
+            jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, '1990-01-01')",
+                    "fan" + i + "@mail.ru", "fan" + i, "Фанат " + i);
+        }
+        int userId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Integer.class);
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) SELECT ?, id FROM users WHERE id <> ?",
+                filmId, userId);
+
+        Runnable hydration = () -> {
+            filmStorage.getById(filmId).orElseThrow();
+            userStorage.getById(userId).orElseThrow();
+            filmStorage.addLike(filmId, userId);
+        };
+        Runnable exists = () -> service.addLike(filmId, userId);
+        Runnable unlike = () -> jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                filmId, userId);
+
+        long nanosHydration = averageNanos(hydration, unlike);
+        long nanosExists = averageNanos(exists, unlike);
+        System.out.printf("Лайк: загрузка сущностей %d мкс, SELECT EXISTS %d мкс (x%.1f)%n",
+                nanosHydration / 1000, nanosExists / 1000, (double) nanosHydration / nanosExists);
+    }
+
+    // Среднее время action; cleanup между замерами не учитывается
+    private static long averageNanos(Runnable action, Runnable cleanup) {
+        long total = 0;
+        for (int i = 0; i < WARMUP + ROUNDS; i++) {
+            long start = System.nanoTime();
+            action.run();
+            long elapsed = System.nanoTime() - start;
+            cleanup.run();
+            if (i >= WARMUP) {
+                total += elapsed;
+            }
+        }
+        return total / ROUNDS;
+    }
+}
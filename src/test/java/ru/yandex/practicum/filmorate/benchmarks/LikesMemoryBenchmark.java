@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение памяти на один лайк: HashSet&lt;Integer&gt; против IntHashSet.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=LikesMemoryBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LikesMemoryBenchmark {
+
+    private static final int FILMS = 20_000;
+    private static final int LIKES_PER_FILM = 100;
+    private static final int USERS = 1_000_000;
+
+    @Test
+    void bytesPerLike_compactVsBoxed() {
+        double boxed = bytesPerLike(HashSet::new);
+        double compact = bytesPerLike(IntHashSet::new);
+
+        System.out.printf("HashSet<Integer>: %.1f байт/лайк, IntHashSet: %.1f байт/лайк%n", boxed, compact);
+        assertThat(compact * 4).isLessThan(boxed);
+    }
+
+    private double bytesPerLike(Supplier<Set<Integer>> setFactory) {
+        long before = usedMemory();
+        List<Set<Integer>> likes = build(setFactory);
+        long after = usedMemory();
+        Reference.reachabilityFence(likes);
+        return (after - before) / (double) (FILMS * LIKES_PER_FILM);
+    }
+
+    private List<Set<Integer>> build(Supplier<Set<Integer>> setFactory) {
+        Random random = new Random(1);
+        List<Set<Integer>> films = new ArrayList<>(FILMS);
+        for (int f = 0; f < FILMS; f++) {
+            Set<Integer> likes = setFactory.get();
+            while (likes.size() < LIKES_PER_FILM) {
+                int userId = 1 + random.nextInt(USERS);
+                if (likes instanceof IntHashSet compact) {
+                    compact.add(userId);
+                } else {
+                    likes.add(userId);
+                }
+            }
+            films.add(likes);
+        }
+        return films;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
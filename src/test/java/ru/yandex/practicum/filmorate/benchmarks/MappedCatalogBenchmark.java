@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import java.lang.ref.Reference;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Куча и сборки мусора для каталога из 1М фильмов: InMemoryFilmStorage против MappedFilmStorage.
+ * Чтение — случайные getById, как при выдаче фильмов по одному.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=MappedCatalogBenchmark -DargLine=-Xmx2g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MappedCatalogBenchmark {
+
+    private static final int FILMS = 1_000_000;
+    private static final int READS = 5_000_000;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void heapAndGc_objectsVsMappedColumns() {
+        long base = usedMemory();
+        InMemoryFilmStorage objects = new InMemoryFilmStorage();
+        fill(objects);
+        long objectsHeap = usedMemory() - base;
+        Result objectsReads = read(objects);
+        Reference.reachabilityFence(objects);
+        objects = null;
+
+        base = usedMemory();
+        MappedFilmStorage mapped = new MappedFilmStorage(
+                new ReferenceDataRegistry(mock(GenreStorage.class), mock(MpaStorage.class)),
+                dataDir.toString(), false, 0);
+        mapped.start();
+        fill(mapped);
+        long mappedHeap = usedMemory() - base;
+        Result mappedReads = read(mapped);
+        mapped.stop();
+
+        System.out.printf("объекты: куча %4d МБ, чтение %6.0f нс/фильм, сборок %4d (%d мс)%n",
+                objectsHeap >> 20, objectsReads.nanosPerRead(), objectsReads.gcCount(), objectsReads.gcMillis());
+        System.out.printf("колонки: куча %4d МБ, чтение %6.0f нс/фильм, сборок %4d (%d мс)%n",
+                mappedHeap >> 20, mappedReads.nanosPerRead(), mappedReads.gcCount(), mappedReads.gcMillis());
+        assertThat(mappedHeap).isLessThan(objectsHeap);
+    }
+
+    private static void fill(FilmStorage storage) {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film();
+            film.setName("Фильм номер " + i);
+            film.setDescription("Описание фильма " + i + ", длинное настолько, насколько бывают описания в каталоге");
+            film.setReleaseDate(LocalDate.ofEpochDay(random.nextInt(20_000)));
+            film.setDuration(60 + random.nextInt(120));
+            film.setMpa(new Mpa(1 + random.nextInt(5), null));
+            film.getGenres().add(new Genre(1 + random.nextInt(6), null));
+            film.getGenres().add(new Genre(1 + random.nextInt(6), null));
+            storage.create(film);
+        }
+    }
+
+    private static Result read(FilmStorage storage) {
+        SplittableRandom random = new SplittableRandom(11);
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            checksum += storage.getById(1 + random.nextInt(FILMS)).orElseThrow().getDuration();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(checksum).isPositive();
+        return new Result(elapsed / (double) READS, gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    private static long gcCount() {
+        return gcBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return gcBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static List<GarbageCollectorMXBean> gcBeans() {
+        return ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private record Result(double nanosPerRead, long gcCount, long gcMillis) {
+    }
+}
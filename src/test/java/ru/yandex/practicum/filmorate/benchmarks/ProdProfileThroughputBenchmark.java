@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Пропускная способность PUT /films/{id}/like/{userId} и GET /films/popular
+ * с настройками по умолчанию и с профилем prod, на файловой H2 во временном каталоге.
+ * Профиль prod заодно понижает уровень logbook с TRACE до INFO; в обоих запусках он задан одинаково
+ * аргументом командной строки (он старше файлов профилей), чтобы сравнивались настройки пула и H2, а не логирование.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=ProdProfileThroughputBenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProdProfileThroughputBenchmark {
+
+    private static final int USERS = 200;
+    private static final int FILMS = 50;
+    private static final int CLIENT_THREADS = 32;
+    private static final long WARMUP_MILLIS = 3_000;
+    private static final long MEASURE_MILLIS = 10_000;
+    private static final String LOGBOOK_LEVEL = "--logging.level.org.zalando.logbook=INFO";
+
+    @TempDir
+    Path dbDir;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(CLIENT_THREADS))
+            .build();
+
+    @Test
+    void likeAndPopular_defaultVsProd() throws Exception {
+        Result defaults = run("default", dbDir.resolve("default"));
+        Result prod = run("prod", dbDir.resolve("prod"));
+
+        System.out.printf("%-8s like: %8.0f оп/с, popular: %8.0f оп/с%n", "default", defaults.likes(), defaults.popular());
+        System.out.printf("%-8s like: %8.0f оп/с, popular: %8.0f оп/с%n", "prod", prod.likes(), prod.popular());
+        assertThat(prod.likes()).isPositive();
+        assertThat(prod.popular()).isPositive();
+    }
+
+    private Result run(String profile, Path db) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties("server.port=0",
+                        "filmorate.db.path=" + db.resolve("filmorate"),
+                        "logging.level.root=WARN");
+        if (!"default".equals(profile)) {
+            builder.profiles(profile);
+        }
+
+        try (ConfigurableApplicationContext context = builder.run(LOGBOOK_LEVEL)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://localhost:" + port;
+            seed(base);
+
+            Callable<HttpRequest> like = () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                return HttpRequest.newBuilder(URI.create(base + "/films/" + (1 + random.nextInt(FILMS))
+                                + "/like/" + (1 + random.nextInt(USERS))))
+                        .PUT(HttpRequest.BodyPublishers.noBody()).build();
+            };
+            Callable<HttpRequest> popular = () ->
+                    HttpRequest.newBuilder(URI.create(base + "/films/popular?count=10")).GET().build();
+
+            measure(like, WARMUP_MILLIS);
+            double likes = measure(like, MEASURE_MILLIS);
+            measure(popular, WARMUP_MILLIS);
+            double top = measure(popular, MEASURE_MILLIS);
+            return new Result(likes, top);
+        }
+    }
+
+    private void seed(String base) throws Exception {
+        for (int i = 1; i <= USERS; i++) {
+            post(base + "/users", """
+                    {"email":"bench%d@example.com","login":"bench%d","name":"Bench","birthday":"1990-01-01"}
+                    """.formatted(i, i));
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            post(base + "/films", """
+                    {"name":"Film %d","description":"d","releaseDate":"2000-01-01","duration":100,"mpa":{"id":1}}
+                    """.formatted(i));
+        }
+    }
+
+    private void post(String url, String json) throws Exception {
+        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(response.statusCode()).isLessThan(300);
+    }
+
+    /**
+     * CLIENT_THREADS потоков шлют запросы без пауз; результат — успешных запросов в секунду.
+     */
+    private double measure(Callable<HttpRequest> request, long millis) throws Exception {
+        AtomicLong completed = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < CLIENT_THREADS; t++) {
+            futures.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    HttpResponse<Void> response = http.send(request.call(), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() < 300) {
+                        completed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clients.shutdown();
+        return completed.get() * 1000.0 / millis;
+    }
+
+    private record Result(double likes, double popular) {
+    }
+}
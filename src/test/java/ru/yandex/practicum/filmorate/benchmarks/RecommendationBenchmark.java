@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Задержка рекомендаций фильмов: 200 тыс. пользователей по 30 лайков, 50 тыс. фильмов
+ * с перекосом популярности (каждый третий лайк — в один из 20 хитов), то есть у хитов
+ * по 80 с лишним тысяч лайков. Выборка пользователей популярного фильма против полного обхода.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=RecommendationBenchmark -DargLine=-Xmx2g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RecommendationBenchmark {
+
+    private static final int USERS = 200_000;
+    private static final int FILMS = 50_000;
+    private static final int HITS = 20;
+    private static final int LIKES_PER_USER = 30;
+    private static final int QUERIES = 500;
+
+    @Test
+    void latency_sampledVsFullPostings() {
+        SplittableRandom random = new SplittableRandom(47);
+        LikeIndex index = new LikeIndex();
+        long start = System.nanoTime();
+        for (int user = 1; user <= USERS; user++) {
+            int[] films = random.ints(LIKES_PER_USER * 2L, 0, 3 * FILMS)
+                    .map(value -> value < FILMS ? 1 + random.nextInt(HITS) : 1 + value % FILMS)
+                    .distinct().limit(LIKES_PER_USER).toArray();
+            for (int film : films) {
+                index.add(film, user);
+            }
+        }
+        System.out.printf("индекс: %d мс, лайков у хита: %d%n", (System.nanoTime() - start) / 1_000_000,
+                index.likes(1));
+
+        FilmStorage films = mock(FilmStorage.class);
+        UserStorage users = mock(UserStorage.class);
+        report("выборка 1000", new FilmRecommendationService(films, users, index, 500, 1_000, 50), random);
+        report("без выборки", new FilmRecommendationService(films, users, index, 500, Integer.MAX_VALUE, 50), random);
+    }
+
+    private static void report(String mode, FilmRecommendationService service, SplittableRandom random) {
+        for (int i = 0; i < QUERIES / 5; i++) {
+            service.recommend(1 + random.nextInt(USERS), 10);
+        }
+        long[] nanos = new long[QUERIES];
+        long checksum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            checksum += service.recommend(1 + random.nextInt(USERS), 10).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-13s p50: %7.2f мс, p99: %7.2f мс%n", mode,
+                nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6);
+        assertThat(checksum).isPositive();
+    }
+}
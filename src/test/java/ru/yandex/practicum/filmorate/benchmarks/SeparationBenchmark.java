@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.yandex.practicum.filmorate.Enum.DistanceStatus;
+import ru.yandex.practicum.filmorate.util.SeparationGraph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Степень разделения на синтетическом графе: 1М пользователей, каждый добавил 10 случайных друзей
+ * (в среднем 20 связей на пользователя). Двунаправленный BFS против одностороннего до той же глубины.
+ * Запуск: mvn test -Dbenchmark=true -Dtest=SeparationBenchmark -DargLine=-Xmx2g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SeparationBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int FRIENDS_PER_USER = 10;
+    private static final int QUERIES = 1_000;
+    private static final int MAX_DEPTH = 6;
+
+    @Test
+    void randomPairs_bidirectionalVsOneSided() {
+        SplittableRandom random = new SplittableRandom(43);
+        int edges = USERS * FRIENDS_PER_USER;
+        int[] userIds = new int[edges];
+        int[] friendIds = new int[edges];
+        for (int i = 0; i < edges; i++) {
+            userIds[i] = 1 + i / FRIENDS_PER_USER;
+            friendIds[i] = 1 + random.nextInt(USERS);
+        }
+        long start = System.nanoTime();
+        SeparationGraph graph = SeparationGraph.build(userIds, friendIds, edges);
+        System.out.printf("построение: %d мс, %d связей%n", (System.nanoTime() - start) / 1_000_000, graph.links());
+
+        int[][] pairs = new int[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            pairs[i] = new int[]{1 + random.nextInt(USERS), 1 + random.nextInt(USERS)};
+        }
+
+        // прогрев
+        for (int[] pair : pairs) {
+            graph.shortestPath(pair[0], pair[1], MAX_DEPTH, Long.MAX_VALUE, true);
+        }
+
+        long[] nanos = new long[QUERIES];
+        long visited = 0;
+        int[] histogram = new int[MAX_DEPTH + 1];
+        for (int i = 0; i < QUERIES; i++) {
+            start = System.nanoTime();
+            SeparationGraph.Result result = graph.shortestPath(pairs[i][0], pairs[i][1], MAX_DEPTH,
+                    start + 1_000_000_000L, true);
+            nanos[i] = System.nanoTime() - start;
+            visited += result.visited();
+            assertThat(result.status()).isEqualTo(DistanceStatus.FOUND);
+            histogram[result.distance()]++;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("двунаправленный: p50 %6.3f мс, p99 %6.3f мс, посещено в среднем %d, длины %s%n",
+                nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6, visited / QUERIES,
+                Arrays.toString(histogram));
+
+        // односторонний BFS на тех же массивах и тех же парах, только первые 100 — он медленный
+        int oneSidedQueries = 100;
+        long[] oneSided = new long[oneSidedQueries];
+        long oneSidedVisited = 0;
+        for (int i = 0; i < oneSidedQueries; i++) {
+            start = System.nanoTime();
+            oneSidedVisited += oneSidedBfs(graph, pairs[i][0], pairs[i][1]);
+            oneSided[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(oneSided);
+        System.out.printf("односторонний:   p50 %6.3f мс, p99 %6.3f мс, посещено в среднем %d%n",
+                oneSided[oneSidedQueries / 2] / 1e6, oneSided[oneSidedQueries * 99 / 100] / 1e6,
+                oneSidedVisited / oneSidedQueries);
+    }
+
+    // обычный BFS от from, пока не будет снят с очереди to
+    private static int oneSidedBfs(SeparationGraph graph, int from, int to) {
+        long[] visited = new long[(graph.users() + 63) >>> 6];
+        int[] queue = new int[graph.users()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        visited[from >>> 6] |= 1L << from;
+        while (head < tail) {
+            int user = queue[head++];
+            if (user == to) break;
+            for (int next : graph.neighbours(user)) {
+                if ((visited[next >>> 6] & (1L << next)) == 0) {
+                    visited[next >>> 6] |= 1L << next;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+/**
+ * Режим h2-file: H2 в файле во временном каталоге.
+ */
+class H2FileStorageContractTest extends StorageContractTest {
+
+    @TempDir
+    static Path dbDir;
+
+    private static H2StorageContractSupport h2;
+
+    @BeforeAll
+    static void openDatabase() {
+        h2 = new H2StorageContractSupport("jdbc:h2:file:" + dbDir.resolve("filmorate") + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        h2.shutdown();
+    }
+
+    @Override
+    protected void openStorages() {
+        h2.reset();
+        filmStorage = h2.filmStorage();
+        userStorage = h2.userStorage();
+    }
+}
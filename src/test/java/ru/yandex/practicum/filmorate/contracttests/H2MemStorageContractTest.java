@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+import java.util.UUID;
+
+/**
+ * Режим h2-mem: H2 в памяти процесса.
+ */
+class H2MemStorageContractTest extends StorageContractTest {
+
+    private static H2StorageContractSupport h2;
+
+    @BeforeAll
+    static void openDatabase() {
+        h2 = new H2StorageContractSupport("jdbc:h2:mem:contract-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        h2.shutdown();
+    }
+
+    @Override
+    protected void openStorages() {
+        h2.reset();
+        filmStorage = h2.filmStorage();
+        userStorage = h2.userStorage();
+    }
+}
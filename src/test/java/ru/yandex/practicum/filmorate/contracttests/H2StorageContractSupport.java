@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import org.h2.Driver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import ru.yandex.practicum.filmorate.storage.*;
+
+/**
+ * База H2 по URL режима со схемой из миграций. Одна на класс тестов:
+ * открытие файловой базы дорогое, поэтому перед каждым тестом таблицы только очищаются.
+ * Соединения не пулятся, так что URL должен держать базу открытой (DB_CLOSE_DELAY=-1).
+ */
+final class H2StorageContractSupport {
+
+    private final JdbcTemplate jdbcTemplate;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    H2StorageContractSupport(String url) {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new Driver(), url, "sa", "");
+        new SchemaMigrator(dataSource).migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Удаляет фильмы и пользователей (в том числе начальные данные) и создаёт новые хранилища.
+     */
+    void reset() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        jdbcTemplate.update("DELETE FROM film_genres");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM user_friends");
+        jdbcTemplate.update("DELETE FROM users");
+
+        ReferenceDataRegistry referenceData =
+                new ReferenceDataRegistry(new GenreDbStorage(jdbcTemplate), new MpaDbStorage(jdbcTemplate));
+        filmStorage = new FilmDbStorage(jdbcTemplate, referenceData);
+        userStorage = new UserDbStorage(jdbcTemplate);
+    }
+
+    FilmStorage filmStorage() {
+        return filmStorage;
+    }
+
+    UserStorage userStorage() {
+        return userStorage;
+    }
+
+    ReferenceDataRegistry referenceData() {
+        return new ReferenceDataRegistry(new GenreDbStorage(jdbcTemplate), new MpaDbStorage(jdbcTemplate));
+    }
+
+    void shutdown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+/**
+ * Режим memory: коллекции Java.
+ */
+class InMemoryStorageContractTest extends StorageContractTest {
+
+    @Override
+    protected void openStorages() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+    }
+}
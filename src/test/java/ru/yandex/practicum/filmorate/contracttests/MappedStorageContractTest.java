@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.MappedFilmStorage;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Режим mapped: фильмы в колонках, отображённых в память, пользователи в коллекциях Java.
+ */
+class MappedStorageContractTest extends StorageContractTest {
+
+    private static H2StorageContractSupport referenceDb;
+
+    @TempDir
+    Path dataDir;
+
+    @BeforeAll
+    static void openDatabase() {
+        referenceDb = new H2StorageContractSupport("jdbc:h2:mem:contract-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        referenceDb.shutdown();
+    }
+
+    @Override
+    protected void openStorages() {
+        MappedFilmStorage films = new MappedFilmStorage(referenceDb.referenceData(), dataDir.toString(), true, 0);
+        films.start();
+        filmStorage = films;
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Override
+    protected void closeStorages() {
+        ((MappedFilmStorage) filmStorage).stop();
+    }
+}
@@ -0,0 +1,273 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Общий контракт FilmStorage и UserStorage. Его проходит каждый режим filmorate.storage.mode:
+ * наследник только создаёт хранилища своего режима.
+ */
+abstract class StorageContractTest {
+
+    protected FilmStorage filmStorage;
+    protected UserStorage userStorage;
+
+    /**
+     * Создаёт пустые хранилища режима и записывает их в filmStorage и userStorage.
+     */
+    protected abstract void openStorages() throws Exception;
+
+    protected void closeStorages() throws Exception {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        openStorages();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        closeStorages();
+    }
+
+    // ===== Фильмы =====
+
+    @Test
+    void createFilm_shouldAssignIdAndBeReadable() {
+        Film created = filmStorage.create(film("Матрица", 1, 1, 2));
+
+        Film fetched = filmStorage.getById(created.getId()).orElseThrow();
+        assertThat(created.getId()).isPositive();
+        assertThat(fetched.getName()).isEqualTo("Матрица");
+        assertThat(fetched.getMpa().getId()).isEqualTo(1);
+        assertThat(genreIds(fetched)).containsExactly(1, 2);
+        assertThat(fetched.getLikes()).isEmpty();
+    }
+
+    @Test
+    void updateFilm_shouldReplaceFieldsAndKeepLikes() {
+        int userId = userStorage.create(user("u1")).getId();
+        Film created = filmStorage.create(film("Old", 1));
+        filmStorage.addLike(created.getId(), userId);
+
+        Film changed = film("New", 2, 2, 3);
+        changed.setId(created.getId());
+        filmStorage.update(changed);
+
+        Film fetched = filmStorage.getById(created.getId()).orElseThrow();
+        assertThat(fetched.getName()).isEqualTo("New");
+        assertThat(genreIds(fetched)).containsExactly(2, 3);
+        assertThat(fetched.getLikes()).containsExactly(userId);
+    }
+
+    @Test
+    void updateMissingFilm_shouldFailAsNotFound() {
+        Film missing = film("Missing");
+        missing.setId(9999);
+
+        assertThat(catchThrowable(() -> filmStorage.update(missing)))
+                .isInstanceOfAny(NoSuchElementException.class, NotFoundException.class);
+        assertThat(filmStorage.getById(9999)).isEmpty();
+    }
+
+    @Test
+    void filmLookups_shouldAgreeOnExistence() {
+        int first = filmStorage.create(film("A")).getId();
+        int second = filmStorage.create(film("B")).getId();
+
+        assertThat(filmStorage.exists(first)).isTrue();
+        assertThat(filmStorage.exists(9999)).isFalse();
+        assertThat(filmStorage.existsAll(first, second, first)).isTrue();
+        assertThat(filmStorage.existsAll(first, 9999)).isFalse();
+        assertThat(filmStorage.findExistingIds(List.of(second, 9999, first))).containsExactlyInAnyOrder(first, second);
+        assertThat(filmStorage.getByIds(List.of(second, 9999, first)))
+                .extracting(Film::getId).containsExactly(second, first);
+    }
+
+    @Test
+    void findFilmPage_shouldWalkAllFilmsInIdOrder() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(filmStorage.create(film("Film " + i)).getId());
+        }
+
+        List<Integer> walked = new ArrayList<>();
+        int after = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.findPage(after, 2);
+            page.forEach(film -> walked.add(film.getId()));
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == 2);
+
+        assertThat(walked).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void likes_shouldReportOnlyRealChanges() {
+        int userId = userStorage.create(user("u1")).getId();
+        int filmId = filmStorage.create(film("F")).getId();
+
+        assertThat(filmStorage.addLike(filmId, userId)).isTrue();
+        assertThat(filmStorage.addLike(filmId, userId)).isFalse();
+        assertThat(filmStorage.hasLike(filmId, userId)).isTrue();
+        assertThat(filmStorage.getById(filmId).orElseThrow().getLikes()).containsExactly(userId);
+
+        assertThat(filmStorage.removeLike(filmId, userId)).isTrue();
+        assertThat(filmStorage.removeLike(filmId, userId)).isFalse();
+        assertThat(filmStorage.hasLike(filmId, userId)).isFalse();
+    }
+
+    @Test
+    void applyLikes_shouldReportEachChangeInOrder() {
+        int u1 = userStorage.create(user("u1")).getId();
+        int u2 = userStorage.create(user("u2")).getId();
+        int filmId = filmStorage.create(film("F")).getId();
+        filmStorage.addLike(filmId, u2);
+
+        boolean[] applied = filmStorage.applyLikes(List.of(
+                new LikeChange(filmId, u1, LikeOperation.ADD),
+                new LikeChange(filmId, u1, LikeOperation.ADD),
+                new LikeChange(filmId, u2, LikeOperation.REMOVE),
+                new LikeChange(filmId, u2, LikeOperation.REMOVE)
+        ));
+
+        assertThat(applied).containsExactly(true, false, true, false);
+        assertThat(filmStorage.getById(filmId).orElseThrow().getLikes()).containsExactly(u1);
+        assertThat(filmStorage.getLikeCounts()).containsEntry(filmId, 1);
+    }
+
+    @Test
+    void popularFilms_shouldBeOrderedByLikes() {
+        int u1 = userStorage.create(user("u1")).getId();
+        int u2 = userStorage.create(user("u2")).getId();
+        int none = filmStorage.create(film("None")).getId();
+        int one = filmStorage.create(film("One")).getId();
+        int two = filmStorage.create(film("Two")).getId();
+        filmStorage.addLike(one, u1);
+        filmStorage.addLike(two, u1);
+        filmStorage.addLike(two, u2);
+
+        assertThat(filmStorage.getPopularFilms(2)).extracting(Film::getId).containsExactly(two, one);
+        assertThat(filmStorage.getLikeCounts())
+                .containsEntry(two, 2).containsEntry(one, 1).containsEntry(none, 0);
+    }
+
+    // ===== Пользователи =====
+
+    @Test
+    void createUsers_shouldAssignDistinctIds() {
+        User single = userStorage.create(user("single"));
+        List<User> batch = userStorage.createAll(List.of(user("b1"), user("b2")));
+
+        Set<Integer> ids = new HashSet<>(List.of(single.getId(), batch.get(0).getId(), batch.get(1).getId()));
+        assertThat(ids).hasSize(3);
+        assertThat(userStorage.getById(batch.get(1).getId()).orElseThrow().getLogin()).isEqualTo("b2");
+        assertThat(userStorage.existsAll(single.getId(), batch.get(0).getId())).isTrue();
+        assertThat(userStorage.findExistingIds(List.of(single.getId(), 9999))).containsExactly(single.getId());
+    }
+
+    @Test
+    void updateUser_shouldReplaceFieldsAndFailForMissing() {
+        User created = userStorage.create(user("old"));
+        User changed = user("new");
+        changed.setId(created.getId());
+        userStorage.update(changed);
+
+        User missing = user("missing");
+        missing.setId(9999);
+
+        assertThat(userStorage.getById(created.getId()).orElseThrow().getLogin()).isEqualTo("new");
+        assertThat(catchThrowable(() -> userStorage.update(missing)))
+                .isInstanceOfAny(NoSuchElementException.class, NotFoundException.class);
+    }
+
+    @Test
+    void findUserPage_shouldReturnUsersAfterId() {
+        int first = userStorage.create(user("p1")).getId();
+        int second = userStorage.create(user("p2")).getId();
+        int third = userStorage.create(user("p3")).getId();
+
+        assertThat(userStorage.findPage(first, 10, false)).extracting(User::getId).containsExactly(second, third);
+        assertThat(userStorage.findPage(0, 1, true)).extracting(User::getId).containsExactly(first);
+    }
+
+    @Test
+    void friendship_shouldBeOneWayWithConfirmation() {
+        int alice = userStorage.create(user("alice")).getId();
+        int bob = userStorage.create(user("bob")).getId();
+        int carol = userStorage.create(user("carol")).getId();
+
+        userStorage.addFriend(alice, bob);
+        userStorage.addFriend(alice, carol);
+        userStorage.addFriend(bob, carol);
+        userStorage.confirmFriend(alice, bob);
+
+        assertThat(friendIds(alice)).containsExactlyInAnyOrder(bob, carol);
+        assertThat(friendIds(carol)).isEmpty();
+        assertThat(userStorage.getById(alice).orElseThrow().getFriends())
+                .containsEntry(bob, FriendshipStatus.CONFIRMED)
+                .containsEntry(carol, FriendshipStatus.REQUESTED);
+        assertThat(userStorage.getCommonFriends(alice, bob)).extracting(User::getId).containsExactly(carol);
+        int[][] sorted = userStorage.getFriendIds(new int[]{alice, carol, bob, Integer.MAX_VALUE});
+        assertThat(sorted[0]).containsExactly(Math.min(bob, carol), Math.max(bob, carol));
+        assertThat(sorted[1]).isEmpty();
+        assertThat(sorted[2]).containsExactly(carol);
+        assertThat(sorted[3]).isEmpty();
+
+        userStorage.removeFriend(alice, carol);
+
+        assertThat(friendIds(alice)).containsExactly(bob);
+        assertThat(userStorage.getCommonFriends(alice, bob)).isEmpty();
+    }
+
+    private List<Integer> friendIds(int userId) {
+        return userStorage.getFriends(userId).stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static List<Integer> genreIds(Film film) {
+        return film.getGenres().stream().map(Genre::getId).sorted().collect(Collectors.toList());
+    }
+
+    protected static Film film(String name, int mpaId, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(mpaId, null));
+        for (int genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return film;
+    }
+
+    protected static Film film(String name) {
+        return film(name, 1);
+    }
+
+    protected static User user(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@example.com");
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
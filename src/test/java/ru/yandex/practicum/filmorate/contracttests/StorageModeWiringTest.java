@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.contracttests;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.MappedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет, что filmorate.storage.mode выбирает реализации хранилищ и источник данных.
+ */
+class StorageModeWiringTest {
+
+    @Nested
+    @SpringBootTest(properties = {"filmorate.storage.mode=memory", "filmorate.storage.mem-db-name=wiring-memory"})
+    class MemoryMode {
+
+        @Autowired
+        private ApplicationContext context;
+
+        @Autowired
+        private FilmService filmService;
+
+        @Test
+        void shouldUseJavaCollections() {
+            assertThat(context.getBeansOfType(InMemoryFilmStorage.class)).hasSize(1);
+            assertThat(context.getBeansOfType(InMemoryUserStorage.class)).hasSize(1);
+            assertThat(context.getBeansOfType(FilmDbStorage.class)).isEmpty();
+            assertThat(context.getBeansOfType(UserDbStorage.class)).isEmpty();
+            assertThat(filmService.findAll()).isEmpty();
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {"filmorate.storage.mode=mapped", "filmorate.storage.mem-db-name=wiring-mapped",
+            "filmorate.storage.mapped.data-dir=target/storage-mode-wiring/mapped"})
+    class MappedMode {
+
+        @Autowired
+        private ApplicationContext context;
+
+        @Test
+        void shouldUseMappedCatalogAndJavaCollectionsForUsers() {
+            assertThat(context.getBeansOfType(MappedFilmStorage.class)).hasSize(1);
+            assertThat(context.getBeansOfType(InMemoryUserStorage.class)).hasSize(1);
+            assertThat(context.getBeansOfType(InMemoryFilmStorage.class)).isEmpty();
+            assertThat(context.getBeansOfType(FilmDbStorage.class)).isEmpty();
+            assertThat(context.getBeansOfType(UserDbStorage.class)).isEmpty();
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {"filmorate.storage.mode=h2-mem", "filmorate.storage.mem-db-name=wiring-h2-mem"})
+    class H2MemMode {
+
+        @Autowired
+        private ApplicationContext context;
+
+        @Autowired
+        private Environment environment;
+
+        @Test
+        void shouldUseDatabaseInMemory() {
+            assertThat(environment.getProperty("spring.datasource.url")).startsWith("jdbc:h2:mem:wiring-h2-mem");
+            assertThat(context.getBeansOfType(FilmDbStorage.class)).hasSize(1);
+            assertThat(context.getBeansOfType(InMemoryFilmStorage.class)).isEmpty();
+        }
+    }
+}
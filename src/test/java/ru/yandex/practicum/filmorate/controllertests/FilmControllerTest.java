@@ -9,11 +9,18 @@ import org.springframework.http.*;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.Enum.LikeResultStatus;
 import ru.yandex.practicum.filmorate.dto.FilmRequestDto;
+import ru.yandex.practicum.filmorate.dto.FilmResponseDto;
+import ru.yandex.practicum.filmorate.dto.LikeRequestDto;
+import ru.yandex.practicum.filmorate.dto.LikeResultDto;
 import ru.yandex.practicum.filmorate.dto.MpaRequestDto;
+import ru.yandex.practicum.filmorate.dto.UserDto;
 
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -98,4 +105,119 @@ class FilmControllerTest {
         assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
         assertThat(exception.getResponseBodyAsString()).contains("Продолжительность должна быть положительной");
     }
+
+    @Test
+    void createFilm_shouldFailValidation_unknownMpa() {
+        FilmRequestDto request = new FilmRequestDto();
+        request.setName("Фильм");
+        request.setDescription("Описание фильма");
+        request.setReleaseDate(LocalDate.of(2020, 1, 1));
+        request.setDuration(120);
+        request.setMpa(new MpaRequestDto(999)); // такого рейтинга нет в справочнике
+        request.setGenres(new HashSet<>());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<FilmRequestDto> entity = new HttpEntity<>(request, headers);
+
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> restTemplate.postForEntity(baseUrl, entity, String.class));
+
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(exception.getResponseBodyAsString()).contains("Неверный id MPA рейтинга: 999");
+    }
+
+    @Test
+    void findAll_shouldStreamAllFilmsAndPageByKeyset() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        int firstId = 0;
+        for (int i = 1; i <= 3; i++) {
+            FilmRequestDto request = new FilmRequestDto();
+            request.setName("Фильм " + i);
+            request.setDescription("Описание фильма");
+            request.setReleaseDate(LocalDate.of(2020, 1, i));
+            request.setDuration(100);
+            request.setMpa(new MpaRequestDto(1));
+            request.setGenres(new HashSet<>());
+            FilmResponseDto created = restTemplate.postForObject(
+                    baseUrl, new HttpEntity<>(request, headers), FilmResponseDto.class);
+            if (i == 1) {
+                firstId = created.getId();
+            }
+        }
+
+        // в начальных данных могут быть свои фильмы, поэтому сравниваем хвост списка
+        FilmResponseDto[] all = restTemplate.getForObject(baseUrl, FilmResponseDto[].class);
+        assertThat(all).extracting(FilmResponseDto::getId).isSorted();
+        assertThat(all).extracting(FilmResponseDto::getName).endsWith("Фильм 1", "Фильм 2", "Фильм 3");
+
+        FilmResponseDto[] firstPage = restTemplate.getForObject(
+                baseUrl + "?limit=2&after=" + (firstId - 1), FilmResponseDto[].class);
+        assertThat(firstPage).extracting(FilmResponseDto::getName).containsExactly("Фильм 1", "Фильм 2");
+
+        FilmResponseDto[] secondPage = restTemplate.getForObject(
+                baseUrl + "?limit=2&after=" + firstPage[1].getId(), FilmResponseDto[].class);
+        assertThat(secondPage).extracting(FilmResponseDto::getName).containsExactly("Фильм 3");
+
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> restTemplate.getForEntity(baseUrl + "?limit=0", String.class));
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void applyLikes_shouldReturnResultPerItem() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        FilmRequestDto request = new FilmRequestDto();
+        request.setName("Фильм для лайков");
+        request.setDescription("Описание фильма");
+        request.setReleaseDate(LocalDate.of(2020, 1, 1));
+        request.setDuration(100);
+        request.setMpa(new MpaRequestDto(1));
+        request.setGenres(new HashSet<>());
+        int filmId = restTemplate.postForObject(baseUrl, new HttpEntity<>(request, headers), FilmResponseDto.class)
+                .getId();
+
+        UserDto user = new UserDto(0, "liker@example.com", "liker", "Liker", LocalDate.of(1990, 1, 1));
+        int userId = restTemplate.postForObject("http://localhost:" + port + "/users",
+                new HttpEntity<>(user, headers), UserDto.class).getId();
+
+        List<LikeRequestDto> likes = List.of(
+                new LikeRequestDto(filmId, userId, LikeOperation.ADD),
+                new LikeRequestDto(filmId, userId, LikeOperation.ADD),
+                new LikeRequestDto(999_999, userId, LikeOperation.ADD),
+                new LikeRequestDto(filmId, 999_999, LikeOperation.REMOVE)
+        );
+        LikeResultDto[] results = restTemplate.postForObject(baseUrl + "/likes",
+                new HttpEntity<>(likes, headers), LikeResultDto[].class);
+
+        assertThat(results).extracting(LikeResultDto::getStatus).containsExactly(
+                LikeResultStatus.APPLIED,
+                LikeResultStatus.UNCHANGED,
+                LikeResultStatus.FILM_NOT_FOUND,
+                LikeResultStatus.USER_NOT_FOUND
+        );
+        // лайк сохранён: снятие применяется
+        LikeResultDto[] removed = restTemplate.postForObject(baseUrl + "/likes",
+                new HttpEntity<>(List.of(new LikeRequestDto(filmId, userId, LikeOperation.REMOVE)), headers),
+                LikeResultDto[].class);
+        assertThat(removed).extracting(LikeResultDto::getStatus).containsExactly(LikeResultStatus.APPLIED);
+
+        List<LikeRequestDto> invalid = List.of(new LikeRequestDto(filmId, userId, null));
+        HttpClientErrorException exception = assertThrows(HttpClientErrorException.class,
+                () -> restTemplate.postForEntity(baseUrl + "/likes", new HttpEntity<>(invalid, headers), String.class));
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void writeBehindMetrics_shouldBeExported() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/metrics/likes/write-behind", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).contains("\"pendingChanges\":0", "\"rejectedChanges\":0",
+                "\"maxFlushMicros\"");
+    }
 }
@@ -10,13 +10,21 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import ru.yandex.practicum.filmorate.dto.FilmRequestDto;
+import ru.yandex.practicum.filmorate.dto.FilmResponseDto;
+import ru.yandex.practicum.filmorate.dto.MpaRequestDto;
 import ru.yandex.practicum.filmorate.dto.UserDto;
+import ru.yandex.practicum.filmorate.service.SeparationService;
 
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -31,6 +39,9 @@ class UserControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private SeparationService separationService;
+
     private UserDto user1;
     private UserDto user2;
 
@@ -109,6 +120,107 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].id").value(u3Created.getId()));
     }
 
+    @Test
+    void getCommonFriendCounts_shouldCountForEachUser() throws Exception {
+        int[] ids = new int[4];
+        for (int i = 0; i < ids.length; i++) {
+            UserDto user = new UserDto(0, "u" + i + "@example.com", "u" + i, "U" + i, LocalDate.of(1990, 1, 1));
+            ids[i] = objectMapper.readValue(mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user)))
+                    .andReturn().getResponse().getContentAsString(), UserDto.class).getId();
+        }
+        // u0 дружит с u2 и u3, u1 — с u2
+        for (int[] pair : new int[][]{{ids[0], ids[2]}, {ids[0], ids[3]}, {ids[1], ids[2]}}) {
+            mockMvc.perform(put("/users/{id}/friends/{friendId}", pair[0], pair[1]))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/users/{id}/friends/common/counts", ids[0])
+                        .param("ids", ids[1] + "," + ids[2] + "," + ids[0]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + ids[1] + "']").value(1))
+                .andExpect(jsonPath("$['" + ids[2] + "']").value(0))
+                .andExpect(jsonPath("$['" + ids[0] + "']").value(2));
+        mockMvc.perform(get("/users/{id}/friends/common/counts", ids[0]).param("ids", "9999"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/{id}/friends/common/counts", ids[0]).param("ids", "-1"))
+                .andExpect(status().isBadRequest());
+
+        // друзья друзей u1: u2 — уже друг u0, u3 — нет
+        mockMvc.perform(get("/users/{id}/friends/suggestions", ids[1]).param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", ids[1], ids[0]))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}/friends/suggestions", ids[1]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(ids[3]));
+        mockMvc.perform(get("/users/{id}/friends/suggestions", ids[1]).param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getDistance_shouldReturnShortestPathAfterRebuild() throws Exception {
+        int[] ids = new int[4];
+        for (int i = 0; i < ids.length; i++) {
+            UserDto user = new UserDto(0, "d" + i + "@example.com", "d" + i, "D" + i, LocalDate.of(1990, 1, 1));
+            ids[i] = objectMapper.readValue(mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user)))
+                    .andReturn().getResponse().getContentAsString(), UserDto.class).getId();
+        }
+        // d0 -> d1, d2 -> d1: связь в любую сторону считается
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", ids[0], ids[1])).andExpect(status().isOk());
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", ids[2], ids[1])).andExpect(status().isOk());
+        separationService.rebuild();
+
+        mockMvc.perform(get("/users/{id}/distance/{otherId}", ids[0], ids[2]).param("withPath", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FOUND"))
+                .andExpect(jsonPath("$.distance").value(2))
+                .andExpect(jsonPath("$.path[1]").value(ids[1]));
+        mockMvc.perform(get("/users/{id}/distance/{otherId}", ids[0], ids[3]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("NOT_CONNECTED"))
+                .andExpect(jsonPath("$.distance").doesNotExist());
+        mockMvc.perform(get("/users/{id}/distance/{otherId}", ids[0], 9999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getRecommendations_shouldSuggestFilmsOfSimilarUsers() throws Exception {
+        int[] users = new int[2];
+        for (int i = 0; i < users.length; i++) {
+            UserDto user = new UserDto(0, "r" + i + "@example.com", "r" + i, "R" + i, LocalDate.of(1990, 1, 1));
+            users[i] = objectMapper.readValue(mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user)))
+                    .andReturn().getResponse().getContentAsString(), UserDto.class).getId();
+        }
+        int[] films = new int[2];
+        for (int i = 0; i < films.length; i++) {
+            FilmRequestDto film = new FilmRequestDto(null, "Фильм " + i, "Описание", LocalDate.of(2000, 1, 1),
+                    100, new MpaRequestDto(1), new LinkedHashSet<>());
+            films[i] = objectMapper.readValue(mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andReturn().getResponse().getContentAsString(), FilmResponseDto.class).getId();
+        }
+        // r0 и r1 лайкнули первый фильм, r1 — ещё и второй
+        mockMvc.perform(put("/films/{id}/like/{userId}", films[0], users[0])).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", films[0], users[1])).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", films[1], users[1])).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/{id}/recommendations", users[0]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films[1]));
+        mockMvc.perform(get("/users/{id}/recommendations", 9999))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void createUser_withInvalidEmail_shouldReturnBadRequest() throws Exception {
         user1.setEmail("invalid-email");
@@ -118,5 +230,32 @@ class UserControllerTest {
                         .content(objectMapper.writeValueAsString(user1)))
                 .andExpect(status().isBadRequest());
     }
-}
 
+    @Test
+    void findAll_shouldStreamUsersAndPageByKeyset() throws Exception {
+        for (UserDto user : new UserDto[]{user1, user2}) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user)))
+                    .andExpect(status().isOk());
+        }
+
+        // без limit ответ пишется потоком, поэтому запрос асинхронный
+        MvcResult streamed = mockMvc.perform(get("/users"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        UserDto[] all = objectMapper.readValue(mockMvc.perform(asyncDispatch(streamed))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), UserDto[].class);
+        assertThat(all).extracting(UserDto::getLogin).contains("alice", "bob");
+
+        int lastId = all[all.length - 1].getId();
+        mockMvc.perform(get("/users").param("limit", "1").param("after", String.valueOf(lastId - 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(lastId));
+        mockMvc.perform(get("/users").param("limit", "1").param("after", String.valueOf(lastId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+}
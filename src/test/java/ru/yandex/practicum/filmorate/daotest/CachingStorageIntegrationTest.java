@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.daotest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.*;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import(SchemaMigrator.class)
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class CachingStorageIntegrationTest {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    private QueryCountingDataSource countingDataSource;
+    private CachingFilmStorage filmStorage;
+    private CachingUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        jdbcTemplate.update("DELETE FROM film_genres");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM user_friends");
+        jdbcTemplate.update("DELETE FROM users");
+
+        jdbcTemplate.update("""
+                    INSERT INTO users (id, email, login, name, birthday) VALUES
+                    (1, 'user1@example.com', 'user1', 'Алена', '1990-05-12'),
+                    (2, 'user2@example.com', 'user2', 'Иван', '1985-03-23')
+                """);
+        jdbcTemplate.update("""
+                    INSERT INTO films (id, name, description, release_date, duration, mpa_rating_id) VALUES
+                    (1, 'Film 1', 'Desc', '2000-01-01', 100, 1)
+                """);
+
+        countingDataSource = new QueryCountingDataSource(dataSource);
+        JdbcTemplate countingTemplate = new JdbcTemplate(countingDataSource);
+        ReferenceDataRegistry referenceData =
+                new ReferenceDataRegistry(new GenreDbStorage(jdbcTemplate), new MpaDbStorage(jdbcTemplate));
+
+        filmStorage = new CachingFilmStorage(new FilmDbStorage(countingTemplate, referenceData), 100, 60_000);
+        userStorage = new CachingUserStorage(new UserDbStorage(countingTemplate), 100, 60_000);
+    }
+
+    @Test
+    void getById_shouldNotQueryDatabaseOnHit() {
+        assertThat(filmStorage.getById(1)).isPresent();
+        assertThat(userStorage.getById(1)).isPresent();
+
+        countingDataSource.reset();
+        for (int i = 0; i < 10; i++) {
+            assertThat(filmStorage.getById(1)).isPresent();
+            assertThat(userStorage.getById(1)).isPresent();
+        }
+
+        assertThat(countingDataSource.getCount()).isZero();
+        assertThat(filmStorage.getCacheStats().hits()).isEqualTo(10);
+        assertThat(filmStorage.getCacheStats().misses()).isEqualTo(1);
+        assertThat(userStorage.getCacheStats().hits()).isEqualTo(10);
+    }
+
+    @Test
+    void addLike_shouldInvalidateCachedFilm() {
+        assertThat(filmStorage.getById(1).orElseThrow().getLikes()).isEmpty();
+
+        filmStorage.addLike(1, 2);
+        assertThat(filmStorage.getById(1).orElseThrow().getLikes()).containsExactly(2);
+
+        filmStorage.removeLike(1, 2);
+        assertThat(filmStorage.getById(1).orElseThrow().getLikes()).isEmpty();
+    }
+
+    @Test
+    void update_shouldInvalidateCachedFilm() {
+        Film cached = filmStorage.getById(1).orElseThrow();
+        Film changed = new Film();
+        changed.setId(1);
+        changed.setName("Updated");
+        changed.setDescription(cached.getDescription());
+        changed.setReleaseDate(cached.getReleaseDate());
+        changed.setDuration(cached.getDuration());
+        changed.setMpa(cached.getMpa());
+
+        filmStorage.update(changed);
+
+        Film reloaded = filmStorage.getById(1).orElseThrow();
+        assertThat(reloaded).isNotSameAs(cached).isNotSameAs(changed);
+        assertThat(reloaded.getName()).isEqualTo("Updated");
+    }
+
+    @Test
+    void getById_shouldReturnCopiesOfCachedEntities() {
+        Film film = filmStorage.getById(1).orElseThrow();
+        film.setName("Изменён без update");
+        film.getLikes().add(2);
+        User user = userStorage.getById(1).orElseThrow();
+        user.setName("Изменён без update");
+        user.getFriends().put(2, FriendshipStatus.CONFIRMED);
+
+        countingDataSource.reset();
+        Film fromCache = filmStorage.getById(1).orElseThrow();
+        User userFromCache = userStorage.getById(1).orElseThrow();
+        assertThat(countingDataSource.getCount()).isZero();
+        assertThat(fromCache.getName()).isEqualTo("Film 1");
+        assertThat(fromCache.getLikes()).isEmpty();
+        assertThat(filmStorage.getByIds(List.of(1))).extracting(Film::getName).containsExactly("Film 1");
+        assertThat(userFromCache.getName()).isEqualTo("Алена");
+        assertThat(userFromCache.getFriends()).isEmpty();
+    }
+
+    @Test
+    void friendChanges_shouldInvalidateCachedUser() {
+        assertThat(userStorage.getById(1).orElseThrow().getFriends()).isEmpty();
+
+        userStorage.addFriend(1, 2);
+        assertThat(userStorage.getById(1).orElseThrow().getFriends())
+                .containsEntry(2, FriendshipStatus.REQUESTED);
+
+        userStorage.confirmFriend(1, 2);
+        assertThat(userStorage.getById(1).orElseThrow().getFriends())
+                .containsEntry(2, FriendshipStatus.CONFIRMED);
+
+        userStorage.removeFriend(1, 2);
+        assertThat(userStorage.getById(1).orElseThrow().getFriends()).isEmpty();
+
+        User cached = userStorage.getById(1).orElseThrow();
+        User renamed = new User();
+        renamed.setId(1);
+        renamed.setEmail(cached.getEmail());
+        renamed.setLogin(cached.getLogin());
+        renamed.setName("Новое имя");
+        renamed.setBirthday(cached.getBirthday());
+        userStorage.update(renamed);
+
+        User reloaded = userStorage.getById(1).orElseThrow();
+        assertThat(reloaded).isNotSameAs(cached);
+        assertThat(reloaded.getName()).isEqualTo("Новое имя");
+    }
+}
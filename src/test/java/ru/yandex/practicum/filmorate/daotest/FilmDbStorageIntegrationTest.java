@@ -6,31 +6,44 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
 
+import javax.sql.DataSource;
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @JdbcTest
+@Import(SchemaMigrator.class)
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmDbStorageIntegrationTest {
 
     private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private ReferenceDataRegistry referenceData;
     private FilmDbStorage filmDbStorage;
 
     @BeforeEach
     void setUp() {
-        filmDbStorage = new FilmDbStorage(jdbcTemplate);
+        referenceData = new ReferenceDataRegistry(new GenreDbStorage(jdbcTemplate), new MpaDbStorage(jdbcTemplate));
+        filmDbStorage = new FilmDbStorage(jdbcTemplate, referenceData);
 
         // очистка таблиц
         jdbcTemplate.update("DELETE FROM film_likes");
@@ -134,5 +147,214 @@ class FilmDbStorageIntegrationTest {
         List<Film> all = filmDbStorage.findAll();
         assertThat(all).hasSize(2);
     }
-}
 
+    @Test
+    void findAll_shouldLoadGenresAndLikes() {
+        Film film = new Film();
+        film.setName("Фильм с жанрами");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2015, 3, 3));
+        film.setDuration(95);
+        film.setMpa(new Mpa(3, "PG-13"));
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(2, "Драма"), new Genre(1, "Комедия"))));
+        Film created = filmDbStorage.create(film);
+
+        Integer userId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Integer.class);
+        filmDbStorage.addLike(created.getId(), userId);
+
+        Film fetched = filmDbStorage.findAll().getFirst();
+        assertThat(fetched.getMpa()).isEqualTo(new Mpa(3, "PG-13"));
+        assertThat(fetched.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+        assertThat(fetched.getLikes()).containsExactly(userId);
+    }
+
+    @Test
+    void queryCount_shouldNotDependOnNumberOfFilms() {
+        QueryCountingDataSource countingDataSource = new QueryCountingDataSource(dataSource);
+        FilmDbStorage countedStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource), referenceData);
+
+        insertFilms(5);
+        countingDataSource.reset();
+        assertThat(countedStorage.findAll()).hasSize(5);
+        int smallFindAll = countingDataSource.getCount();
+
+        countingDataSource.reset();
+        countedStorage.getPopularFilms(5);
+        int smallPopular = countingDataSource.getCount();
+
+        insertFilms(45);
+        countingDataSource.reset();
+        assertThat(countedStorage.findAll()).hasSize(50);
+        int largeFindAll = countingDataSource.getCount();
+
+        countingDataSource.reset();
+        countedStorage.getPopularFilms(50);
+        int largePopular = countingDataSource.getCount();
+
+        countingDataSource.reset();
+        countedStorage.getById(1);
+        int byId = countingDataSource.getCount();
+
+        // фильмы + жанры + лайки
+        assertThat(smallFindAll).isEqualTo(3);
+        assertThat(largeFindAll).isEqualTo(smallFindAll);
+        assertThat(largePopular).isEqualTo(smallPopular).isEqualTo(3);
+        assertThat(byId).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void addAndRemoveLike_shouldKeepLikesCountConsistent() {
+        insertFilms(1);
+        int filmId = filmDbStorage.findAll().getFirst().getId();
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+
+        filmDbStorage.addLike(filmId, userIds.get(1));
+        filmDbStorage.addLike(filmId, userIds.get(1));
+        assertThat(likesCount(filmId)).isEqualTo(2);
+
+        filmDbStorage.removeLike(filmId, userIds.get(0));
+        filmDbStorage.removeLike(filmId, userIds.get(0));
+        assertThat(likesCount(filmId)).isEqualTo(1);
+        assertThat(filmDbStorage.getById(filmId).orElseThrow().getLikes()).containsExactly(userIds.get(1));
+    }
+
+    @Test
+    void applyLikes_shouldBatchWritesAndReportEachChange() {
+        insertFilms(2);
+        List<Integer> filmIds = filmDbStorage.findAll().stream().map(Film::getId).sorted().toList();
+        int f1 = filmIds.get(0);
+        int f2 = filmIds.get(1);
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+        int liked = userIds.get(0); // insertFilms ставит лайк от первого пользователя
+        int other = userIds.get(1);
+
+        QueryCountingDataSource countingDataSource = new QueryCountingDataSource(dataSource);
+        FilmDbStorage countedStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource), referenceData);
+
+        boolean[] applied = countedStorage.applyLikes(List.of(
+                new LikeChange(f1, other, LikeOperation.ADD),
+                new LikeChange(f1, other, LikeOperation.ADD),
+                new LikeChange(f2, liked, LikeOperation.ADD),
+                new LikeChange(f2, other, LikeOperation.REMOVE),
+                new LikeChange(f2, liked, LikeOperation.REMOVE),
+                new LikeChange(f1, liked, LikeOperation.REMOVE)
+        ));
+
+        assertThat(applied).containsExactly(true, false, false, false, true, true);
+        // пакет ADD, пакет REMOVE и пакет счётчиков
+        assertThat(countingDataSource.getCount()).isEqualTo(3);
+        assertThat(likesCount(f1)).isEqualTo(1);
+        assertThat(likesCount(f2)).isEqualTo(0);
+        assertThat(filmDbStorage.getById(f1).orElseThrow().getLikes()).containsExactly(other);
+        assertThat(filmDbStorage.findExistingIds(List.of(f1, f2, 999_999))).containsExactlyInAnyOrder(f1, f2);
+    }
+
+    @Test
+    void getPopularFilms_shouldOrderByLikesCount() {
+        insertFilms(3);
+        List<Integer> filmIds = jdbcTemplate.queryForList("SELECT id FROM films ORDER BY id", Integer.class);
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+
+        filmDbStorage.addLike(filmIds.get(2), userIds.get(1));
+        filmDbStorage.removeLike(filmIds.get(0), userIds.get(0));
+
+        List<Film> popular = filmDbStorage.getPopularFilms(3);
+        assertThat(popular).extracting(Film::getId)
+                .containsExactly(filmIds.get(2), filmIds.get(1), filmIds.get(0));
+        assertThat(popular.getFirst().getLikes()).hasSize(2);
+    }
+
+    private int likesCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    @Test
+    void create_shouldWriteGenresInOneBatch() {
+        QueryCountingDataSource countingDataSource = new QueryCountingDataSource(dataSource);
+        FilmDbStorage countedStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource), referenceData);
+
+        countedStorage.create(filmWithGenres(1));
+        int oneGenre = countingDataSource.getCount();
+
+        countingDataSource.reset();
+        Film created = countedStorage.create(filmWithGenres(1, 2, 3));
+        int threeGenres = countingDataSource.getCount();
+
+        assertThat(created.getGenres()).extracting(Genre::getId).containsExactly(1, 2, 3);
+        assertThat(threeGenres).isEqualTo(oneGenre);
+    }
+
+    @Test
+    void update_shouldWriteOnlyGenreDifference() {
+        QueryCountingDataSource countingDataSource = new QueryCountingDataSource(dataSource);
+        FilmDbStorage countedStorage = new FilmDbStorage(new JdbcTemplate(countingDataSource), referenceData);
+        Film film = countedStorage.create(filmWithGenres(1, 2));
+
+        countingDataSource.reset();
+        Film unchanged = countedStorage.update(film);
+        int sameGenres = countingDataSource.getCount();
+
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(2, null), new Genre(3, null))));
+        countingDataSource.reset();
+        Film updated = countedStorage.update(film);
+        int changedGenres = countingDataSource.getCount();
+
+        assertThat(unchanged.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+        assertThat(updated.getGenres()).extracting(Genre::getId).containsExactly(2, 3);
+        // при тех же жанрах связи не трогаются; иначе один пакет DELETE и один пакет INSERT
+        assertThat(changedGenres).isEqualTo(sameGenres + 2);
+
+        film.setGenres(new LinkedHashSet<>());
+        assertThat(countedStorage.update(film).getGenres()).isEmpty();
+    }
+
+    @Test
+    void findPage_shouldWalkAllFilmsByKeyset() {
+        insertFilms(7);
+        List<Integer> allIds = filmDbStorage.findAll().stream().map(Film::getId).sorted().toList();
+
+        List<Integer> walked = new ArrayList<>();
+        int after = 0;
+        List<Film> page;
+        do {
+            page = filmDbStorage.findPage(after, 3);
+            assertThat(page).hasSizeLessThanOrEqualTo(3);
+            page.forEach(film -> assertThat(film.getGenres()).isNotEmpty());
+            page.forEach(film -> walked.add(film.getId()));
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (!page.isEmpty());
+
+        assertThat(walked).containsExactlyElementsOf(allIds);
+    }
+
+    private Film filmWithGenres(int... genreIds) {
+        Film film = new Film();
+        film.setName("Фильм с жанрами");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2010, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        film.setGenres(new LinkedHashSet<>());
+        for (int genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return film;
+    }
+
+    private void insertFilms(int count) {
+        Integer userId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Integer.class);
+        for (int i = 0; i < count; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(i));
+            film.setDuration(90 + i);
+            film.setMpa(new Mpa(1 + i % 3, null));
+            film.setGenres(new LinkedHashSet<>(List.of(new Genre(1 + i % 3, null))));
+            Film created = filmDbStorage.create(film);
+            filmDbStorage.addLike(created.getId(), userId);
+        }
+    }
+}
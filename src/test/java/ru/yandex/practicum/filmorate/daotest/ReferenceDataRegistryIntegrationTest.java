@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.daotest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import(SchemaMigrator.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReferenceDataRegistryIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private QueryCountingDataSource countingDataSource;
+    private ReferenceDataRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        countingDataSource = new QueryCountingDataSource(dataSource);
+        JdbcTemplate countingTemplate = new JdbcTemplate(countingDataSource);
+        registry = new ReferenceDataRegistry(new GenreDbStorage(countingTemplate), new MpaDbStorage(countingTemplate));
+    }
+
+    @Test
+    void lookups_shouldNotQueryDatabaseAfterLoad() {
+        registry.refresh();
+        countingDataSource.reset();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(registry.getGenre(1)).isPresent();
+            assertThat(registry.getMpa(1)).isPresent();
+        }
+        assertThat(registry.getGenres()).isNotEmpty();
+        assertThat(registry.getAllMpa()).isNotEmpty();
+
+        assertThat(countingDataSource.getCount()).isZero();
+    }
+
+    @Test
+    void refresh_shouldPickUpNewRows() {
+        assertThat(registry.getGenre(100)).isEmpty();
+
+        jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (100, 'Нуар')");
+        assertThat(registry.getGenre(100)).isEmpty();
+
+        registry.refresh();
+        assertThat(registry.getGenre(100)).map(Genre::getName).contains("Нуар");
+    }
+}
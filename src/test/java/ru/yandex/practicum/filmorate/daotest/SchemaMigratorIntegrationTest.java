@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.daotest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JdbcTest
+@Import(SchemaMigrator.class)
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SchemaMigratorIntegrationTest {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchemaMigrator schemaMigrator;
+
+    @Test
+    void startup_shouldApplyAllVersionsOnce() {
+        List<Integer> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM schema_version ORDER BY version", Integer.class);
+
+        assertThat(versions).containsExactly(1, 2, 3);
+        assertThat(schemaMigrator.migrate()).isZero();
+    }
+
+    @Test
+    void seed_shouldNotDuplicateRowsWhenRunAgain() {
+        int users = count("users");
+        int films = count("films");
+        int likes = count("film_likes");
+
+        // повторный запуск сида, как на базе, куда data.sql уже вставлял данные
+        jdbcTemplate.update("DELETE FROM schema_version WHERE version = 3");
+        assertThat(schemaMigrator.migrate()).isEqualTo(1);
+
+        assertThat(count("users")).isEqualTo(users);
+        assertThat(count("films")).isEqualTo(films);
+        assertThat(count("film_likes")).isEqualTo(likes);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT likes_count FROM films WHERE name = 'Интерстеллар'", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void changedScript_shouldStopMigration() {
+        jdbcTemplate.update("UPDATE schema_version SET checksum = checksum + 1 WHERE version = 1");
+
+        assertThrows(IllegalStateException.class, schemaMigrator::migrate);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
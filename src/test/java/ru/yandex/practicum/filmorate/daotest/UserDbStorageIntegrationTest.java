@@ -6,25 +6,39 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
 import ru.yandex.practicum.filmorate.storage.UserDbStorage;
 
+import javax.sql.DataSource;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @JdbcTest
+@Import(SchemaMigrator.class)
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class UserDbStorageIntegrationTest {
 
     private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
 
     private UserDbStorage userDbStorage;
 
@@ -90,6 +104,51 @@ class UserDbStorageIntegrationTest {
         assertThat(fetched.get().getEmail()).isEqualTo("new@example.com");
     }
 
+    @Test
+    void createAll_shouldInsertBatchAndAssignIds() {
+        QueryCountingDataSource countingDataSource = new QueryCountingDataSource(dataSource);
+        UserDbStorage countedStorage = new UserDbStorage(new JdbcTemplate(countingDataSource));
+
+        List<User> batch = IntStream.range(0, 50)
+                .mapToObj(i -> newUser("batch" + i))
+                .toList();
+        countedStorage.createAll(batch);
+
+        // один подготовленный запрос на весь пакет
+        assertThat(countingDataSource.getCount()).isEqualTo(1);
+        assertThat(batch).extracting(User::getId).doesNotHaveDuplicates().allMatch(id -> id > 0);
+        for (User user : batch) {
+            assertThat(userDbStorage.getById(user.getId()).orElseThrow().getLogin()).isEqualTo(user.getLogin());
+        }
+    }
+
+    // Вне тестовой транзакции, чтобы вставки из разных потоков шли параллельно
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void concurrentCreate_shouldReturnOwnIds() throws Exception {
+        int threads = 4;
+        int perThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<User>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> IntStream.range(0, perThread)
+                    .mapToObj(i -> userDbStorage.create(newUser("t" + thread + "u" + i)))
+                    .toList()));
+        }
+
+        List<User> created = new ArrayList<>();
+        for (Future<List<User>> future : futures) {
+            created.addAll(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertThat(created).extracting(User::getId).doesNotHaveDuplicates();
+        for (User user : created) {
+            assertThat(userDbStorage.getById(user.getId()).orElseThrow().getLogin()).isEqualTo(user.getLogin());
+        }
+    }
+
     @Test
     void update_shouldModifyUser() {
         User user = userDbStorage.getById(1).orElseThrow();
@@ -140,5 +199,67 @@ class UserDbStorageIntegrationTest {
         assertThat(common).hasSize(1);
         assertThat(common.getFirst().getId()).isEqualTo(2);
     }
-}
 
+    @Test
+    void findPage_shouldReturnUsersAfterIdInOrder() {
+        List<User> first = userDbStorage.findPage(0, 2, true);
+        assertThat(first).extracting(User::getId).containsExactly(1, 2);
+        assertThat(first.getFirst().getFriends()).containsKey(2);
+
+        List<User> second = userDbStorage.findPage(2, 2, false);
+        assertThat(second).extracting(User::getId).containsExactly(3);
+        assertThat(userDbStorage.findPage(3, 2, false)).isEmpty();
+    }
+
+    private static User newUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1995, 6, 15));
+        return user;
+    }
+
+    @Test
+    void findAll_shouldLoadFriendsOfEveryUser() {
+        List<User> users = userDbStorage.findAll();
+
+        assertThat(users).filteredOn(u -> u.getId() == 1).first()
+                .extracting(User::getFriends).isEqualTo(Map.of(2, FriendshipStatus.CONFIRMED));
+        assertThat(users).filteredOn(u -> u.getId() == 2).first()
+                .extracting(User::getFriends).isEqualTo(Map.of(3, FriendshipStatus.REQUESTED));
+    }
+
+    @Test
+    void queryCount_shouldNotDependOnNumberOfUsers() {
+        QueryCountingDataSource countingDataSource = new QueryCountingDataSource(dataSource);
+        UserDbStorage countedStorage = new UserDbStorage(new JdbcTemplate(countingDataSource));
+
+        countedStorage.findAll();
+        int smallWithFriends = countingDataSource.getCount();
+
+        for (int i = 4; i <= 40; i++) {
+            jdbcTemplate.update("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                    i, "user" + i + "@example.com", "user" + i, "User" + i, LocalDate.of(1990, 1, 1));
+            jdbcTemplate.update("INSERT INTO user_friends (user_id, friend_id, status) VALUES (?, 1, 'REQUESTED')", i);
+        }
+
+        countingDataSource.reset();
+        assertThat(countedStorage.findAll()).hasSize(40);
+        int largeWithFriends = countingDataSource.getCount();
+
+        countingDataSource.reset();
+        assertThat(countedStorage.getFriends(1)).hasSize(1);
+        int friends = countingDataSource.getCount();
+
+        countingDataSource.reset();
+        assertThat(countedStorage.findAll(false)).hasSize(40).allMatch(u -> u.getFriends().isEmpty());
+        int withoutFriends = countingDataSource.getCount();
+
+        // пользователи + друзья
+        assertThat(smallWithFriends).isEqualTo(2);
+        assertThat(largeWithFriends).isEqualTo(smallWithFriends);
+        assertThat(friends).isEqualTo(2);
+        assertThat(withoutFriends).isEqualTo(1);
+    }
+}
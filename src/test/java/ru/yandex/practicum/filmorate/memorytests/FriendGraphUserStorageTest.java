@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.memorytests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendGraphUserStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphUserStorageTest {
+
+    private HookedUserStorage backend;
+    private FriendGraphUserStorage storage;
+    private ExecutorService reader;
+
+    @BeforeEach
+    void setUp() {
+        backend = new HookedUserStorage();
+        storage = new FriendGraphUserStorage(backend, true, 60_000, Integer.MAX_VALUE);
+        storage.start();
+        reader = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reader.shutdownNow();
+        storage.stop();
+    }
+
+    @Test
+    void getFriends_shouldReturnNewInstances() {
+        int hub = create("hub");
+        int friend = create("friend");
+        storage.addFriend(hub, friend);
+
+        User returned = storage.getFriends(hub).get(0);
+        returned.getFriends().put(hub, FriendshipStatus.CONFIRMED);
+
+        assertThat(returned).isNotSameAs(backend.getById(friend).orElseThrow());
+        assertThat(backend.getById(friend).orElseThrow().getFriends().containsKey(hub)).isFalse();
+    }
+
+    // Чтение друзей hub из другого потока попадает между записью дружбы в хранилище и в граф.
+    // Раньше в живой объект user из хранилища в памяти записывалась карта из графа, где новой дружбы ещё нет
+    @Test
+    void readBetweenBackendAndGraphWrite_shouldKeepFriendshipInBackend() {
+        int hub = create("hub");
+        int user = create("user");
+        int first = create("first");
+        int second = create("second");
+        storage.addFriend(hub, user);
+
+        backend.afterAddFriend = () -> {
+            List<User> friendsOfHub = reader.submit(() -> storage.getFriends(hub, true)).get(5, TimeUnit.SECONDS);
+            assertThat(friendsOfHub).singleElement().extracting(User::getId).isEqualTo(user);
+        };
+        storage.addFriend(user, first);
+        storage.addFriend(user, second);
+
+        assertThat(backend.getById(user).orElseThrow().getFriends().containsKey(first)).isTrue();
+        assertThat(backend.getById(user).orElseThrow().getFriends().containsKey(second)).isTrue();
+        assertThat(storage.getFriends(user, false)).extracting(User::getId).containsExactly(first, second);
+    }
+
+    private int create(String login) {
+        User user = new User();
+        user.setEmail(login + "@test.com");
+        user.setLogin(login);
+        return backend.create(user).getId();
+    }
+
+    // Запускает действие после записи дружбы в хранилище, до её записи в граф
+    private static class HookedUserStorage extends InMemoryUserStorage {
+
+        Hook afterAddFriend = () -> { };
+
+        @Override
+        public void addFriend(int userId, int friendId) {
+            super.addFriend(userId, friendId);
+            try {
+                afterAddFriend.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Hook {
+        void run() throws Exception;
+    }
+}
@@ -6,8 +6,11 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -88,11 +91,105 @@ class InMemoryFilmStorageTest {
         assertThat(popular).extracting(Film::getName).containsExactly("B", "C");
     }
 
+    @Test
+    void findPage_shouldReturnFilmsAfterIdInOrder() {
+        for (int i = 0; i < 5; i++) {
+            Film film = new Film();
+            film.setName("Film" + i);
+            filmStorage.create(film);
+        }
+
+        assertThat(filmStorage.findPage(0, 2)).extracting(Film::getId).containsExactly(1, 2);
+        assertThat(filmStorage.findPage(2, 2)).extracting(Film::getId).containsExactly(3, 4);
+        assertThat(filmStorage.findPage(4, 2)).extracting(Film::getId).containsExactly(5);
+        assertThat(filmStorage.findPage(5, 2)).isEmpty();
+    }
+
     @Test
     void update_nonexistent_shouldThrow() {
         Film f = new Film();
         f.setId(999);
         assertThrows(NoSuchElementException.class, () -> filmStorage.update(f));
     }
-}
 
+    @Test
+    void concurrentCreate_shouldAssignUniqueIds() throws Exception {
+        int threads = 8;
+        int filmsPerThread = 1_000;
+
+        runConcurrently(threads, t -> {
+            for (int i = 0; i < filmsPerThread; i++) {
+                Film film = new Film();
+                film.setName("Film " + t + "-" + i);
+                filmStorage.create(film);
+            }
+        });
+
+        List<Film> all = filmStorage.findAll();
+        assertThat(all).hasSize(threads * filmsPerThread);
+        assertThat(all).extracting(Film::getId).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void concurrentLikesAndUpdates_shouldNotLoseLikes() throws Exception {
+        Film film = new Film();
+        film.setName("Hit");
+        int filmId = filmStorage.create(film).getId();
+        int threads = 8;
+        int likesPerThread = 2_000;
+        AtomicInteger added = new AtomicInteger();
+
+        runConcurrently(threads + 1, t -> {
+            if (t == threads) {
+                // параллельно с лайками фильм постоянно обновляется
+                for (int i = 0; i < 500; i++) {
+                    Film update = new Film();
+                    update.setId(filmId);
+                    update.setName("Hit v" + i);
+                    filmStorage.update(update);
+                }
+                return;
+            }
+            for (int i = 0; i < likesPerThread; i++) {
+                int userId = t * likesPerThread + i;
+                if (filmStorage.addLike(filmId, userId)) {
+                    added.incrementAndGet();
+                }
+                // повторный лайк того же пользователя ничего не меняет
+                filmStorage.addLike(filmId, userId);
+                if (i % 4 == 0) {
+                    filmStorage.removeLike(filmId, userId);
+                }
+            }
+        });
+
+        int expected = threads * likesPerThread - threads * (likesPerThread / 4);
+        assertThat(added.get()).isEqualTo(threads * likesPerThread);
+        assertThat(filmStorage.getById(filmId).orElseThrow().getLikes()).hasSize(expected);
+        assertThat(filmStorage.getLikeCounts()).containsEntry(filmId, expected);
+    }
+
+    private void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int threadNumber = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadNumber);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int threadNumber);
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.memorytests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class InMemoryStoragePersistenceTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void films_shouldSurviveRestart() {
+        InMemoryFilmStorage storage = openFilms();
+        Film matrix = storage.create(film("Матрица"));
+        Film other = storage.create(film("Другой"));
+        storage.addLike(matrix.getId(), 7);
+        storage.addLike(matrix.getId(), 8);
+        storage.removeLike(matrix.getId(), 8);
+        Film changed = film("Матрица 2");
+        changed.setId(matrix.getId());
+        storage.update(changed);
+        storage.stop();
+
+        InMemoryFilmStorage restored = openFilms();
+        Film fetched = restored.getById(matrix.getId()).orElseThrow();
+        assertThat(fetched.getName()).isEqualTo("Матрица 2");
+        assertThat(fetched.getMpa().getId()).isEqualTo(1);
+        assertThat(fetched.getGenres()).extracting(Genre::getId).containsExactly(2, 1);
+        assertThat(fetched.getLikes()).containsExactly(7);
+        assertThat(restored.exists(other.getId())).isTrue();
+        // новые id продолжают старую нумерацию
+        assertThat(restored.create(film("Третий")).getId()).isGreaterThan(other.getId());
+        restored.stop();
+    }
+
+    @Test
+    void crash_shouldKeepCommittedChangesAndDropTornTail() throws IOException {
+        InMemoryFilmStorage storage = openFilms();
+        int filmId = storage.create(film("F")).getId();
+        storage.applyLikes(List.of(
+                new LikeChange(filmId, 1, LikeOperation.ADD),
+                new LikeChange(filmId, 2, LikeOperation.ADD)
+        ));
+        // падение без stop(): снимка нет, а последняя запись оборвана на середине
+        Files.write(lastSegment(dataDir.resolve("films")), new byte[]{0, 0, 0, 40, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        InMemoryFilmStorage restored = openFilms();
+        assertThat(restored.getById(filmId).orElseThrow().getLikes()).containsExactlyInAnyOrder(1, 2);
+        // после восстановления журнал снова пригоден для записи
+        restored.addLike(filmId, 3);
+        restored.stop();
+        assertThat(openFilms().getById(filmId).orElseThrow().getLikes()).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    @Test
+    void recovery_shouldApplyLogTailAfterSnapshot() {
+        InMemoryFilmStorage storage = openFilms();
+        int first = storage.create(film("Before")).getId();
+        storage.addLike(first, 1);
+        storage.snapshot();
+        int second = storage.create(film("After")).getId();
+        storage.addLike(second, 2);
+        storage.removeLike(first, 1);
+
+        InMemoryFilmStorage restored = openFilms();
+        assertThat(restored.getById(first).orElseThrow().getLikes()).isEmpty();
+        assertThat(restored.getById(second).orElseThrow().getLikes()).containsExactly(2);
+    }
+
+    @Test
+    void users_shouldSurviveRestartWithFriendships() {
+        InMemoryUserStorage storage = openUsers();
+        List<User> created = storage.createAll(List.of(user("alice"), user("bob"), user("carol")));
+        int alice = created.get(0).getId();
+        int bob = created.get(1).getId();
+        int carol = created.get(2).getId();
+        storage.addFriend(alice, bob);
+        storage.addFriend(alice, carol);
+        storage.confirmFriend(alice, bob);
+        storage.snapshot();
+        storage.removeFriend(alice, carol);
+        User renamed = user("bobby");
+        renamed.setId(bob);
+        storage.update(renamed);
+
+        InMemoryUserStorage restored = openUsers();
+        assertThat(restored.getById(alice).orElseThrow().getFriends())
+                .containsOnly(entry(bob, FriendshipStatus.CONFIRMED));
+        assertThat(restored.getById(bob).orElseThrow().getLogin()).isEqualTo("bobby");
+        assertThat(restored.findAll()).hasSize(3);
+    }
+
+    @Test
+    void snapshotsDuringWrites_shouldNotLoseAcknowledgedChanges() throws Exception {
+        // без ожидания force изменения идут быстрее и чаще попадают на смену сегмента
+        InMemoryFilmStorage films = new InMemoryFilmStorage(dataDir.toString(), false, 0);
+        films.start();
+        InMemoryUserStorage users = new InMemoryUserStorage(dataDir.toString(), false, 0);
+        users.start();
+        int writers = 16;
+        int perWriter = 2_000;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 1);
+        try {
+            Future<?> snapshots = pool.submit(() -> {
+                while (!done.get()) {
+                    films.snapshot();
+                    users.snapshot();
+                }
+            });
+            List<Future<Map<Integer, String>>> results = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                results.add(pool.submit(() -> {
+                    // id -> имя, подтверждённое последним изменением
+                    Map<Integer, String> acknowledged = new HashMap<>();
+                    for (int i = 0; i < perWriter; i++) {
+                        String name = "w" + writer + "-" + i;
+                        Film created = films.create(film(name));
+                        users.create(user(name));
+                        Film changed = film(name + "-upd");
+                        changed.setId(created.getId());
+                        films.update(changed);
+                        acknowledged.put(created.getId(), changed.getName());
+                    }
+                    return acknowledged;
+                }));
+            }
+            Map<Integer, String> acknowledged = new HashMap<>();
+            for (Future<Map<Integer, String>> result : results) {
+                acknowledged.putAll(result.get());
+            }
+            done.set(true);
+            snapshots.get();
+            films.stop();
+            users.stop();
+
+            InMemoryFilmStorage restoredFilms = openFilms();
+            acknowledged.forEach((id, name) ->
+                    assertThat(restoredFilms.getById(id)).as("фильм %d", id)
+                            .hasValueSatisfying(film -> assertThat(film.getName()).isEqualTo(name)));
+            assertThat(openUsers().findAll()).hasSize(writers * perWriter);
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+    }
+
+    private InMemoryFilmStorage openFilms() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(dataDir.toString(), true, 0);
+        storage.start();
+        return storage;
+    }
+
+    private InMemoryUserStorage openUsers() {
+        InMemoryUserStorage storage = new InMemoryUserStorage(dataDir.toString(), true, 0);
+        storage.start();
+        return storage;
+    }
+
+    private static Path lastSegment(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(1999, 3, 31));
+        film.setDuration(136);
+        film.setMpa(new Mpa(1, "G"));
+        film.getGenres().add(new Genre(2, "Драма"));
+        film.getGenres().add(new Genre(1, "Комедия"));
+        return film;
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@example.com");
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
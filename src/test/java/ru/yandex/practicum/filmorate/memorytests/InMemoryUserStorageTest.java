@@ -7,8 +7,10 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -94,5 +96,59 @@ class InMemoryUserStorageTest {
         u.setId(999);
         assertThrows(NoSuchElementException.class, () -> userStorage.update(u));
     }
-}
 
+    @Test
+    void concurrentFriendsAndUpdates_shouldNotLoseFriends() throws Exception {
+        User celebrity = new User();
+        celebrity.setLogin("star");
+        int celebrityId = userStorage.create(celebrity).getId();
+        int fans = 2_000;
+        List<Integer> fanIds = new ArrayList<>();
+        for (int i = 0; i < fans; i++) {
+            User fan = new User();
+            fan.setLogin("fan" + i);
+            fanIds.add(userStorage.create(fan).getId());
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = t * fans / threads;
+            int to = (t + 1) * fans / threads;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int fanId : fanIds.subList(from, to)) {
+                    // звезда добавляет фанатов, фанаты — звезду
+                    userStorage.addFriend(celebrityId, fanId);
+                    userStorage.confirmFriend(celebrityId, fanId);
+                    userStorage.addFriend(fanId, celebrityId);
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 500; i++) {
+                User update = new User();
+                update.setId(celebrityId);
+                update.setLogin("star" + i);
+                userStorage.update(update);
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        User star = userStorage.getById(celebrityId).orElseThrow();
+        assertThat(star.getFriends()).hasSize(fans)
+                .allSatisfy((id, status) -> assertThat(status).isEqualTo(FriendshipStatus.CONFIRMED));
+        assertThat(userStorage.getFriends(celebrityId)).hasSize(fans);
+        assertThat(userStorage.getCommonFriends(fanIds.get(0), fanIds.get(1)))
+                .extracting(User::getId).containsExactly(celebrityId);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.memorytests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MappedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MappedFilmStorageTest {
+
+    @TempDir
+    Path dataDir;
+
+    private final ReferenceDataRegistry referenceData = referenceData();
+
+    @Test
+    void catalogAndLikes_shouldSurviveRestart() {
+        MappedFilmStorage storage = open();
+        Film created = storage.create(film("Матрица", "Описание фильма"));
+        int other = storage.create(film("Без описания", null)).getId();
+        storage.addLike(created.getId(), 5);
+        Film changed = film("Матрица: перезагрузка", "Новое описание");
+        changed.setId(created.getId());
+        storage.update(changed);
+        storage.stop();
+
+        MappedFilmStorage restored = open();
+        Film fetched = restored.getById(created.getId()).orElseThrow();
+        assertThat(fetched.getName()).isEqualTo("Матрица: перезагрузка");
+        assertThat(fetched.getDescription()).isEqualTo("Новое описание");
+        assertThat(fetched.getReleaseDate()).isEqualTo(LocalDate.of(1999, 3, 31));
+        assertThat(fetched.getMpa()).isEqualTo(new Mpa(4, "R"));
+        assertThat(fetched.getGenres()).extracting(Genre::getName).containsExactly("Комедия", "Боевик");
+        assertThat(fetched.getLikes()).containsExactly(5);
+        assertThat(restored.getById(other).orElseThrow().getDescription()).isNull();
+        assertThat(restored.findAll()).extracting(Film::getId).containsExactly(created.getId(), other);
+        assertThat(restored.create(film("Третий", null)).getId()).isGreaterThan(other);
+        restored.stop();
+    }
+
+    @Test
+    void rowWrittenWithoutMetadata_shouldBeInvisibleAfterRestart() throws IOException {
+        MappedFilmStorage storage = open();
+        int kept = storage.create(film("Сохранён", null)).getId();
+        storage.create(film("Оборван", null));
+        storage.stop();
+        // сбой между записью строки и метаданных: в catalog.meta осталась одна строка
+        try (FileChannel meta = FileChannel.open(dataDir.resolve("catalog.meta"), StandardOpenOption.WRITE)) {
+            meta.write(ByteBuffer.allocate(8).putInt(1).putInt(kept + 1).flip(), 0);
+        }
+
+        MappedFilmStorage restored = open();
+        assertThat(restored.findAll()).extracting(Film::getName).containsExactly("Сохранён");
+        assertThat(restored.create(film("Новый", null)).getId()).isEqualTo(kept + 1);
+        assertThat(restored.getById(kept + 1).orElseThrow().getName()).isEqualTo("Новый");
+        restored.stop();
+    }
+
+    private MappedFilmStorage open() {
+        MappedFilmStorage storage = new MappedFilmStorage(referenceData, dataDir.toString(), true, 0);
+        storage.start();
+        return storage;
+    }
+
+    private static ReferenceDataRegistry referenceData() {
+        GenreStorage genres = mock(GenreStorage.class);
+        MpaStorage mpa = mock(MpaStorage.class);
+        when(genres.findAll()).thenReturn(List.of(new Genre(1, "Комедия"), new Genre(6, "Боевик")));
+        when(mpa.getAll()).thenReturn(List.of(new Mpa(4, "R")));
+        return new ReferenceDataRegistry(genres, mpa);
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(1999, 3, 31));
+        film.setDuration(136);
+        film.setMpa(new Mpa(4, null));
+        film.getGenres().add(new Genre(6, null));
+        film.getGenres().add(new Genre(1, null));
+        return film;
+    }
+}
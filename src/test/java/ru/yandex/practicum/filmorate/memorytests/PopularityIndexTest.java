@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.memorytests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityIndexTest {
+
+    private PopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PopularityIndex();
+    }
+
+    @Test
+    void rebuild_shouldOrderByLikesThenId() {
+        index.rebuild(Map.of(1, 2, 2, 5, 3, 0, 4, 2));
+
+        assertThat(index.top(10)).containsExactly(2, 1, 4, 3);
+        assertThat(index.top(2)).containsExactly(2, 1);
+    }
+
+    @Test
+    void changeLikes_shouldMoveFilmInRanking() {
+        index.rebuild(Map.of(1, 1, 2, 1));
+        index.addFilm(3);
+
+        index.changeLikes(3, 1);
+        index.changeLikes(3, 1);
+        index.changeLikes(1, -1);
+
+        assertThat(index.top(3)).containsExactly(3, 2, 1);
+        assertThat(index.getLikes(3)).isEqualTo(2);
+        assertThat(index.getLikes(1)).isZero();
+    }
+
+    @Test
+    void changeLikes_shouldNotGoBelowZero() {
+        index.addFilm(1);
+        index.changeLikes(1, -1);
+
+        assertThat(index.getLikes(1)).isZero();
+        assertThat(index.top(5)).containsExactly(1);
+    }
+
+    @Test
+    void concurrentLikes_shouldNotLoseUpdates() throws Exception {
+        index.rebuild(Map.of(1, 0, 2, 0, 3, 0));
+        int threads = 8;
+        int likesPerThread = 5_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < likesPerThread; i++) {
+                    index.changeLikes(1, 1);
+                    if (i % 2 == 0) {
+                        index.changeLikes(2, 1);
+                    }
+                    // чтение во время записи не должно видеть дубликатов
+                    assertThat(index.top(3)).doesNotHaveDuplicates().hasSize(3);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(index.getLikes(1)).isEqualTo(threads * likesPerThread);
+        assertThat(index.getLikes(2)).isEqualTo(threads * likesPerThread / 2);
+        assertThat(index.top(3)).containsExactly(1, 2, 3);
+    }
+}
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.memorytests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.WriteBehindFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteBehindFilmStorageTest {
+
+    private CountingFilmStorage backing;
+    private int filmId;
+
+    @BeforeEach
+    void setUp() {
+        backing = new CountingFilmStorage();
+        filmId = backing.create(film("Film")).getId();
+    }
+
+    @Test
+    void likeAndUnlike_shouldCoalesceWithoutWrites() {
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 100, 1000);
+
+        assertThat(storage.addLike(filmId, 1)).isTrue();
+        assertThat(storage.addLike(filmId, 1)).isFalse();
+        assertThat(storage.removeLike(filmId, 1)).isTrue();
+        assertThat(storage.getStats().pendingChanges()).isZero();
+
+        storage.flush();
+
+        assertThat(backing.batches.get()).isZero();
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).isEmpty();
+    }
+
+    @Test
+    void reads_shouldSeePendingLikesBeforeFlush() {
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 100, 1000);
+        backing.addLike(filmId, 5);
+
+        storage.addLike(filmId, 1);
+        storage.removeLike(filmId, 5);
+
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).containsExactly(5);
+        assertThat(storage.getById(filmId).orElseThrow().getLikes()).containsExactly(1);
+        assertThat(storage.hasLike(filmId, 1)).isTrue();
+        assertThat(storage.hasLike(filmId, 5)).isFalse();
+        assertThat(storage.getStats().pendingChanges()).isEqualTo(2);
+
+        storage.flush();
+
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).containsExactly(1);
+        assertThat(backing.batches.get()).isEqualTo(1);
+        assertThat(storage.getStats().flushedChanges()).isEqualTo(2);
+        assertThat(storage.getStats().pendingChanges()).isZero();
+    }
+
+    @Test
+    void reachingMaxPending_shouldFlushBatch() {
+        // без планировщика порог срабатывает синхронно
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 3, 1000);
+
+        storage.addLike(filmId, 1);
+        storage.addLike(filmId, 2);
+        assertThat(backing.batches.get()).isZero();
+
+        storage.addLike(filmId, 3);
+
+        assertThat(backing.batches.get()).isEqualTo(1);
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    @Test
+    void failedFlush_shouldKeepChangesForRetry() {
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 100, 1000);
+        storage.addLike(filmId, 1);
+        storage.addLike(filmId, 2);
+
+        backing.failNext.set(true);
+        assertThrows(IllegalStateException.class, storage::flush);
+
+        assertThat(storage.getStats().failedFlushes()).isEqualTo(1);
+        assertThat(storage.getStats().pendingChanges()).isEqualTo(2);
+        assertThat(storage.getById(filmId).orElseThrow().getLikes()).containsExactlyInAnyOrder(1, 2);
+
+        // снятие лайка после неудачи схлопывается с возвращённым изменением
+        storage.removeLike(filmId, 2);
+        storage.flush();
+
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).containsExactly(1);
+    }
+
+    @Test
+    void unavailableStorage_shouldRejectChangesAtHardLimitBeforeBuffering() {
+        // порог 2, жёсткий предел 8; без планировщика сброс после порога пробуется синхронно
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 2, 1000);
+        int limit = 2 * WriteBehindFilmStorage.HARD_LIMIT_FACTOR;
+        backing.down.set(true);
+
+        // принятые в буфер изменения не бросают исключений, хотя сбросы не удаются
+        for (int userId = 1; userId <= limit; userId++) {
+            assertThat(storage.addLike(filmId, userId)).isTrue();
+        }
+        assertThat(storage.getStats().failedFlushes()).isPositive();
+
+        assertThrows(IllegalStateException.class, () -> storage.addLike(filmId, limit + 1));
+        assertThat(storage.hasLike(filmId, limit + 1)).isFalse();
+        assertThat(storage.getStats().pendingChanges()).isEqualTo(limit);
+        assertThat(storage.getStats().rejectedChanges()).isEqualTo(1);
+
+        backing.down.set(false);
+        assertThat(storage.addLike(filmId, limit + 1)).isTrue();
+        storage.flush();
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).hasSize(limit + 1);
+    }
+
+    @Test
+    void disabled_shouldWriteThrough() {
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, false, 100, 1000);
+
+        assertThat(storage.addLike(filmId, 1)).isTrue();
+
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).containsExactly(1);
+        assertThat(storage.getStats().pendingChanges()).isZero();
+    }
+
+    @Test
+    void shutdown_shouldFlushPendingLikes() throws Exception {
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 100, 60_000);
+        storage.start();
+        storage.addLike(filmId, 1);
+
+        storage.stop();
+
+        assertThat(backing.getById(filmId).orElseThrow().getLikes()).containsExactly(1);
+    }
+
+    @Test
+    void concurrentLikesWithBackgroundFlush_shouldNotLoseChanges() throws Exception {
+        WriteBehindFilmStorage storage = new WriteBehindFilmStorage(backing, true, 50, 5);
+        storage.start();
+
+        int threads = 8;
+        int usersPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * usersPerThread;
+            futures.add(executor.submit(() -> {
+                for (int u = 1; u <= usersPerThread; u++) {
+                    int userId = offset + u;
+                    storage.addLike(filmId, userId);
+                    // каждый второй лайк снимается, часть пар схлопнется в буфере
+                    if (userId % 2 == 0) {
+                        storage.removeLike(filmId, userId);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        storage.stop();
+
+        assertThat(backing.getById(filmId).orElseThrow().getLikes())
+                .hasSize(threads * usersPerThread / 2)
+                .allMatch(userId -> userId % 2 == 1);
+        assertThat(storage.getStats().pendingChanges()).isZero();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    // Считает пакетные записи; умеет один раз или постоянно завершаться ошибкой
+    private static class CountingFilmStorage extends InMemoryFilmStorage {
+
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicBoolean failNext = new AtomicBoolean();
+        final AtomicBoolean down = new AtomicBoolean();
+
+        @Override
+        public boolean[] applyLikes(List<LikeChange> changes) {
+            if (failNext.getAndSet(false) || down.get()) {
+                throw new IllegalStateException("БД недоступна");
+            }
+            batches.incrementAndGet();
+            return super.applyLikes(changes);
+        }
+    }
+}
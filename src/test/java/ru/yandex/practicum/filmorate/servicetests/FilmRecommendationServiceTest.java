@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.servicetests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class FilmRecommendationServiceTest {
+
+    private LikeIndex likeIndex;
+    private FilmRecommendationService service;
+
+    @BeforeEach
+    void setUp() {
+        likeIndex = new LikeIndex();
+        service = new FilmRecommendationService(mock(FilmStorage.class), mock(UserStorage.class), likeIndex,
+                500, 1_000, 50);
+    }
+
+    @Test
+    void recommend_shouldWeightFilmsByOverlapWithSimilarUsers() {
+        // пользователь 1 лайкнул 10 и 11; 2 совпадает по двум фильмам, 3 — по одному, 4 — ни по одному
+        likeIndex.rebuild(Map.of(
+                10, new int[]{1, 2, 3},
+                11, new int[]{1, 2},
+                20, new int[]{2},
+                21, new int[]{3},
+                22, new int[]{2, 3},
+                30, new int[]{4}
+        ));
+
+        // 22: 2 + 1, 20: 2, 21: 1; 30 — от несхожего пользователя
+        assertThat(service.recommend(1, 10)).containsExactly(22, 20, 21);
+        assertThat(service.recommend(1, 1)).containsExactly(22);
+        assertThat(service.recommend(5, 10)).isEmpty();
+        assertThrows(NoSuchElementException.class, () -> service.getRecommendations(1, 10));
+    }
+
+    @Test
+    void incrementalChanges_shouldBeVisibleImmediately() {
+        likeIndex.add(10, 1);
+        likeIndex.add(10, 2);
+        likeIndex.add(20, 2);
+        assertThat(service.recommend(1, 10)).containsExactly(20);
+
+        likeIndex.add(20, 1);
+        assertThat(service.recommend(1, 10)).isEmpty();
+
+        likeIndex.remove(20, 1);
+        likeIndex.remove(10, 2);
+        assertThat(service.recommend(1, 10)).isEmpty();
+        assertThat(likeIndex.likes(10)).isEqualTo(1);
+    }
+
+    @Test
+    void popularFilms_shouldBeSampled() {
+        FilmRecommendationService sampled = new FilmRecommendationService(
+                mock(FilmStorage.class), mock(UserStorage.class), likeIndex, 500, 10, 50);
+        for (int user = 1; user <= 1_000; user++) {
+            likeIndex.add(10, user);
+            likeIndex.add(100 + user, user);
+        }
+
+        assertThat(likeIndex.users(10, 10)).hasSize(10);
+        // соседи взяты из выборки, поэтому и кандидатов не больше её размера
+        assertThat(sampled.recommend(1, 100)).hasSizeLessThanOrEqualTo(10).isNotEmpty();
+    }
+
+    @Test
+    void heavyNeighbour_shouldContributeSampledFilms() {
+        FilmRecommendationService capped = new FilmRecommendationService(
+                mock(FilmStorage.class), mock(UserStorage.class), likeIndex, 20, 1_000, 50);
+        likeIndex.add(1, 1);
+        // сосед с 10 000 лайков: в кандидаты идёт не больше max-user-films его фильмов
+        for (int film = 1; film <= 10_000; film++) {
+            likeIndex.add(film, 2);
+        }
+
+        assertThat(likeIndex.films(2, 20)).hasSize(20).isSorted();
+        assertThat(capped.recommend(1, 100)).hasSizeLessThanOrEqualTo(20).isNotEmpty().doesNotContain(1);
+    }
+}
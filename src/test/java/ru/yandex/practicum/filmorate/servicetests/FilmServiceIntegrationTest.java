@@ -6,17 +6,27 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.daotest.QueryCountingDataSource;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmRecommendationService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
 import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
 import ru.yandex.practicum.filmorate.storage.UserDbStorage;
 
+import javax.sql.DataSource;
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -26,25 +36,32 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @JdbcTest
+@Import(SchemaMigrator.class)
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmServiceIntegrationTest {
 
     private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
 
+    private ReferenceDataRegistry referenceData;
     private FilmService filmService;
 
     @BeforeEach
     void setUp() {
-        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        referenceData = new ReferenceDataRegistry(new GenreDbStorage(jdbcTemplate), new MpaDbStorage(jdbcTemplate));
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, referenceData);
         UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
-        GenreService genreService = new GenreService(new GenreDbStorage(jdbcTemplate));
+        GenreService genreService = new GenreService(referenceData);
+        MpaService mpaService = new MpaService(referenceData);
 
-        filmService = new FilmService(filmStorage, userStorage, genreService);
+        filmService = new FilmService(filmStorage, userStorage, genreService, mpaService, new PopularityIndex(),
+                new LikeIndex());
 
         // очистка на всякий случай
         jdbcTemplate.update("DELETE FROM film_genres");
+        jdbcTemplate.update("DELETE FROM film_likes");
         jdbcTemplate.update("DELETE FROM films");
         jdbcTemplate.update("DELETE FROM genres");
         jdbcTemplate.update("DELETE FROM mpa");
@@ -155,5 +172,116 @@ class FilmServiceIntegrationTest {
         assertEquals("Updated Desc", updated.getDescription());
         assertEquals(110, updated.getDuration());
     }
-}
 
+    @Test
+    void getPopularFilms_shouldFollowLikesAfterStartup() {
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+        Film first = filmService.create(sampleFilm("Первый"));
+        Film second = filmService.create(sampleFilm("Второй"));
+        filmService.addLike(second.getId(), userIds.get(0));
+
+        // индекс после "перезапуска" строится по данным из БД
+        filmService.initPopularityIndex();
+        assertThat(filmService.getPopularFilms(10))
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+
+        filmService.addLike(first.getId(), userIds.get(0));
+        filmService.addLike(first.getId(), userIds.get(1));
+        filmService.removeLike(second.getId(), userIds.get(0));
+
+        List<Film> popular = filmService.getPopularFilms(1);
+        assertThat(popular).extracting(Film::getId).containsExactly(first.getId());
+        assertThat(popular.getFirst().getLikes()).hasSize(2);
+    }
+
+    @Test
+    void likeIndex_shouldBeBuiltAtStartupAndFollowLikes() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+        Film shared = filmService.create(sampleFilm("Общий"));
+        Film other = filmService.create(sampleFilm("Второго пользователя"));
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?), (?, ?)",
+                shared.getId(), userIds.get(1), other.getId(), userIds.get(1));
+        filmService.addLike(shared.getId(), userIds.get(0));
+
+        // лайки, записанные в БД в обход сервиса, индекс видит после "перезапуска"
+        LikeIndex likeIndex = new LikeIndex();
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, referenceData);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FilmService service = new FilmService(filmStorage, userStorage,
+                new GenreService(referenceData), new MpaService(referenceData), new PopularityIndex(), likeIndex);
+        service.initIndexes();
+        FilmRecommendationService recommendations = new FilmRecommendationService(filmStorage, userStorage, likeIndex,
+                500, 1_000, 50);
+
+        assertThat(recommendations.getRecommendations(userIds.get(0), 10))
+                .extracting(Film::getId)
+                .containsExactly(other.getId());
+
+        service.addLike(other.getId(), userIds.get(0));
+        assertThat(recommendations.recommend(userIds.get(0), 10)).isEmpty();
+    }
+
+    /**
+     * Лайк раньше загружал фильм (с жанрами и лайками) и пользователя (с друзьями) только ради
+     * проверки существования: 3 + 2 запроса до самой записи. Теперь это два SELECT EXISTS.
+     * Время обоих вариантов сравнивает benchmarks/LikeExistenceCheckBenchmark.
+     */
+    @Test
+    void addLike_shouldCheckExistenceWithoutHydration() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        int filmId = filmService.create(sampleFilm("Популярный")).getId();
+        List<Integer> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class);
+        int userId = userIds.getFirst();
+        for (int i = 0; i < 300; i++) {
+            jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, '1990-01-01')",
+                    "fan" + i + "@mail.ru", "fan" + i, "Фанат " + i);
+        }
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) SELECT ?, id FROM users WHERE id <> ?",
+                filmId, userId);
+
+        QueryCountingDataSource counting = new QueryCountingDataSource(dataSource);
+        JdbcTemplate countingTemplate = new JdbcTemplate(counting);
+        FilmDbStorage filmStorage = new FilmDbStorage(countingTemplate, referenceData);
+        UserDbStorage userStorage = new UserDbStorage(countingTemplate);
+        FilmService service = new FilmService(filmStorage, userStorage,
+                new GenreService(referenceData), new MpaService(referenceData), new PopularityIndex(),
+                new LikeIndex());
+
+        Runnable before = () -> {
+            filmStorage.getById(filmId).orElseThrow();
+            userStorage.getById(userId).orElseThrow();
+            filmStorage.addLike(filmId, userId);
+        };
+        Runnable after = () -> service.addLike(filmId, userId);
+        Runnable unlike = () -> jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                filmId, userId);
+
+        counting.reset();
+        before.run();
+        int queriesBefore = counting.getCount();
+        unlike.run();
+
+        counting.reset();
+        after.run();
+        int queriesAfter = counting.getCount();
+        unlike.run();
+
+        // до: фильм + жанры + лайки, пользователь + друзья, INSERT и UPDATE likes_count
+        assertThat(queriesBefore).isEqualTo(7);
+        // после: два SELECT EXISTS, INSERT и UPDATE likes_count
+        assertThat(queriesAfter).isEqualTo(4);
+        assertThat(filmService.getById(filmId).getLikes()).hasSize(userIds.size() + 300 - 1);
+    }
+
+    private Film sampleFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        return film;
+    }
+}
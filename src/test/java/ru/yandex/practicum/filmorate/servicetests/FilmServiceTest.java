@@ -7,20 +7,32 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.Enum.LikeOperation;
+import ru.yandex.practicum.filmorate.Enum.LikeResultStatus;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
 
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -36,6 +48,15 @@ class FilmServiceTest {
     @Mock
     private GenreService genreService;
 
+    @Mock
+    private MpaService mpaService;
+
+    @Mock
+    private PopularityIndex popularityIndex;
+
+    @Mock
+    private LikeIndex likeIndex;
+
     @InjectMocks
     private FilmService filmService;
 
@@ -72,4 +93,113 @@ class FilmServiceTest {
         assertThatThrownBy(() -> filmService.create(validFilm))
                 .isInstanceOf(ValidationException.class);
     }
+
+    @Test
+    void addLike_shouldUpdatePopularityIndexOnlyWhenLikeAdded() {
+        when(filmStorage.exists(1)).thenReturn(true);
+        when(userStorage.exists(2)).thenReturn(true);
+        when(filmStorage.addLike(1, 2)).thenReturn(true, false);
+
+        filmService.addLike(1, 2);
+        filmService.addLike(1, 2);
+
+        verify(popularityIndex, times(1)).changeLikes(1, 1);
+        verify(likeIndex, times(1)).add(1, 2);
+        // сущности целиком не загружаются
+        verify(filmStorage, never()).getById(anyInt());
+        verify(userStorage, never()).getById(anyInt());
+    }
+
+    @Test
+    void removeLike_shouldUpdatePopularityIndexOnlyWhenLikeRemoved() {
+        when(filmStorage.exists(1)).thenReturn(true);
+        when(userStorage.exists(2)).thenReturn(true);
+        when(filmStorage.removeLike(1, 2)).thenReturn(false);
+
+        filmService.removeLike(1, 2);
+
+        verify(popularityIndex, never()).changeLikes(anyInt(), anyInt());
+        verify(likeIndex, never()).remove(anyInt(), anyInt());
+    }
+
+    @Test
+    void addLike_shouldThrow_whenUserNotFound() {
+        when(filmStorage.exists(1)).thenReturn(true);
+        when(userStorage.exists(99)).thenReturn(false);
+
+        assertThatThrownBy(() -> filmService.addLike(1, 99))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("Пользователь");
+        verify(filmStorage, never()).addLike(anyInt(), anyInt());
+    }
+
+    @Test
+    void applyLikes_shouldReportMissingEntitiesAndApplyTheRest() {
+        List<LikeChange> changes = List.of(
+                new LikeChange(1, 2, LikeOperation.ADD),
+                new LikeChange(99, 2, LikeOperation.ADD),
+                new LikeChange(1, 98, LikeOperation.REMOVE),
+                new LikeChange(1, 3, LikeOperation.REMOVE)
+        );
+        when(filmStorage.findExistingIds(Set.of(1, 99))).thenReturn(Set.of(1));
+        when(userStorage.findExistingIds(Set.of(2, 98, 3))).thenReturn(Set.of(2, 3));
+        when(filmStorage.applyLikes(List.of(changes.get(0), changes.get(3)))).thenReturn(new boolean[]{true, false});
+
+        assertThat(filmService.applyLikes(changes)).containsExactly(
+                LikeResultStatus.APPLIED,
+                LikeResultStatus.FILM_NOT_FOUND,
+                LikeResultStatus.USER_NOT_FOUND,
+                LikeResultStatus.UNCHANGED
+        );
+        verify(popularityIndex).changeLikes(1, 1);
+        verifyNoMoreInteractions(popularityIndex);
+        verify(likeIndex).add(1, 2);
+        verifyNoMoreInteractions(likeIndex);
+        verify(filmStorage, never()).exists(anyInt());
+    }
+
+    @Test
+    void concurrentLikeAndUnlike_shouldReachIndexesInStorageOrder() throws Exception {
+        // индекс медленно применяет лайк: снятие, подтверждённое хранилищем позже, не должно его обогнать
+        LikeIndex slowIndex = new LikeIndex() {
+            @Override
+            public void add(int filmId, int userId) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.add(filmId, userId);
+            }
+        };
+        PopularityIndex popularity = new PopularityIndex();
+        popularity.addFilm(1);
+        FilmService service = new FilmService(filmStorage, userStorage, genreService, mpaService,
+                popularity, slowIndex);
+        CountDownLatch liked = new CountDownLatch(1);
+        when(filmStorage.exists(1)).thenReturn(true);
+        when(userStorage.exists(2)).thenReturn(true);
+        when(filmStorage.addLike(1, 2)).thenAnswer(invocation -> {
+            liked.countDown();
+            return true;
+        });
+        when(filmStorage.removeLike(1, 2)).thenReturn(true);
+
+        CompletableFuture<Void> like = CompletableFuture.runAsync(() -> service.addLike(1, 2));
+        liked.await();
+        service.removeLike(1, 2);
+        like.get();
+
+        assertThat(slowIndex.films(2)).isEmpty();
+        assertThat(popularity.getLikes(1)).isZero();
+    }
+
+    @Test
+    void getPopularFilms_shouldLoadFilmsInIndexOrder() {
+        when(popularityIndex.top(2)).thenReturn(List.of(5, 3));
+        when(filmStorage.getByIds(List.of(5, 3))).thenReturn(List.of(validFilm));
+
+        assertThat(filmService.getPopularFilms(2)).containsExactly(validFilm);
+        verify(filmStorage, never()).getPopularFilms(anyInt());
+    }
 }
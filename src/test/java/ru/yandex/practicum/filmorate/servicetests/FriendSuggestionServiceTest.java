@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.servicetests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.SeparationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FriendSuggestionServiceTest {
+
+    private InMemoryUserStorage userStorage;
+    private UserService userService;
+    private int[] ids;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        userService = new UserService(userStorage,
+                new FriendSuggestionService(userStorage, 50, 500, 500, 10_000, 300_000),
+                new SeparationService(userStorage, 60_000, 6, 100));
+        ids = new int[7];
+        for (int i = 1; i < ids.length; i++) {
+            User user = new User();
+            user.setLogin("u" + i);
+            user.setEmail("u" + i + "@test.com");
+            ids[i] = userService.create(user).getId();
+        }
+    }
+
+    @Test
+    void suggestions_shouldRankFriendsOfFriendsByMutualFriends() {
+        // u1 дружит с u2 и u3; u2 -> u4, u5; u3 -> u4, u1
+        friend(1, 2);
+        friend(1, 3);
+        friend(2, 4);
+        friend(2, 5);
+        friend(3, 4);
+        friend(3, 1);
+
+        assertThat(suggestions(1, 10)).containsExactly(ids[4], ids[5]);
+        assertThat(suggestions(1, 1)).containsExactly(ids[4]);
+        assertThat(suggestions(6, 10)).isEmpty();
+        assertThrows(NoSuchElementException.class, () -> userService.getFriendSuggestions(999, 10));
+    }
+
+    @Test
+    void friendChanges_shouldInvalidateOwnAndDependentSuggestions() {
+        friend(1, 2);
+        friend(2, 3);
+        assertThat(suggestions(1, 10)).containsExactly(ids[3]);
+
+        // изменился друг u1 — рекомендации u1 пересчитываются
+        friend(2, 4);
+        assertThat(suggestions(1, 10)).containsExactly(ids[3], ids[4]);
+
+        // u1 сам добавил u3 — u3 больше не рекомендуется
+        friend(1, 3);
+        assertThat(suggestions(1, 10)).containsExactly(ids[4]);
+
+        userService.removeFriend(ids[2], ids[4]);
+        assertThat(suggestions(1, 10)).isEmpty();
+    }
+
+    @Test
+    void fanOutCap_shouldSampleHighDegreeFriends() {
+        FriendSuggestionService capped = new FriendSuggestionService(userStorage, 50, 2, 500, 100, 60_000);
+        friend(1, 2);
+        for (int i = 3; i <= 6; i++) {
+            friend(2, i);
+        }
+
+        assertThat(capped.suggest(ids[1], 10)).hasSize(2);
+    }
+
+    private void friend(int user, int friend) {
+        userService.addFriend(ids[user], ids[friend]);
+    }
+
+    private List<Integer> suggestions(int user, int limit) {
+        return userService.getFriendSuggestions(ids[user], limit).stream().map(User::getId).toList();
+    }
+}
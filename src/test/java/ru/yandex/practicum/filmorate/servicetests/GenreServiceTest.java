@@ -6,10 +6,11 @@ import org.mockito.Mockito;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -24,7 +25,7 @@ class GenreServiceTest {
     @BeforeEach
     void setUp() {
         genreStorage = Mockito.mock(GenreStorage.class);
-        genreService = new GenreService(genreStorage);
+        genreService = new GenreService(new ReferenceDataRegistry(genreStorage, Mockito.mock(MpaStorage.class)));
     }
 
     @Test
@@ -45,21 +46,24 @@ class GenreServiceTest {
 
     @Test
     void getById_shouldReturnGenre_whenExists() {
-        when(genreStorage.getById(1)).thenReturn(Optional.of(new Genre(1, "Комедия")));
+        when(genreStorage.findAll()).thenReturn(List.of(new Genre(1, "Комедия")));
 
         Genre genre = genreService.getById(1);
+        genreService.getById(1);
 
         assertThat(genre.getName()).isEqualTo("Комедия");
-        verify(genreStorage, times(1)).getById(1);
+        // справочник загружается один раз, отдельных запросов по id нет
+        verify(genreStorage, times(1)).findAll();
+        verify(genreStorage, never()).getById(anyInt());
     }
 
     @Test
     void getById_shouldThrow_whenNotFound() {
-        when(genreStorage.getById(99)).thenReturn(Optional.empty());
+        when(genreStorage.findAll()).thenReturn(List.of(new Genre(1, "Комедия")));
 
         assertThrows(NoSuchElementException.class, () -> genreService.getById(99));
 
-        verify(genreStorage, times(1)).getById(99);
+        verify(genreStorage, never()).getById(anyInt());
     }
 }
 
@@ -5,11 +5,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.ReferenceDataRegistry;
 
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -24,7 +25,7 @@ class MpaServiceTest {
     @BeforeEach
     void setUp() {
         mpaStorage = Mockito.mock(MpaStorage.class);
-        mpaService = new MpaService(mpaStorage);
+        mpaService = new MpaService(new ReferenceDataRegistry(Mockito.mock(GenreStorage.class), mpaStorage));
     }
 
     @Test
@@ -45,21 +46,24 @@ class MpaServiceTest {
 
     @Test
     void getById_shouldReturnMpa_whenExists() {
-        when(mpaStorage.getById(1)).thenReturn(Optional.of(new Mpa(1, "G")));
+        when(mpaStorage.getAll()).thenReturn(List.of(new Mpa(1, "G")));
 
         Mpa mpa = mpaService.getById(1);
+        mpaService.getById(1);
 
         assertThat(mpa.getName()).isEqualTo("G");
-        verify(mpaStorage, times(1)).getById(1);
+        // справочник загружается один раз, отдельных запросов по id нет
+        verify(mpaStorage, times(1)).getAll();
+        verify(mpaStorage, never()).getById(anyInt());
     }
 
     @Test
     void getById_shouldThrow_whenNotFound() {
-        when(mpaStorage.getById(99)).thenReturn(Optional.empty());
+        when(mpaStorage.getAll()).thenReturn(List.of(new Mpa(1, "G")));
 
         assertThrows(NoSuchElementException.class, () -> mpaService.getById(99));
 
-        verify(mpaStorage, times(1)).getById(99);
+        verify(mpaStorage, never()).getById(anyInt());
     }
 }
 
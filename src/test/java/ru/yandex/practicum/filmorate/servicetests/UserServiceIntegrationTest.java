@@ -6,10 +6,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.SeparationService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.SchemaMigrator;
 import ru.yandex.practicum.filmorate.storage.UserDbStorage;
 
 import java.time.LocalDate;
@@ -19,6 +23,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @JdbcTest
+@Import(SchemaMigrator.class)
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
@@ -30,7 +35,9 @@ class UserServiceIntegrationTest {
     @BeforeEach
     void setUp() {
         UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
-        userService = new UserService(userStorage);
+        userService = new UserService(userStorage,
+                new FriendSuggestionService(userStorage, 50, 500, 500, 10_000, 300_000),
+                new SeparationService(userStorage, 60_000, 6, 100));
 
         // Очистка таблиц перед каждым тестом
         jdbcTemplate.update("DELETE FROM user_friends");
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.SeparationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
@@ -24,7 +26,9 @@ class UserServiceTest {
     @BeforeEach
     void setup() {
         userStorage = mock(UserStorage.class);
-        userService = new UserService(userStorage);
+        userService = new UserService(userStorage,
+                new FriendSuggestionService(userStorage, 50, 500, 500, 10_000, 300_000),
+                new SeparationService(userStorage, 60_000, 6, 100));
     }
 
     @Test
@@ -89,5 +93,31 @@ class UserServiceTest {
 
         verify(userStorage, times(1)).getById(999);
     }
-}
 
+    @Test
+    void addFriend_shouldCheckBothUsersWithOneCall() {
+        when(userStorage.existsAll(1, 2)).thenReturn(true);
+
+        userService.addFriend(1, 2);
+
+        verify(userStorage).addFriend(1, 2);
+        verify(userStorage, never()).getById(anyInt());
+        verify(userStorage, never()).exists(anyInt());
+    }
+
+    @Test
+    void addFriend_shouldReportWhichUserIsMissing() {
+        when(userStorage.existsAll(1, 99)).thenReturn(false);
+        when(userStorage.exists(1)).thenReturn(true);
+
+        assertThatThrownBy(() -> userService.addFriend(1, 99))
+                .hasMessageContaining("Друг не найден");
+
+        when(userStorage.existsAll(99, 1)).thenReturn(false);
+        when(userStorage.exists(99)).thenReturn(false);
+
+        assertThatThrownBy(() -> userService.addFriend(99, 1))
+                .hasMessageContaining("Пользователь не найден");
+        verify(userStorage, never()).addFriend(anyInt(), anyInt());
+    }
+}
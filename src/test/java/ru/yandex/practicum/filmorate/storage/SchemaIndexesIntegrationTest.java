@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет по плану запроса (EXPLAIN), что запросы хранилищ к связующим таблицам идут по индексам.
+ * Планы строятся для тех же SQL-констант, что выполняют FilmDbStorage и UserDbStorage,
+ * поэтому тест находится в пакете хранилищ.
+ */
+@JdbcTest
+@Import(SchemaMigrator.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SchemaIndexesIntegrationTest {
+
+    private static final Integer[] IDS = {1, 2};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void likeExists_shouldUsePrimaryKey() {
+        assertThat(plan(FilmDbStorage.SELECT_LIKE_EXISTS, 1, 1))
+                .contains("FILM_ID = ?1", "AND USER_ID = ?2")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void likesAndGenresOfFilms_shouldUseFilmIndex() {
+        assertThat(plan(FilmDbStorage.SELECT_LIKES_BY_FILM_IDS, (Object) IDS))
+                .contains("FILM_ID IN(1, 2)")
+                .doesNotContain("tableScan");
+        assertThat(plan(FilmDbStorage.SELECT_GENRES_BY_FILM_IDS, (Object) IDS))
+                .contains("FILM_ID IN(1, 2)", "index sorted")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void friendsOfUsers_shouldUseUserIndex() {
+        assertThat(plan(UserDbStorage.SELECT_FRIENDS, 1))
+                .contains("USER_ID = ?1")
+                .doesNotContain("tableScan");
+        assertThat(plan(UserDbStorage.SELECT_FRIEND_IDS_BY_USER_IDS, (Object) IDS))
+                .contains("USER_ID IN(1, 2)", "index sorted")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void commonFriends_shouldNotScanFriendTable() {
+        assertThat(plan(UserDbStorage.SELECT_COMMON_FRIENDS, 1, 2))
+                .contains("USER_ID = ?1", "USER_ID = ?2")
+                .doesNotContain("tableScan");
+    }
+
+    // Обратных выборок в хранилищах пока нет, поэтому для этих индексов проверяется только их состав
+
+    @Test
+    void reverseIndexes_shouldLeadWithReverseColumn() {
+        assertThat(indexColumns("FILM_LIKES_USER_IDX")).containsExactly("USER_ID", "FILM_ID");
+        assertThat(indexColumns("USER_FRIENDS_FRIEND_IDX")).containsExactly("FRIEND_ID", "USER_ID");
+        assertThat(indexColumns("FILM_GENRES_GENRE_IDX")).containsExactly("GENRE_ID", "FILM_ID");
+    }
+
+    private String plan(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    private List<String> indexColumns(String index) {
+        return jdbcTemplate.queryForList("""
+                SELECT column_name FROM information_schema.index_columns
+                WHERE index_name = ? ORDER BY ordinal_position
+                """, String.class, index);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load(int key) {
+        loads.incrementAndGet();
+        return "v" + key;
+    }
+
+    @Test
+    void get_shouldLoadOnceAndCountHitsAndMisses() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1_000, now::get);
+
+        assertThat(cache.get(1, this::load)).isEqualTo("v1");
+        assertThat(cache.get(1, this::load)).isEqualTo("v1");
+        assertThat(cache.get(1, this::load)).isEqualTo("v1");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats()).isEqualTo(new EntityCache.Stats(2, 1, 0, 0, 1));
+    }
+
+    @Test
+    void get_shouldNotCacheMissingValues() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1_000, now::get);
+
+        assertThat(cache.get(1, key -> null)).isNull();
+        assertThat(cache.get(1, this::load)).isEqualTo("v1");
+        assertThat(cache.stats().size()).isEqualTo(1);
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsed() {
+        EntityCache<Integer, String> cache = new EntityCache<>(2, 1_000, now::get);
+
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        cache.get(1, this::load); // 1 использован позже 2
+        cache.get(3, this::load); // вытесняет 2
+
+        loads.set(0);
+        cache.get(1, this::load);
+        cache.get(3, this::load);
+        assertThat(loads).hasValue(0);
+
+        cache.get(2, this::load);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+        assertThat(cache.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void get_shouldReloadAfterTtl() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1_000, now::get);
+
+        cache.get(1, this::load);
+        now.addAndGet(999_000_000L);
+        cache.get(1, this::load);
+        assertThat(loads).hasValue(1);
+
+        now.addAndGet(1_000_000L);
+        cache.get(1, this::load);
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().expirations()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidate_shouldDropEntryAndDiscardConcurrentLoad() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1_000, now::get);
+
+        cache.get(1, this::load);
+        cache.invalidate(1);
+        cache.get(1, this::load);
+        assertThat(loads).hasValue(2);
+
+        // загрузка, во время которой значение инвалидировали, в кэш не попадает
+        cache.invalidate(2);
+        cache.get(2, key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+        cache.get(2, this::load);
+        assertThat(cache.get(2, this::load)).isEqualTo("v2");
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void getAll_shouldLoadOnlyMissingKeysInOneCall() {
+        EntityCache<Integer, String> cache = new EntityCache<>(10, 1_000, now::get);
+        cache.get(2, this::load);
+
+        AtomicInteger batches = new AtomicInteger();
+        List<String> values = cache.getAll(List.of(3, 2, 1, 99), missing -> {
+            batches.incrementAndGet();
+            assertThat(missing).containsExactly(3, 1, 99);
+            return missing.stream()
+                    .filter(key -> key != 99)
+                    .collect(Collectors.toMap(key -> key, key -> "v" + key));
+        });
+
+        assertThat(values).containsExactly("v3", "v2", "v1");
+        assertThat(batches).hasValue(1);
+        assertThat(cache.getAll(List.of(1, 3), missing -> Map.of())).containsExactly("v1", "v3");
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.Enum.FriendshipStatus.CONFIRMED;
+import static ru.yandex.practicum.filmorate.Enum.FriendshipStatus.REQUESTED;
+
+class FriendGraphTest {
+
+    @Test
+    void build_shouldSortRowsAndKeepStatuses() {
+        FriendGraph graph = FriendGraph.build(
+                new int[]{2, 1, 1, 1},
+                new int[]{1, 7, 3, 5},
+                new FriendshipStatus[]{REQUESTED, CONFIRMED, REQUESTED, REQUESTED},
+                4);
+
+        assertThat(graph.friends(1)).containsExactly(3, 5, 7);
+        assertThat(graph.friends(2)).containsExactly(1);
+        assertThat(graph.friends(3)).isEmpty();
+        assertThat(graph.friends(100)).isEmpty();
+        assertThat(graph.status(1, 7)).isEqualTo(CONFIRMED);
+        assertThat(graph.status(1, 4)).isNull();
+    }
+
+    @Test
+    void changes_shouldOverlayBaseBeforeAndAfterCompaction() {
+        FriendGraph graph = FriendGraph.build(new int[]{1, 1}, new int[]{2, 3},
+                new FriendshipStatus[]{REQUESTED, REQUESTED}, 2);
+
+        graph.remove(1, 2);
+        graph.put(1, 4, REQUESTED);
+        graph.confirm(1, 3);
+        graph.confirm(1, 9); // дружбы нет — статус не появляется
+        graph.put(10, 1, REQUESTED); // пользователь за пределами основы
+
+        assertThat(graph.pendingChanges()).isEqualTo(4);
+        assertThat(graph.friends(1)).containsExactly(3, 4);
+        assertThat(graph.friendMap(1)).containsOnly(Map.entry(3, CONFIRMED), Map.entry(4, REQUESTED));
+
+        assertThat(graph.compact()).isEqualTo(4);
+
+        assertThat(graph.pendingChanges()).isZero();
+        assertThat(graph.friends(1)).containsExactly(3, 4);
+        assertThat(graph.status(1, 3)).isEqualTo(CONFIRMED);
+        assertThat(graph.friends(10)).containsExactly(1);
+        assertThat(graph.stats().edges()).isEqualTo(3);
+    }
+
+    @Test
+    void randomChanges_shouldMatchReferenceMap() {
+        Random random = new Random(3);
+        Map<Integer, TreeMap<Integer, FriendshipStatus>> expected = new HashMap<>();
+        FriendGraph graph = new FriendGraph();
+
+        for (int step = 0; step < 5_000; step++) {
+            int user = 1 + random.nextInt(50);
+            int friend = 1 + random.nextInt(50);
+            TreeMap<Integer, FriendshipStatus> row = expected.computeIfAbsent(user, id -> new TreeMap<>());
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    graph.put(user, friend, REQUESTED);
+                    row.put(friend, REQUESTED);
+                }
+                case 1 -> {
+                    graph.confirm(user, friend);
+                    row.computeIfPresent(friend, (id, status) -> CONFIRMED);
+                }
+                default -> {
+                    graph.remove(user, friend);
+                    row.remove(friend);
+                }
+            }
+            if (step % 700 == 0) {
+                graph.compact();
+            }
+        }
+
+        for (int user = 1; user <= 50; user++) {
+            TreeMap<Integer, FriendshipStatus> row = expected.getOrDefault(user, new TreeMap<>());
+            assertThat(graph.friends(user)).containsExactly(row.keySet().stream().mapToInt(Integer::intValue).toArray());
+            assertThat(graph.friendMap(user)).isEqualTo(row);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.Enum.FriendshipStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.Enum.FriendshipStatus.CONFIRMED;
+import static ru.yandex.practicum.filmorate.Enum.FriendshipStatus.REQUESTED;
+
+class IntEnumMapTest {
+
+    @Test
+    void putGetRemove_shouldWork() {
+        IntEnumMap<FriendshipStatus> map = new IntEnumMap<>(FriendshipStatus.class);
+
+        assertThat(map.put(5, REQUESTED)).isNull();
+        assertThat(map.put(5, CONFIRMED)).isEqualTo(REQUESTED);
+        map.put(0, REQUESTED);
+
+        assertThat(map).hasSize(2).containsEntry(5, CONFIRMED).containsEntry(0, REQUESTED);
+        assertThat(map.remove(5)).isEqualTo(CONFIRMED);
+        assertThat(map.get(5)).isNull();
+        assertThat(map.keyArray()).containsExactly(0);
+    }
+
+    @Test
+    void computeIfPresent_shouldOnlyChangeExistingKeys() {
+        IntEnumMap<FriendshipStatus> map = new IntEnumMap<>(FriendshipStatus.class);
+        map.put(1, REQUESTED);
+
+        map.computeIfPresent(1, (id, status) -> CONFIRMED);
+        map.computeIfPresent(2, (id, status) -> CONFIRMED);
+
+        assertThat(map).isEqualTo(Map.of(1, CONFIRMED));
+    }
+
+    @Test
+    void randomOperations_shouldMatchHashMap() {
+        Random random = new Random(7);
+        IntEnumMap<FriendshipStatus> map = new IntEnumMap<>(FriendshipStatus.class);
+        Map<Integer, FriendshipStatus> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(3_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                FriendshipStatus status = random.nextBoolean() ? REQUESTED : CONFIRMED;
+                assertThat(map.put(key, status)).isEqualTo(expected.put(key, status));
+            }
+        }
+
+        assertThat(map).isEqualTo(expected);
+        assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntHashSetTest {
+
+    @Test
+    void addContainsRemove_shouldWorkForAnyInt() {
+        IntHashSet set = new IntHashSet();
+
+        assertThat(set.add(0)).isTrue();
+        assertThat(set.add(-7)).isTrue();
+        assertThat(set.add(42)).isTrue();
+        assertThat(set.add(42)).isFalse();
+
+        assertThat(set).hasSize(3).containsExactlyInAnyOrder(0, -7, 42);
+        assertThat(set.contains(0)).isTrue();
+        assertThat(set.remove(0)).isTrue();
+        assertThat(set.remove(0)).isFalse();
+        assertThat(set.toSortedArray()).containsExactly(-7, 42);
+    }
+
+    @Test
+    void randomOperations_shouldMatchHashSet() {
+        Random random = new Random(42);
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            }
+        }
+
+        assertThat(set).isEqualTo(expected);
+        assertThat(set.hashCode()).isEqualTo(expected.hashCode());
+        for (int value = -100; value < 4_900; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void iteratorRemove_shouldRemoveFromSet() {
+        IntHashSet set = IntHashSet.of(1, 2, 3, 4);
+
+        Iterator<Integer> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertThat(set).containsExactlyInAnyOrder(1, 3);
+    }
+
+    @Test
+    void iterator_shouldTolerateConcurrentModification() {
+        IntHashSet set = IntHashSet.of(1, 2, 3);
+
+        for (Integer value : set) {
+            set.add(value + 100);
+        }
+
+        assertThat(set).containsExactlyInAnyOrder(1, 2, 3, 101, 102, 103);
+    }
+}
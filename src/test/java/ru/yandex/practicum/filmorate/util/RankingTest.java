@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankingTest {
+
+    @Test
+    void top_shouldKeepBestScoresAndPreferSmallerIdOnTies() {
+        Ranking.Top top = new Ranking.Top(3);
+        top.offer(5, 40);
+        top.offer(7, 10);
+        top.offer(5, 20);
+        top.offer(1, 1);
+        top.offer(5, 30);
+        assertThat(top.drainIds()).containsExactly(10, 20, 30);
+
+        Ranking.Top runs = new Ranking.Top(2);
+        runs.offerRuns(new int[]{1, 2, 2, 3, 3, 3, 9}, 6);
+        long[] keys = runs.drainKeys();
+        assertThat(Arrays.stream(keys).mapToInt(Ranking::id)).containsExactly(3, 2);
+        assertThat(Arrays.stream(keys).mapToInt(Ranking::score)).containsExactly(3, 2);
+
+        // счёт сверх int не переполняет ключ
+        assertThat(Ranking.score(Ranking.key(Long.MAX_VALUE, 5))).isEqualTo(Integer.MAX_VALUE);
+        assertThat(new Ranking.Top(0).drainIds()).isEmpty();
+    }
+
+    @Test
+    void sample_shouldTakeEvenStrideAndKeepOrder() {
+        int[] ids = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertThat(Ranking.sample(ids, 20)).isSameAs(ids);
+        assertThat(Ranking.sample(ids, 5)).containsExactly(1, 3, 5, 7, 9);
+        assertThat(Ranking.sample(ids, 4, 10)).containsExactly(1, 2, 3, 4);
+        assertThat(Ranking.sample(ids, 4, 2)).containsExactly(1, 3);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.Enum.DistanceStatus;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeparationGraphTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    void shortestPath_shouldTreatLinksAsUndirected() {
+        // 1 -> 2 -> 3, 4 -> 3, 5 отдельно с 6
+        SeparationGraph graph = SeparationGraph.build(new int[]{1, 2, 4, 5, 2}, new int[]{2, 3, 3, 6, 1}, 5);
+
+        assertThat(graph.links()).isEqualTo(4);
+        SeparationGraph.Result result = graph.shortestPath(1, 4, 6, NO_DEADLINE, true);
+        assertThat(result.status()).isEqualTo(DistanceStatus.FOUND);
+        assertThat(result.distance()).isEqualTo(3);
+        assertThat(result.path()).containsExactly(1, 2, 3, 4);
+
+        assertThat(graph.shortestPath(4, 1, 6, NO_DEADLINE, false).distance()).isEqualTo(3);
+        assertThat(graph.shortestPath(2, 2, 6, NO_DEADLINE, true).path()).containsExactly(2);
+        assertThat(graph.shortestPath(1, 5, 6, NO_DEADLINE, false).status()).isEqualTo(DistanceStatus.NOT_CONNECTED);
+        assertThat(graph.shortestPath(1, 100, 6, NO_DEADLINE, false).status()).isEqualTo(DistanceStatus.NOT_CONNECTED);
+        assertThat(graph.shortestPath(1, 4, 2, NO_DEADLINE, false).status()).isEqualTo(DistanceStatus.TOO_FAR);
+        assertThat(graph.shortestPath(1, 4, 6, 0, false).status()).isEqualTo(DistanceStatus.TIMED_OUT);
+    }
+
+    @Test
+    void randomGraphs_shouldMatchPlainBfs() {
+        Random random = new Random(13);
+        for (int round = 0; round < 20; round++) {
+            int users = 50 + random.nextInt(200);
+            int edges = random.nextInt(users * 2);
+            int[] from = new int[edges];
+            int[] to = new int[edges];
+            Map<Integer, Set<Integer>> adjacency = new HashMap<>();
+            for (int i = 0; i < edges; i++) {
+                from[i] = 1 + random.nextInt(users);
+                to[i] = 1 + random.nextInt(users);
+                if (from[i] != to[i]) {
+                    adjacency.computeIfAbsent(from[i], id -> new HashSet<>()).add(to[i]);
+                    adjacency.computeIfAbsent(to[i], id -> new HashSet<>()).add(from[i]);
+                }
+            }
+            SeparationGraph graph = SeparationGraph.build(from, to, edges);
+
+            for (int query = 0; query < 50; query++) {
+                int a = 1 + random.nextInt(users);
+                int b = 1 + random.nextInt(users);
+                int expected = bfs(adjacency, a, b);
+                SeparationGraph.Result result = graph.shortestPath(a, b, users, NO_DEADLINE, true);
+
+                if (expected < 0) {
+                    assertThat(result.status()).isEqualTo(DistanceStatus.NOT_CONNECTED);
+                    continue;
+                }
+                assertThat(result.distance()).isEqualTo(expected);
+                assertThat(result.path()).hasSize(expected + 1).startsWith(a).endsWith(b);
+                for (int i = 1; i < result.path().length; i++) {
+                    assertThat(adjacency.get(result.path()[i - 1])).contains(result.path()[i]);
+                }
+            }
+        }
+    }
+
+    private static int bfs(Map<Integer, Set<Integer>> adjacency, int from, int to) {
+        Map<Integer, Integer> depth = new HashMap<>(Map.of(from, 0));
+        Deque<Integer> queue = new ArrayDeque<>(List.of(from));
+        while (!queue.isEmpty()) {
+            int user = queue.poll();
+            if (user == to) return depth.get(user);
+            for (int next : adjacency.getOrDefault(user, Set.of())) {
+                if (depth.putIfAbsent(next, depth.get(user) + 1) == null) {
+                    queue.add(next);
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedIntersectionTest {
+
+    @Test
+    void intersect_shouldHandleEdgesAndDisjointRanges() {
+        assertThat(SortedIntersection.intersect(new int[0], new int[]{1, 2})).isEmpty();
+        assertThat(SortedIntersection.intersect(new int[]{1, 2}, new int[]{3, 4})).isEmpty();
+        assertThat(SortedIntersection.intersect(new int[]{1, 3, 5, 7}, new int[]{3, 4, 5, 8})).containsExactly(3, 5);
+        assertThat(SortedIntersection.count(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE},
+                new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE})).isEqualTo(2);
+    }
+
+    @Test
+    void allStrategies_shouldMatchReferenceOnRandomSkews() {
+        SplittableRandom random = new SplittableRandom(17);
+        // размеры подобраны так, чтобы сработали слияние, галоп и битовая карта
+        int[][] sizes = {{10, 12}, {5, 4_000}, {1, 100_000}, {300, 300}, {2_000, 50}};
+        for (int[] size : sizes) {
+            int[] first = randomSorted(random, size[0], 200_000);
+            int[] second = randomSorted(random, size[1], 200_000);
+            int[] expected = Arrays.stream(first).filter(value -> Arrays.binarySearch(second, value) >= 0).toArray();
+
+            assertThat(SortedIntersection.intersect(first, second)).containsExactly(expected);
+            assertThat(SortedIntersection.intersect(second, first)).containsExactly(expected);
+            assertThat(SortedIntersection.count(first, second)).isEqualTo(expected.length);
+        }
+    }
+
+    @Test
+    void countEach_shouldAgreeWithPairwiseCountWithAndWithoutBitmap() {
+        SplittableRandom random = new SplittableRandom(23);
+        int[] dense = randomSorted(random, 5_000, 20_000);
+        int[] sparse = randomSorted(random, 50, 1_000_000_000);
+        int[][] others = IntStream.range(0, 200)
+                .mapToObj(i -> randomSorted(random, 1 + random.nextInt(100), 25_000))
+                .toArray(int[][]::new);
+
+        for (int[] base : new int[][]{dense, sparse, new int[0]}) {
+            int[] counts = SortedIntersection.countEach(base, others);
+            for (int i = 0; i < others.length; i++) {
+                assertThat(counts[i]).isEqualTo(SortedIntersection.count(base, others[i]));
+            }
+        }
+    }
+
+    private static int[] randomSorted(SplittableRandom random, int size, int bound) {
+        return random.ints(size * 2L, 0, bound).distinct().limit(size).sorted().toArray();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentCommits_shouldAllBeRecoveredWithFewerSyncs() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(dir, true);
+        wal.recover(in -> { }, record -> { });
+
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    int value = thread * perThread + i;
+                    wal.sync(wal.append(out -> out.writeInt(value)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        WriteAheadLog.Stats stats = wal.stats();
+        wal.close();
+
+        assertThat(stats.durableSeq()).isEqualTo(threads * perThread);
+        // каждая запись зафиксирована, но force вызывался не на каждую
+        assertThat(stats.syncs()).isLessThanOrEqualTo(threads * perThread);
+
+        List<Integer> replayed = new ArrayList<>();
+        new WriteAheadLog(dir, true).recover(in -> { }, record -> replayed.add(record.readInt()));
+        assertThat(replayed).hasSize(threads * perThread).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void snapshot_shouldReplaceOlderSegments() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(dir, false);
+        wal.recover(in -> { }, record -> { });
+        wal.append(out -> out.writeInt(1));
+        wal.snapshot(out -> out.writeInt(100));
+        wal.append(out -> out.writeInt(2));
+        wal.close();
+
+        List<Integer> seen = new ArrayList<>();
+        new WriteAheadLog(dir, false).recover(in -> seen.add(in.readInt()), record -> seen.add(record.readInt()));
+
+        assertThat(seen).containsExactly(100, 2);
+        assertThat(segments()).hasSize(2);
+    }
+
+    @Test
+    void corruptedMiddleSegment_shouldFailRecovery() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(dir, true);
+        wal.recover(in -> { }, record -> { });
+        wal.sync(wal.append(out -> out.writeInt(1)));
+        wal.close();
+        // второй запуск начинает следующий сегмент, первый становится «серединой» журнала
+        WriteAheadLog second = new WriteAheadLog(dir, true);
+        second.recover(in -> { }, record -> { });
+        second.sync(second.append(out -> out.writeInt(2)));
+        second.close();
+
+        Path first = segments().getFirst();
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 0x7F;
+        Files.write(first, bytes);
+
+        assertThrows(RuntimeException.class,
+                () -> new WriteAheadLog(dir, true).recover(in -> { }, record -> { }));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted().toList();
+        }
+    }
+}